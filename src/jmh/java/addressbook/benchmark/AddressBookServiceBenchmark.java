@@ -0,0 +1,85 @@
+package addressbook.benchmark;
+
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.service.addressbook.AddressBookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of the main {@link AddressBookService} operations against embedded H2, with an AddressBook of 10000 Contacts
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AddressBookServiceBenchmark {
+
+    private static final int ADDRESS_BOOK_SIZE = 10_000;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private AddressBookService addressBookService;
+
+    private AddressBook addressBook;
+
+    private UUID contactId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        addressBookService = context.getBean(AddressBookService.class);
+        addressBook = BenchmarkApplication.createAddressBook(addressBookService, ADDRESS_BOOK_SIZE);
+
+        Contact contact = BenchmarkApplication.contact("updated@benchmark.com");
+        contact.setAddressBook(addressBook);
+        addressBookService.create(contact);
+        contactId = contact.getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UUID createContact() {
+        Contact contact = BenchmarkApplication.contact("created" + sequence.incrementAndGet() + "@benchmark.com");
+        contact.setAddressBook(addressBook);
+        addressBookService.create(contact);
+        return contact.getId();
+    }
+
+    @Benchmark
+    public Optional<Contact> getContact() {
+        return addressBookService.getContact(contactId);
+    }
+
+    @Benchmark
+    public Optional<AddressBook> getAddressBook() {
+        return addressBookService.get(addressBook.getId());
+    }
+
+    @Benchmark
+    public void updateContact() {
+        Contact contact = BenchmarkApplication.contact("updated@benchmark.com");
+        contact.setPhoneNumber(String.valueOf(sequence.incrementAndGet()));
+        contact.setAddressBook(addressBook);
+        addressBookService.update(contactId, contact);
+    }
+}
@@ -0,0 +1,62 @@
+package addressbook.benchmark;
+
+import addressbook.SimpleAddressBookApplication;
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.service.addressbook.AddressBookService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Start the application without web server against its own embedded H2 DB, and seed it with data for benchmarks
+ *
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(SimpleAddressBookApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID(),
+                        "spring.h2.console.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    /**
+     * Create an AddressBook holding the given number of Contacts, emails are 'contact{n}@benchmark.com'
+     *
+     * @param addressBookService
+     * @param size
+     * @return
+     */
+    static AddressBook createAddressBook(AddressBookService addressBookService, int size) {
+        AddressBook addressBook = new AddressBook();
+        addressBook.setName("benchmark");
+        addressBookService.create(addressBook);
+
+        addressBookService.importContacts(addressBook.getId(), IntStream.range(0, size)
+                .mapToObj(i -> contact("contact" + i + "@benchmark.com"))
+                .iterator());
+
+        return addressBook;
+    }
+
+    static Contact contact(String email) {
+        Contact contact = new Contact();
+        contact.setFirstName("John");
+        contact.setSurName("Doe");
+        contact.setEmail(email);
+        contact.setPhoneNumber("0404123456");
+        contact.setState("VIC");
+        contact.setCountry("Australia");
+        return contact;
+    }
+}
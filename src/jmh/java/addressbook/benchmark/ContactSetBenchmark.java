@@ -0,0 +1,66 @@
+package addressbook.benchmark;
+
+import addressbook.model.impl.Contact;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link Contact#equals(Object)} and {@link Contact#hashCode()} when Contacts are held in large hash sets
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContactSetBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private List<Contact> contacts;
+
+    private Set<Contact> contactSet;
+
+    private Contact present;
+
+    private Contact absent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contacts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            contacts.add(BenchmarkApplication.contact("contact" + i + "@benchmark.com"));
+        }
+        contactSet = new HashSet<>(contacts);
+
+        present = BenchmarkApplication.contact("contact" + (size / 2) + "@benchmark.com");
+        absent = BenchmarkApplication.contact("absent@benchmark.com");
+    }
+
+    @Benchmark
+    public Set<Contact> buildSet() {
+        return new HashSet<>(contacts);
+    }
+
+    @Benchmark
+    public boolean containsPresent() {
+        return contactSet.contains(present);
+    }
+
+    @Benchmark
+    public boolean containsAbsent() {
+        return contactSet.contains(absent);
+    }
+}
@@ -0,0 +1,70 @@
+package addressbook.benchmark;
+
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.service.addressbook.AddressBookService;
+import addressbook.service.addressbook.contactvalidator.ContactValidator;
+import addressbook.service.addressbook.contactvalidator.ContactValidatorResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of validating a Contact depending on the size of its AddressBook. It should stay flat as the size grows.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContactValidatorBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int addressBookSize;
+
+    private ConfigurableApplicationContext context;
+
+    private ContactValidator contactValidator;
+
+    private Contact newContact;
+
+    private Contact duplicatedContact;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        contactValidator = context.getBean(ContactValidator.class);
+
+        AddressBook addressBook = BenchmarkApplication.createAddressBook(context.getBean(AddressBookService.class), addressBookSize);
+
+        newContact = BenchmarkApplication.contact("new@benchmark.com");
+        newContact.setAddressBook(addressBook);
+
+        duplicatedContact = BenchmarkApplication.contact("contact0@benchmark.com");
+        duplicatedContact.setAddressBook(addressBook);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ContactValidatorResult validateNewContact() {
+        return contactValidator.validate(newContact);
+    }
+
+    @Benchmark
+    public ContactValidatorResult validateDuplicatedContact() {
+        return contactValidator.validate(duplicatedContact);
+    }
+}
@@ -0,0 +1,68 @@
+package addressbook.benchmark;
+
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of serializing lists of Contact and AddressBook to JSON, with an ObjectMapper configured as the application's
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+
+    private List<Contact> contacts;
+
+    private List<AddressBook> addressBooks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        contacts = new ArrayList<>(size);
+        addressBooks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Contact contact = BenchmarkApplication.contact("contact" + i + "@benchmark.com");
+            contact.setId(UUID.randomUUID());
+            contacts.add(contact);
+
+            AddressBook addressBook = new AddressBook();
+            addressBook.setId(UUID.randomUUID());
+            addressBook.setName("benchmark" + i);
+            addressBooks.add(addressBook);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeContacts() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(contacts);
+    }
+
+    @Benchmark
+    public byte[] serializeAddressBooks() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(addressBooks);
+    }
+}
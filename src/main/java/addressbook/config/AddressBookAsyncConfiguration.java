@@ -0,0 +1,66 @@
+package addressbook.config;
+
+import addressbook.service.addressbook.AddressBookService;
+import addressbook.service.addressbook.asyncimpl.AsyncAddressBookService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assemble the {@link AsyncAddressBookService} used by the async controller, when 'addressbook.async.enabled' is set.
+ * The executor is bounded both in threads and in queue, and is not exposed as a bean so it is not picked up as the
+ * application task executor.
+ *
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "addressbook.async", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(AddressBookAsyncProperties.class)
+public class AddressBookAsyncConfiguration {
+
+    public static final String EXECUTOR_NAME = "addressbook.async";
+
+    // Used when the pool size is not configured and the DataSource is not Hikari
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean(destroyMethod = "shutdown")
+    public AsyncAddressBookService asyncAddressBookService(AddressBookService addressBookService,
+                                                           AddressBookAsyncProperties asyncProperties,
+                                                           DataSource dataSource,
+                                                           MeterRegistry meterRegistry) {
+        int poolSize = poolSize(asyncProperties, dataSource);
+
+        // Every thread holds at most one connection, so the pool never waits on the connection pool. Calls are
+        // rejected once the queue is full rather than run by the caller
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(asyncProperties.getQueueCapacity()),
+                new ThreadFactoryBuilder().setNameFormat("addressbook-async-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        new ExecutorServiceMetrics(executor, EXECUTOR_NAME, Collections.emptyList()).bindTo(meterRegistry);
+
+        return new AsyncAddressBookService(addressBookService, executor, meterRegistry);
+    }
+
+    private static int poolSize(AddressBookAsyncProperties asyncProperties, DataSource dataSource) {
+        if (asyncProperties.getPoolSize() > 0) {
+            return asyncProperties.getPoolSize();
+        }
+        if (dataSource instanceof HikariDataSource) {
+            return ((HikariDataSource) dataSource).getMaximumPoolSize();
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+}
@@ -0,0 +1,43 @@
+package addressbook.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the executor running {@link addressbook.service.addressbook.asyncimpl.AsyncAddressBookService}
+ *
+ */
+@ConfigurationProperties(prefix = "addressbook.async")
+public class AddressBookAsyncProperties {
+
+    private boolean enabled = false;
+
+    // Number of threads, 0 to use the maximum size of the connection pool
+    private int poolSize = 0;
+
+    // Number of calls waiting for a thread before new calls are rejected
+    private int queueCapacity = 100;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
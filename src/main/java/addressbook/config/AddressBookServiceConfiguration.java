@@ -0,0 +1,79 @@
+package addressbook.config;
+
+import addressbook.dao.shard.ShardResolver;
+import addressbook.service.addressbook.AddressBookService;
+import addressbook.service.addressbook.autocomplete.ContactNameIndex;
+import addressbook.service.addressbook.cacheimpl.CachingAddressBookService;
+import addressbook.service.addressbook.jpaimpl.JpaAddressBookService;
+import addressbook.service.addressbook.metricsimpl.MeteredAddressBookService;
+import addressbook.service.addressbook.shardimpl.ShardedAddressBookService;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Assemble the {@link AddressBookService} used by the controllers. The JPA implementation is wrapped by the optional
+ * decorators enabled in configuration.
+ *
+ */
+@Configuration
+@Profile("!reactive")
+@EnableConfigurationProperties(AddressBookCacheProperties.class)
+public class AddressBookServiceConfiguration {
+
+    @Bean
+    @Primary
+    public AddressBookService addressBookService(JpaAddressBookService jpaAddressBookService,
+                                                 AddressBookCacheProperties cacheProperties,
+                                                 ShardingProperties shardingProperties,
+                                                 ShardResolver shardResolver,
+                                                 ContactNameIndex contactNameIndex,
+                                                 @Qualifier("shardExecutor") ObjectProvider<ExecutorService> shardExecutor,
+                                                 MeterRegistry meterRegistry,
+                                                 @Value("${addressbook.metrics.enabled:true}") boolean metricsEnabled) {
+        AddressBookService addressBookService = jpaAddressBookService;
+
+        // Innermost, so the shard is chosen before the JPA implementation starts its transaction
+        if (shardingProperties.isEnabled()) {
+            addressBookService = new ShardedAddressBookService(addressBookService, shardResolver, contactNameIndex,
+                    shardExecutor.getObject());
+        }
+
+        if (cacheProperties.isEnabled()) {
+            addressBookService = new CachingAddressBookService(addressBookService,
+                    monitor(newCache(cacheProperties), "addressbook", meterRegistry),
+                    monitor(newCache(cacheProperties), "contact", meterRegistry));
+        }
+
+        // Outermost, so the recorded time is what callers see, cache hits included
+        if (metricsEnabled) {
+            addressBookService = new MeteredAddressBookService(addressBookService, meterRegistry);
+        }
+
+        return addressBookService;
+    }
+
+    private static <V> Cache<UUID, V> newCache(AddressBookCacheProperties cacheProperties) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(cacheProperties.getMaximumSize())
+                .expireAfterWrite(cacheProperties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+    }
+
+    private static <V> Cache<UUID, V> monitor(Cache<UUID, V> cache, String name, MeterRegistry meterRegistry) {
+        return GuavaCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+}
@@ -0,0 +1,40 @@
+package addressbook.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+/**
+ * Build the connection pools of the DBs configured next to 'spring.datasource', such as shards and replicas
+ *
+ */
+final class DataSourcePools {
+
+    private DataSourcePools() {
+    }
+
+    /**
+     * Return a pool on the given DB, using the driver and, unless given, the credentials of 'spring.datasource'
+     *
+     * @param dataSourceProperties
+     * @param poolName
+     * @param url
+     * @param username
+     * @param password
+     * @return
+     */
+    static HikariDataSource create(DataSourceProperties dataSourceProperties, String poolName, String url,
+                                   String username, String password) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        if (username != null) {
+            dataSource.setUsername(username);
+        }
+        if (password != null) {
+            dataSource.setPassword(password);
+        }
+        dataSource.setPoolName(poolName);
+        return dataSource;
+    }
+}
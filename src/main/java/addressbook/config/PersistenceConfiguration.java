@@ -0,0 +1,36 @@
+package addressbook.config;
+
+import addressbook.model.id.UuidStorage;
+import addressbook.model.id.UuidStorageTypeContributor;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.TypeContributorList;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ * Hibernate settings that cannot be expressed as plain properties
+ *
+ */
+@Configuration
+public class PersistenceConfiguration {
+
+    /**
+     * Choose the column type of ids according to 'addressbook.id.storage'
+     *
+     * @param storage
+     * @return
+     */
+    @Bean
+    public HibernatePropertiesCustomizer uuidStorageCustomizer(@Value("${addressbook.id.storage:char}") String storage) {
+        UuidStorageTypeContributor typeContributor =
+                new UuidStorageTypeContributor(UuidStorage.valueOf(storage.toUpperCase(Locale.ROOT)));
+        TypeContributorList typeContributors = () -> Collections.singletonList(typeContributor);
+
+        return properties -> properties.put(EntityManagerFactoryBuilderImpl.TYPE_CONTRIBUTORS, typeContributors);
+    }
+}
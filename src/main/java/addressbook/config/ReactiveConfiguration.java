@@ -0,0 +1,57 @@
+package addressbook.config;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import javax.sql.DataSource;
+
+/**
+ * R2DBC access used by the 'reactive' profile. Boot's R2DBC auto-configuration is excluded, its transaction manager
+ * would otherwise replace the JPA one. The reactive transaction manager is only reachable through the
+ * {@link TransactionalOperator}, so {@code @Transactional} keeps resolving to JPA.
+ *
+ * Boot does not configure a JDBC DataSource once a {@link ConnectionFactory} is defined, it is defined here so JPA
+ * still creates the schema and loads the initial data. The JPA service, its in memory indexes and email filter are
+ * not started in this profile, see {@link addressbook.service.addressbook.r2dbcimpl.R2dbcAddressBookService}.
+ *
+ */
+@Configuration
+@Profile("reactive")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveConfiguration {
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().build();
+    }
+
+    @Bean
+    public ConnectionFactory connectionFactory(@Value("${addressbook.r2dbc.url}") String url,
+                                               @Value("${spring.datasource.username}") String username,
+                                               @Value("${spring.datasource.password}") String password) {
+        return ConnectionFactories.get(ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    @Bean
+    public TransactionalOperator reactiveTransactionalOperator(ConnectionFactory connectionFactory) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+}
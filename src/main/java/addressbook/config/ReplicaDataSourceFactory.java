@@ -0,0 +1,90 @@
+package addressbook.config;
+
+import addressbook.dao.replica.ReplicaRoutingDataSource;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Build the DataSources splitting reads between a primary and its replicas, check the health of their replicas every
+ * 'addressbook.replication.health-check-interval' in background, and close them on shutdown
+ *
+ */
+public class ReplicaDataSourceFactory implements Closeable {
+
+    private final DataSourceProperties dataSourceProperties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int healthCheckTimeoutSeconds;
+
+    private final List<ReplicaRoutingDataSource> dataSources = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("addressbook-replica-health-%d").setDaemon(true).build());
+
+    public ReplicaDataSourceFactory(DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry,
+                                    ReplicationProperties replicationProperties) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.meterRegistry = meterRegistry;
+        // A timeout of 0 would wait forever
+        this.healthCheckTimeoutSeconds = (int) Math.max(1, replicationProperties.getHealthCheckTimeout().getSeconds());
+
+        long interval = replicationProperties.getHealthCheckInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Return a DataSource sending read only transactions to the replicas and the rest to the primary, or the primary
+     * itself when it has no replica
+     *
+     * @param name tags the metrics of the DataSource
+     * @param primary
+     * @param replicas
+     * @return
+     */
+    public DataSource create(String name, DataSource primary, Map<String, ReplicationProperties.Replica> replicas) {
+        if (replicas.isEmpty()) {
+            return primary;
+        }
+
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        replicas.forEach((replicaName, replica) -> pools.put(replicaName, DataSourcePools.create(dataSourceProperties,
+                "addressbook-replica-" + name + "-" + replicaName, replica.getUrl(), replica.getUsername(),
+                replica.getPassword())));
+
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(name, primary, pools, meterRegistry);
+        dataSources.add(dataSource);
+        return new LazyConnectionDataSourceProxy(dataSource);
+    }
+
+    /**
+     * Check the replicas of every DataSource in the calling thread
+     */
+    public void checkHealth() {
+        for (ReplicaRoutingDataSource dataSource : dataSources) {
+            try {
+                dataSource.checkHealth(healthCheckTimeoutSeconds);
+            } catch (RuntimeException e) {
+                // Keeps the last state, checked again at the next interval
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        dataSources.forEach(ReplicaRoutingDataSource::close);
+    }
+}
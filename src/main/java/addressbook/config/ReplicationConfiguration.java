@@ -0,0 +1,59 @@
+package addressbook.config;
+
+import addressbook.dao.replica.ReplicaContextFilter;
+import addressbook.dao.shard.ShardResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Send read only transactions to the replicas listed in 'addressbook.replication.replicas', or in the replicas of each
+ * shard when sharding is enabled, when 'addressbook.replication.enabled' is set. Writes, and the reads of a client
+ * within 'addressbook.replication.read-your-writes-window' of its last write, go to the primary.
+ *
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicationProperties.class)
+@ConditionalOnProperty(prefix = "addressbook.replication", name = "enabled", havingValue = "true")
+public class ReplicationConfiguration {
+
+    @Bean
+    public ReplicaDataSourceFactory replicaDataSourceFactory(DataSourceProperties dataSourceProperties,
+                                                             MeterRegistry meterRegistry,
+                                                             ReplicationProperties replicationProperties) {
+        return new ReplicaDataSourceFactory(dataSourceProperties, meterRegistry, replicationProperties);
+    }
+
+    /**
+     * Replace the DataSource of 'spring.datasource' by one splitting reads with its replicas. With sharding, each
+     * shard is split instead
+     *
+     * @param dataSourceProperties
+     * @param replicationProperties
+     * @param replicaDataSourceFactory
+     * @return
+     */
+    @Bean
+    @ConditionalOnExpression("!${addressbook.sharding.enabled:false}")
+    public DataSource dataSource(DataSourceProperties dataSourceProperties,
+                                 ReplicationProperties replicationProperties,
+                                 ReplicaDataSourceFactory replicaDataSourceFactory) {
+        DataSource primary = DataSourcePools.create(dataSourceProperties, "addressbook-primary",
+                dataSourceProperties.determineUrl(), dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword());
+        return replicaDataSourceFactory.create(ShardResolver.DEFAULT_SHARD, primary, replicationProperties.getReplicas());
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public ReplicaContextFilter replicaContextFilter(ReplicationProperties replicationProperties) {
+        return new ReplicaContextFilter(replicationProperties.getReadYourWritesWindow());
+    }
+}
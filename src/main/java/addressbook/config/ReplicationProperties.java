@@ -0,0 +1,105 @@
+package addressbook.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of the read replicas serving read only transactions
+ *
+ */
+@ConfigurationProperties(prefix = "addressbook.replication")
+public class ReplicationProperties {
+
+    private boolean enabled = false;
+
+    private Duration healthCheckInterval = Duration.ofSeconds(10);
+
+    // Time a replica has to validate a connection before it is taken out of rotation
+    private Duration healthCheckTimeout = Duration.ofSeconds(2);
+
+    // Time a client reads from the primary after its last write
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    // Replica name to its DB, replicas of 'spring.datasource' when sharding is disabled. Shards list their own
+    private Map<String, Replica> replicas = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    public void setHealthCheckInterval(Duration healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    public Duration getHealthCheckTimeout() {
+        return healthCheckTimeout;
+    }
+
+    public void setHealthCheckTimeout(Duration healthCheckTimeout) {
+        this.healthCheckTimeout = healthCheckTimeout;
+    }
+
+    public Duration getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    public void setReadYourWritesWindow(Duration readYourWritesWindow) {
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+
+    public Map<String, Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(Map<String, Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+
+    /**
+     * Connection settings of one replica, the credentials default to those of 'spring.datasource'
+     */
+    public static class Replica {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+}
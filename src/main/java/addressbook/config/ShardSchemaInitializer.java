@@ -0,0 +1,64 @@
+package addressbook.config;
+
+import addressbook.dao.shard.ShardRoutingDataSource;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Create the schema on every shard. Hibernate only creates it on the default shard, as it is not aware of shards, so
+ * the statements it runs are also written to a script, which is then run on the other shards once the application
+ * context is started. Nothing is done when Hibernate does not create the schema.
+ *
+ */
+public class ShardSchemaInitializer implements HibernatePropertiesCustomizer, SmartInitializingSingleton {
+
+    private static final String DDL_AUTO = "hibernate.hbm2ddl.auto";
+
+    private final ShardRoutingDataSource dataSource;
+
+    private final StringWriter script = new StringWriter();
+
+    public ShardSchemaInitializer(ShardRoutingDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        Object ddlAuto = hibernateProperties.get(DDL_AUTO);
+        if ("create".equals(ddlAuto) || "create-drop".equals(ddlAuto)) {
+            // Hibernate ignores hbm2ddl.auto once a script action is set, so the DB action is set along with it
+            hibernateProperties.put("javax.persistence.schema-generation.database.action", ddlAuto);
+            hibernateProperties.put("javax.persistence.schema-generation.scripts.action", "create");
+            hibernateProperties.put("javax.persistence.schema-generation.scripts.create-target", script);
+            hibernateProperties.put("hibernate.hbm2ddl.delimiter", ";");
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        byte[] statements = script.toString().getBytes(StandardCharsets.UTF_8);
+        if (statements.length == 0) {
+            return;
+        }
+
+        for (Map.Entry<String, DataSource> shard : dataSource.getShards().entrySet()) {
+            if (shard.getKey().equals(dataSource.getDefaultShard())) {
+                continue;
+            }
+            try (Connection connection = shard.getValue().getConnection()) {
+                ScriptUtils.executeSqlScript(connection, new ByteArrayResource(statements));
+            } catch (SQLException e) {
+                throw new IllegalStateException(String.format("Cannot create the schema of shard [%s]", shard.getKey()), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package addressbook.config;
+
+import addressbook.dao.shard.ShardResolver;
+import addressbook.dao.shard.ShardRoutingDataSource;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Partition AddressBooks and their Contacts across the DBs listed in 'addressbook.sharding.shards', when
+ * 'addressbook.sharding.enabled' is set. The {@link ShardResolver} is always available, with a single shard when
+ * sharding is disabled, so components reading every AddressBook can iterate over shards either way.
+ *
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfiguration {
+
+    @Bean
+    public ShardResolver shardResolver(ShardingProperties shardingProperties) {
+        if (!shardingProperties.isEnabled()) {
+            return ShardResolver.single();
+        }
+        return new ShardResolver(shardingProperties.getShards().keySet(), shardingProperties.getVirtualNodes());
+    }
+
+    /**
+     * Replace the DataSource of 'spring.datasource' by one routing to the shards, each with its own pool. When
+     * replication is enabled, the read only transactions of a shard go to its replicas
+     *
+     * @param shardingProperties
+     * @param dataSourceProperties
+     * @param replicaDataSourceFactory
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "addressbook.sharding", name = "enabled", havingValue = "true")
+    public ShardRoutingDataSource dataSource(ShardingProperties shardingProperties,
+                                             DataSourceProperties dataSourceProperties,
+                                             ObjectProvider<ReplicaDataSourceFactory> replicaDataSourceFactory) {
+        if (shardingProperties.getShards().isEmpty()) {
+            throw new IllegalStateException("Sharding is enabled but no shard is configured in addressbook.sharding.shards");
+        }
+
+        ReplicaDataSourceFactory replicas = replicaDataSourceFactory.getIfAvailable();
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        shardingProperties.getShards().forEach((name, shard) -> {
+            DataSource dataSource = DataSourcePools.create(dataSourceProperties, "addressbook-shard-" + name,
+                    shard.getUrl(), shard.getUsername(), shard.getPassword());
+            shards.put(name, replicas == null ? dataSource : replicas.create(name, dataSource, shard.getReplicas()));
+        });
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * Threads running an operation on every shard in parallel
+     *
+     * @param shardingProperties
+     * @return
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "addressbook.sharding", name = "enabled", havingValue = "true")
+    public ExecutorService shardExecutor(ShardingProperties shardingProperties) {
+        return Executors.newFixedThreadPool(shardingProperties.getPoolSize(),
+                new ThreadFactoryBuilder().setNameFormat("addressbook-shard-%d").setDaemon(true).build());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "addressbook.sharding", name = "enabled", havingValue = "true")
+    public ShardSchemaInitializer shardSchemaInitializer(ShardRoutingDataSource dataSource) {
+        return new ShardSchemaInitializer(dataSource);
+    }
+}
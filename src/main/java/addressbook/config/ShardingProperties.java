@@ -0,0 +1,105 @@
+package addressbook.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of the partitioning of AddressBooks and their Contacts across several DBs
+ *
+ */
+@ConfigurationProperties(prefix = "addressbook.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    // Points placed on the hash ring for each shard, more points spread AddressBooks more evenly
+    private int virtualNodes = 128;
+
+    // Threads running operations across shards, each holds one connection to a shard at a time
+    private int poolSize = 16;
+
+    // Shard name to its DB. Names are hashed to place AddressBooks, the first shard is the default one
+    private Map<String, Shard> shards = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public Map<String, Shard> getShards() {
+        return shards;
+    }
+
+    public void setShards(Map<String, Shard> shards) {
+        this.shards = shards;
+    }
+
+
+    /**
+     * Connection settings of one shard, the credentials default to those of 'spring.datasource'
+     */
+    public static class Shard {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        // Replica name to its DB, used when 'addressbook.replication.enabled' is set
+        private Map<String, ReplicationProperties.Replica> replicas = new LinkedHashMap<>();
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public Map<String, ReplicationProperties.Replica> getReplicas() {
+            return replicas;
+        }
+
+        public void setReplicas(Map<String, ReplicationProperties.Replica> replicas) {
+            this.replicas = replicas;
+        }
+    }
+}
@@ -3,15 +3,48 @@ package addressbook.controller;
 
 import addressbook.model.impl.AddressBook;
 import addressbook.model.impl.Contact;
+import addressbook.model.view.AddressBookSummary;
+import addressbook.model.view.AddressBookVersion;
+import addressbook.model.view.AddressBookView;
+import addressbook.model.view.ContactView;
 import addressbook.service.addressbook.AddressBookService;
+import addressbook.service.addressbook.BulkImportResult;
+import addressbook.service.addressbook.ContactChanges;
+import addressbook.service.addressbook.ContactPage;
+import addressbook.service.addressbook.ContactSearchCriteria;
+import addressbook.service.addressbook.autocomplete.ContactSuggestion;
+import addressbook.service.addressbook.changefeed.ChangeFeed;
+import addressbook.service.addressbook.duplicate.DuplicateDetector;
+import addressbook.service.addressbook.duplicate.DuplicateReport;
+import addressbook.service.exception.InvalidException;
 import addressbook.service.exception.NotFoundException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -21,11 +54,27 @@ import java.util.UUID;
  */
 @RestController
 @RequestMapping("/api/addressbook")
+@Profile("!reactive")
 public class AddressBookController {
 
+    public static final String NEXT_TOKEN_HEADER = "X-Next-Token";
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    public static final String MERGE_PATCH_VALUE = "application/merge-patch+json";
+
     @Autowired
     private AddressBookService addressBookService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @Autowired
+    private DuplicateDetector duplicateDetector;
+
 
     public AddressBookController (AddressBookService addressBookService) {
         this.addressBookService = addressBookService;
@@ -39,30 +88,62 @@ public class AddressBookController {
      * @return
      */
     @GetMapping("")
-    public ResponseEntity<List<AddressBook>> listAllAddressBook () {
+    public ResponseEntity<List<AddressBookView>> listAllAddressBook () {
         return ResponseEntity.ok(addressBookService.list());
     }
 
+    /**
+     * Return all Address Book together with their number of Contacts and last modified time, so a client does not
+     * need to list the Contacts of every AddressBook
+     *
+     * @return
+     */
+    @GetMapping(path = "", params = "summary=true")
+    public ResponseEntity<List<AddressBookSummary>> listAllAddressBookSummaries () {
+        return ResponseEntity.ok(addressBookService.listSummaries());
+    }
+
     /**
      * Find the AddressBook with given Id. Respond {@link org.springframework.http.HttpStatus#NOT_FOUND} if the required
-     * AddressBook is not found.
+     * AddressBook is not found. The response carries the ETag of the AddressBook returned, and
+     * {@link org.springframework.http.HttpStatus#NOT_MODIFIED} is responded to a matching If-None-Match without
+     * loading the AddressBook.
      *
      * @param id
+     * @param ifNoneMatch
      * @return
      */
     @GetMapping("/{id}")
-    public ResponseEntity<AddressBook> getAddressBook (@PathVariable("id") UUID id) {
-        Optional<AddressBook> addressBook = addressBookService.get(id);
-
-        ResponseEntity<AddressBook> response;
+    public ResponseEntity<AddressBook> getAddressBook (@PathVariable("id") UUID id,
+                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<AddressBookVersion> version = addressBookService.getVersion(id);
+        if (!version.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
 
-        if(addressBook.isPresent()){
-            response = ResponseEntity.ok(addressBook.get());
-        } else {
-            response = ResponseEntity.notFound().build();
+        String eTag = eTag(version.get().getVersion(), version.get().getContentVersion());
+        if (matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
         }
 
-        return response;
+        // Read apart from the version, so the ETag is built from the AddressBook actually returned
+        Optional<AddressBook> addressBook = addressBookService.get(id);
+        return addressBook.map(found -> ResponseEntity.ok().eTag(eTag(found)).body(found))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Find the AddressBook with given Id, together with its number of Contacts and last modified time. Respond
+     * {@link org.springframework.http.HttpStatus#NOT_FOUND} if the required AddressBook is not found.
+     *
+     * @param id
+     * @return
+     */
+    @GetMapping(path = "/{id}", params = "summary=true")
+    public ResponseEntity<AddressBookSummary> getAddressBookSummary (@PathVariable("id") UUID id) {
+        return addressBookService.getSummary(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
@@ -73,6 +154,7 @@ public class AddressBookController {
      */
     @PostMapping(consumes = "application/json", produces = "application/json")
     public ResponseEntity<UUID> createAddressBook(@RequestBody AddressBook addressBook) {
+        addressBook.setId(null);
         addressBookService.create (addressBook);
         return ResponseEntity.ok(addressBook.getId());
     }
@@ -80,54 +162,210 @@ public class AddressBookController {
 
     /**
      *
-     * Update an AddressBook
+     * Update an AddressBook. When an If-Match ETag is given, respond {@link org.springframework.http.HttpStatus#CONFLICT}
+     * if the AddressBook has been changed since.
      *
      * @param addressBook
      * @param id
+     * @param ifMatch
      * @return
      */
     @PutMapping(path = "/{id}", consumes = "application/json")
-    public ResponseEntity updateAddressBook (@RequestBody AddressBook addressBook, @PathVariable("id") UUID id) {
+    public ResponseEntity updateAddressBook (@RequestBody AddressBook addressBook, @PathVariable("id") UUID id,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        addressBook.setVersion(expectedVersion(ifMatch));
         addressBookService.update (id, addressBook);
         return ResponseEntity.ok().build();
     }
 
     /**
-     * Return all Unique Contacts
+     * Update only the fields of an AddressBook present in a JSON Merge Patch (RFC 7386) document. When an If-Match
+     * ETag is given, respond {@link org.springframework.http.HttpStatus#CONFLICT} if the AddressBook has been changed
+     * since.
      *
+     * @param patch
+     * @param id
+     * @param ifMatch
+     * @return
+     */
+    @PatchMapping(path = "/{id}", consumes = MERGE_PATCH_VALUE)
+    public ResponseEntity<Void> patchAddressBook (@RequestBody JsonNode patch, @PathVariable("id") UUID id,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        addressBookService.patch(id, mergePatch(patch), expectedVersion(ifMatch));
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Return a page of Unique Contacts. When there are more contacts to read, the token for the next page is returned
+     * in {@link #NEXT_TOKEN_HEADER} header and should be passed back as the 'next' parameter.
      *
+     * @param limit
+     * @param next
      * @return
      */
     @GetMapping("/contact")
-    public ResponseEntity<Set<Contact>> getAllContacts () {
-        return ResponseEntity.ok(addressBookService.getAllUniqueContact());
+    public ResponseEntity<List<ContactView>> getAllContacts (@RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                         @RequestParam(value = "next", required = false) String next) {
+        ContactPage page = addressBookService.getAllUniqueContact(next, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNext() != null) {
+            response.header(NEXT_TOKEN_HEADER, page.getNext());
+        }
+        return response.body(page.getContacts());
     }
 
     /**
-     * Find the AddressBook with given Id. Respond {@link org.springframework.http.HttpStatus#NOT_FOUND} if the required
-     * AddressBook is not found.
+     * Search Contacts. Filters are given as parameters: 'firstName' and 'surName' match by prefix, 'email',
+     * 'phoneNumber', 'country' and 'state' match exactly, and 'addressBookId' limits the search to one AddressBook.
+     * The result is paged with 'page', 'size' and 'sort' parameters.
+     *
+     * @param criteria
+     * @param pageable
+     * @return
+     */
+    @GetMapping("/contact/search")
+    public ResponseEntity<Page<Contact>> searchContacts (ContactSearchCriteria criteria,
+                                                         @PageableDefault(size = 20, sort = "surName") Pageable pageable) {
+        return ResponseEntity.ok(addressBookService.searchContacts(criteria, pageable));
+    }
+
+    /**
+     * Find the Contact with given Id. Respond {@link org.springframework.http.HttpStatus#NOT_FOUND} if the required
+     * Contact is not found. The response carries the ETag of the Contact returned, and
+     * {@link org.springframework.http.HttpStatus#NOT_MODIFIED} is responded to a matching If-None-Match without
+     * loading the Contact.
      *
      * @param id
+     * @param ifNoneMatch
      * @return
      */
     @GetMapping("/contact/{id}")
-    public ResponseEntity<Contact> get (@PathVariable("id") UUID id) {
+    public ResponseEntity<Contact> get (@PathVariable("id") UUID id,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<Long> version = addressBookService.getContactVersion(id);
+        if (!version.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String eTag = eTag(version.get());
+        if (matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
+        // Read apart from the version, so the ETag is built from the Contact actually returned
         Optional<Contact> contact = addressBookService.getContact(id);
-        return contact.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+        return contact.map(found -> ResponseEntity.ok().eTag(eTag(found)).body(found))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
-     * Return all Contacts under a given AddressBook
+     * Return all Contacts under a given AddressBook. The response carries the content version of the AddressBook as
+     * ETag, and {@link org.springframework.http.HttpStatus#NOT_MODIFIED} is responded to a matching If-None-Match
+     * without reading any Contact.
      *
      *
      * @param id
+     * @param request
      * @return
      */
     @GetMapping("/{id}/contact")
-    public ResponseEntity<Set<Contact>> getContacts (@PathVariable("id") UUID id) {
-        Optional<AddressBook> addressBook = addressBookService.get(id);
-        return addressBook.map(book -> ResponseEntity.ok(book.getContacts()))
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<List<Contact>> getContacts (@PathVariable("id") UUID id, WebRequest request) {
+        Optional<AddressBookVersion> version = addressBookService.getVersion(id);
+        if (!version.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String eTag = eTag(version.get().getContentVersion());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
+        List<Contact> contacts = new ArrayList<>();
+        addressBookService.exportContacts(id, contacts::add);
+        return ResponseEntity.ok().eTag(eTag).body(contacts);
+    }
+
+    /**
+     * Return a page of the Contacts of a given AddressBook changed or removed since the sync token, with the token to
+     * send next time. Every Contact is returned when no token is given. While 'hasMore' is true, the client should
+     * call again right away with the token. Respond {@link org.springframework.http.HttpStatus#GONE} when removals
+     * since the token have been purged, the client has to sync in full again
+     *
+     * @param id
+     * @param since
+     * @param limit
+     * @return
+     */
+    @GetMapping("/{id}/contact/changes")
+    public ResponseEntity<ContactChanges> getContactChanges (@PathVariable("id") UUID id,
+                                                            @RequestParam(name = "since", required = false) String since,
+                                                            @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        return ResponseEntity.ok(addressBookService.getContactChanges(id, since, limit));
+    }
+
+    /**
+     * Suggest Contacts of a given AddressBook whose name start with the typed prefix. Matching ignores case and
+     * diacritics, and is answered from memory.
+     *
+     * @param id
+     * @param prefix
+     * @param limit
+     * @return
+     */
+    @GetMapping("/{id}/contact/autocomplete")
+    public ResponseEntity<List<ContactSuggestion>> autocomplete (@PathVariable("id") UUID id,
+                                                                 @RequestParam("q") String prefix,
+                                                                 @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(addressBookService.autocomplete(id, prefix, limit));
+    }
+
+    /**
+     * Return the Ids of the Contacts having a given phone number, in any AddressBook. A number without international
+     * prefix is read as a number of the given country. Any formatting of the number matches, and it is answered from
+     * memory.
+     *
+     * @param phoneNumber
+     * @param country
+     * @return
+     */
+    @GetMapping("/contact/lookup")
+    public ResponseEntity<List<UUID>> lookupPhoneNumber (@RequestParam("phone") String phoneNumber,
+                                                         @RequestParam(value = "country", required = false) String country) {
+        return ResponseEntity.ok(addressBookService.lookupPhoneNumber(phoneNumber, country));
+    }
+
+    /**
+     * Export all Contacts under a given AddressBook as newline delimited JSON. Contacts are written to the response
+     * as they are read from DB, so memory use doesn't depend on the size of the AddressBook.
+     *
+     * @param id
+     * @return
+     */
+    @GetMapping(path = "/{id}/contact", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportContacts (@PathVariable("id") UUID id) {
+        if (!addressBookService.get(id).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            // Each Contact is terminated by a new line instead of the default space separator
+            generator.setRootValueSeparator(null);
+            try {
+                addressBookService.exportContacts(id, contact -> {
+                    try {
+                        generator.writeObject(contact);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } finally {
+                generator.flush();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
     }
 
     /**
@@ -145,6 +383,7 @@ public class AddressBookController {
             throw new NotFoundException(String.format("Cannot find address book with id [%s]", addressBookId));
         }
 
+        contact.setId(null);
         contact.setAddressBook(addressBook.get());
         addressBookService.create (contact);
         return ResponseEntity.ok(contact.getId());
@@ -152,26 +391,99 @@ public class AddressBookController {
 
 
     /**
-     * Update new Contact under a given {@link AddressBook}, and move the {@link Contact} to given {@link AddressBook}
+     * Import Contacts in bulk under a given {@link AddressBook}. The body is either a JSON array of Contacts or
+     * newline delimited JSON (one Contact per line). It is read as a stream, so the whole payload is never held in
+     * memory. Rows that are not valid are reported in the response.
+     *
+     * @param request
+     * @param addressBookId
+     * @return
+     * @throws IOException
+     */
+    @PostMapping(path = "/{id}/contact/import", consumes = {"application/json", NDJSON_VALUE}, produces = "application/json")
+    public ResponseEntity<BulkImportResult> importContacts(HttpServletRequest request, @PathVariable("id") UUID addressBookId) throws IOException {
+        try (MappingIterator<Contact> values = objectMapper.readerFor(Contact.class).readValues(request.getInputStream())) {
+            return ResponseEntity.ok(addressBookService.importContacts(addressBookId, readContacts(values)));
+        }
+    }
+
+    /**
+     * Update new Contact under a given {@link AddressBook}, and move the {@link Contact} to given {@link AddressBook}.
+     * When an If-Match ETag is given, respond {@link org.springframework.http.HttpStatus#CONFLICT} if the Contact has
+     * been changed since. Without If-Match the update is unconditional, the last writer wins.
      *
      * @param contact
      * @param addressBookId
+     * @param ifMatch
      * @return
      */
     @PutMapping(path="/{addressBookId}/contact/{id}", consumes = "application/json", produces = "application/json")
-    public ResponseEntity<UUID> update(@RequestBody Contact contact, @PathVariable("addressBookId") UUID addressBookId, @PathVariable("id") UUID id ) {
-        Optional<AddressBook> addressBook = addressBookService.get(addressBookId);
-
-        if (!addressBook.isPresent()) {
-            throw new NotFoundException(String.format("Cannot find address book with id [%s]", addressBookId));
-        }
+    public ResponseEntity<UUID> update(@RequestBody Contact contact, @PathVariable("addressBookId") UUID addressBookId, @PathVariable("id") UUID id,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        // Not loaded, the update fails with NotFoundException if it does not exist
+        AddressBook addressBook = new AddressBook();
+        addressBook.setId(addressBookId);
 
-        contact.setAddressBook(addressBook.get());
+        contact.setAddressBook(addressBook);
+        contact.setVersion(expectedVersion(ifMatch));
         addressBookService.update (id, contact);
         return ResponseEntity.ok(contact.getId());
     }
 
 
+    /**
+     * Update only the fields of a Contact present in a JSON Merge Patch (RFC 7386) document, a null member clears the
+     * field. When an If-Match ETag is given, respond {@link org.springframework.http.HttpStatus#CONFLICT} if the
+     * Contact has been changed since.
+     *
+     * @param patch
+     * @param id
+     * @param ifMatch
+     * @return
+     */
+    @PatchMapping(path = "/contact/{id}", consumes = MERGE_PATCH_VALUE, produces = "application/json")
+    public ResponseEntity<UUID> patchContact (@RequestBody JsonNode patch, @PathVariable("id") UUID id,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        addressBookService.patchContact(id, mergePatch(patch), expectedVersion(ifMatch));
+        return ResponseEntity.ok(id);
+    }
+
+
+    /**
+     * Start looking for duplicated Contacts across all AddressBooks in background, unless it is already running
+     *
+     * @return the report of the run in progress
+     */
+    @PostMapping(path = "/contact/duplicates", produces = "application/json")
+    public ResponseEntity<DuplicateReport> findDuplicates () {
+        return ResponseEntity.accepted().body(duplicateDetector.start());
+    }
+
+    /**
+     * Return the report of the last duplicate detection, with the clusters of Contacts found once it is completed
+     *
+     * @return
+     */
+    @GetMapping("/contact/duplicates")
+    public ResponseEntity<DuplicateReport> getDuplicates () {
+        return ResponseEntity.of(duplicateDetector.getReport());
+    }
+
+    /**
+     * Stream changes of AddressBooks and Contacts as Server-Sent Events, optionally only those concerning a given
+     * AddressBook. A client reconnecting with Last-Event-ID is first sent the changes it missed, or a 'reset' event
+     * when they are no longer buffered.
+     *
+     * @param addressBookId
+     * @param lastEventId
+     * @return
+     */
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes (@RequestParam(name = "addressBookId", required = false) UUID addressBookId,
+                               @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return changeFeed.subscribe(addressBookId, lastEventId);
+    }
+
     /**
      * Delete a {@link AddressBook} with given Id
      *
@@ -197,4 +509,146 @@ public class AddressBookController {
         return ResponseEntity.ok().build();
     }
 
+
+    /**
+     * Adapt the Jackson iterator, so a malformed row is reported as {@link InvalidException}
+     *
+     * @param values
+     * @return
+     */
+    private static Iterator<Contact> readContacts(MappingIterator<Contact> values) {
+        return new Iterator<Contact>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return values.hasNextValue();
+                } catch (IOException e) {
+                    throw new InvalidException(String.format("Cannot read Contact: %s", e.getMessage()));
+                }
+            }
+
+            @Override
+            public Contact next() {
+                try {
+                    return values.nextValue();
+                } catch (IOException e) {
+                    throw new InvalidException(String.format("Cannot read Contact: %s", e.getMessage()));
+                }
+            }
+        };
+    }
+
+    /**
+     * Read the changes of a JSON Merge Patch document. Fields of AddressBook and Contact are all text, so every member
+     * must be a string or null
+     *
+     * @param patch
+     * @return field name to new value, null to clear the field
+     */
+    static Map<String, String> mergePatch(JsonNode patch) {
+        if (patch == null || !patch.isObject()) {
+            throw new InvalidException("Merge patch must be a JSON object");
+        }
+
+        Map<String, String> changes = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isNull()) {
+                changes.put(field.getKey(), null);
+            } else if (field.getValue().isTextual()) {
+                changes.put(field.getKey(), field.getValue().textValue());
+            } else {
+                throw new InvalidException(String.format("Field [%s] must be a string or null", field.getKey()));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Build a strong ETag from the given versions
+     *
+     * @param versions
+     * @return
+     */
+    static String eTag(long... versions) {
+        StringBuilder eTag = new StringBuilder("\"");
+        for (int i = 0; i < versions.length; i++) {
+            if (i > 0) {
+                eTag.append('.');
+            }
+            eTag.append(versions[i]);
+        }
+        return eTag.append('"').toString();
+    }
+
+    /**
+     * Build the ETag of an AddressBook, as built from its {@link AddressBookVersion}
+     *
+     * @param addressBook
+     * @return
+     */
+    static String eTag(AddressBook addressBook) {
+        Long version = addressBook.getVersion();
+        return eTag(version == null ? 0 : version, addressBook.getContentVersion());
+    }
+
+    /**
+     * Build the ETag of a Contact, as built from its version
+     *
+     * @param contact
+     * @return
+     */
+    static String eTag(Contact contact) {
+        Long version = contact.getVersion();
+        return eTag(version == null ? 0 : version);
+    }
+
+    /**
+     * Return true if an If-None-Match header is '*' or lists the ETag, compared weakly
+     *
+     * @param ifNoneMatch
+     * @param eTag
+     * @return
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the entity version expected by an If-Match header, which is the first version of an ETag built by
+     * {@link #eTag(long...)}. Return null when there is no expectation
+     *
+     * @param ifMatch
+     * @return
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String eTag = ifMatch.trim();
+        if (eTag.startsWith("W/")) {
+            eTag = eTag.substring(2);
+        }
+        eTag = eTag.replace("\"", "");
+        int separator = eTag.indexOf('.');
+        try {
+            return Long.valueOf(separator < 0 ? eTag : eTag.substring(0, separator));
+        } catch (NumberFormatException e) {
+            throw new InvalidException(String.format("Invalid If-Match header [%s]", ifMatch));
+        }
+    }
 }
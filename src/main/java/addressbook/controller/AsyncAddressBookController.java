@@ -0,0 +1,366 @@
+package addressbook.controller;
+
+
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.model.view.AddressBookSummary;
+import addressbook.model.view.AddressBookView;
+import addressbook.model.view.ContactView;
+import addressbook.service.addressbook.ContactChanges;
+import addressbook.service.addressbook.ContactSearchCriteria;
+import addressbook.service.addressbook.asyncimpl.AsyncAddressBookService;
+import addressbook.service.addressbook.autocomplete.ContactSuggestion;
+import addressbook.service.exception.NotFoundException;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous variant of {@link AddressBookController}, enabled by 'addressbook.async.enabled'. Every endpoint
+ * returns as soon as its call is queued on the {@link AsyncAddressBookService} executor, so servlet threads never
+ * wait on the DB. {@link org.springframework.http.HttpStatus#SERVICE_UNAVAILABLE} is responded when the executor is
+ * saturated. ETags, If-None-Match and If-Match are handled as by {@link AddressBookController}, a matching
+ * If-None-Match being answered before the entity is loaded.
+ *
+ * Bulk import, NDJSON export and the Server-Sent Events change stream stay on {@link AddressBookController}, they are
+ * streamed already, as does duplicate detection, which runs in background already.
+ *
+ */
+@RestController
+@RequestMapping("/api/async/addressbook")
+@ConditionalOnProperty(prefix = "addressbook.async", name = "enabled", havingValue = "true")
+@Profile("!reactive")
+public class AsyncAddressBookController {
+
+    private final AsyncAddressBookService addressBookService;
+
+
+    public AsyncAddressBookController (AsyncAddressBookService addressBookService) {
+        this.addressBookService = addressBookService;
+    }
+
+
+    /**
+     * Return all Address Book
+     *
+     * @return
+     */
+    @GetMapping("")
+    public CompletableFuture<ResponseEntity<List<AddressBookView>>> listAllAddressBook () {
+        return addressBookService.list().thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Return all Address Book together with their number of Contacts and last modified time
+     *
+     * @return
+     */
+    @GetMapping(path = "", params = "summary=true")
+    public CompletableFuture<ResponseEntity<List<AddressBookSummary>>> listAllAddressBookSummaries () {
+        return addressBookService.listSummaries().thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Find the AddressBook with given Id. Respond {@link org.springframework.http.HttpStatus#NOT_FOUND} if the required
+     * AddressBook is not found. The response carries an ETag, and
+     * {@link org.springframework.http.HttpStatus#NOT_MODIFIED} is responded to a matching If-None-Match without
+     * loading the AddressBook.
+     *
+     * @param id
+     * @param ifNoneMatch
+     * @return
+     */
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<AddressBook>> getAddressBook (@PathVariable("id") UUID id,
+                                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalGet(addressBookService.getVersion(id).thenApply(version -> version.map(found ->
+                        AddressBookController.eTag(found.getVersion(), found.getContentVersion()))),
+                ifNoneMatch, () -> addressBookService.get(id), AddressBookController::eTag);
+    }
+
+    /**
+     * Find the AddressBook with given Id, together with its number of Contacts and last modified time
+     *
+     * @param id
+     * @return
+     */
+    @GetMapping(path = "/{id}", params = "summary=true")
+    public CompletableFuture<ResponseEntity<AddressBookSummary>> getAddressBookSummary (@PathVariable("id") UUID id) {
+        return addressBookService.getSummary(id).thenApply(AsyncAddressBookController::okOrNotFound);
+    }
+
+    /**
+     * Create a new {@link AddressBook}
+     *
+     * @param addressBook
+     * @return
+     */
+    @PostMapping(consumes = "application/json", produces = "application/json")
+    public CompletableFuture<ResponseEntity<UUID>> createAddressBook(@RequestBody AddressBook addressBook) {
+        addressBook.setId(null);
+        return addressBookService.create(addressBook).thenApply(done -> ResponseEntity.ok(addressBook.getId()));
+    }
+
+    /**
+     * Update an AddressBook, conditionally to the If-Match ETag if given
+     *
+     * @param addressBook
+     * @param id
+     * @param ifMatch
+     * @return
+     */
+    @PutMapping(path = "/{id}", consumes = "application/json")
+    public CompletableFuture<ResponseEntity<Void>> updateAddressBook (@RequestBody AddressBook addressBook, @PathVariable("id") UUID id,
+                                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        addressBook.setVersion(AddressBookController.expectedVersion(ifMatch));
+        return addressBookService.update(id, addressBook).thenApply(done -> ResponseEntity.ok().build());
+    }
+
+    /**
+     * Update only the fields of an AddressBook present in a JSON Merge Patch document, conditionally to the If-Match
+     * ETag if given
+     *
+     * @param patch
+     * @param id
+     * @param ifMatch
+     * @return
+     */
+    @PatchMapping(path = "/{id}", consumes = AddressBookController.MERGE_PATCH_VALUE)
+    public CompletableFuture<ResponseEntity<Void>> patchAddressBook (@RequestBody JsonNode patch, @PathVariable("id") UUID id,
+                                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return addressBookService.patch(id, AddressBookController.mergePatch(patch), AddressBookController.expectedVersion(ifMatch))
+                .thenApply(done -> ResponseEntity.ok().build());
+    }
+
+    /**
+     * Return a page of Unique Contacts, the token of the next page is returned in
+     * {@link AddressBookController#NEXT_TOKEN_HEADER} header
+     *
+     * @param limit
+     * @param next
+     * @return
+     */
+    @GetMapping("/contact")
+    public CompletableFuture<ResponseEntity<List<ContactView>>> getAllContacts (@RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                                                @RequestParam(value = "next", required = false) String next) {
+        return addressBookService.getAllUniqueContact(next, limit).thenApply(page -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNext() != null) {
+                response.header(AddressBookController.NEXT_TOKEN_HEADER, page.getNext());
+            }
+            return response.body(page.getContacts());
+        });
+    }
+
+    /**
+     * Search Contacts, with the same filters as {@link AddressBookController#searchContacts}
+     *
+     * @param criteria
+     * @param pageable
+     * @return
+     */
+    @GetMapping("/contact/search")
+    public CompletableFuture<ResponseEntity<Page<Contact>>> searchContacts (ContactSearchCriteria criteria,
+                                                                            @PageableDefault(size = 20, sort = "surName") Pageable pageable) {
+        return addressBookService.searchContacts(criteria, pageable).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Find the Contact with given Id. The response carries an ETag, and
+     * {@link org.springframework.http.HttpStatus#NOT_MODIFIED} is responded to a matching If-None-Match without
+     * loading the Contact.
+     *
+     * @param id
+     * @param ifNoneMatch
+     * @return
+     */
+    @GetMapping("/contact/{id}")
+    public CompletableFuture<ResponseEntity<Contact>> get (@PathVariable("id") UUID id,
+                                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalGet(addressBookService.getContactVersion(id).thenApply(version ->
+                        version.map(AddressBookController::eTag)),
+                ifNoneMatch, () -> addressBookService.getContact(id), AddressBookController::eTag);
+    }
+
+    /**
+     * Return all Contacts under a given AddressBook. The response carries the content version of the AddressBook as
+     * ETag, and {@link org.springframework.http.HttpStatus#NOT_MODIFIED} is responded to a matching If-None-Match
+     * without reading any Contact.
+     *
+     * @param id
+     * @param ifNoneMatch
+     * @return
+     */
+    @GetMapping(path = "/{id}/contact", produces = "application/json")
+    public CompletableFuture<ResponseEntity<List<Contact>>> getContacts (@PathVariable("id") UUID id,
+                                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalGet(addressBookService.getVersion(id).thenApply(version -> version.map(found ->
+                        AddressBookController.eTag(found.getContentVersion()))),
+                ifNoneMatch, () -> addressBookService.getContacts(id).thenApply(Optional::of), null);
+    }
+
+    /**
+     * Return the Contacts of a given AddressBook changed or removed since the sync token, as
+     * {@link AddressBookController#getContactChanges}
+     *
+     * @param id
+     * @param since
+     * @param limit
+     * @return
+     */
+    @GetMapping("/{id}/contact/changes")
+    public CompletableFuture<ResponseEntity<ContactChanges>> getContactChanges (@PathVariable("id") UUID id,
+                                                                                @RequestParam(name = "since", required = false) String since,
+                                                                                @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        return addressBookService.getContactChanges(id, since, limit).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Suggest Contacts of a given AddressBook whose name start with the typed prefix
+     *
+     * @param id
+     * @param prefix
+     * @param limit
+     * @return
+     */
+    @GetMapping("/{id}/contact/autocomplete")
+    public CompletableFuture<ResponseEntity<List<ContactSuggestion>>> autocomplete (@PathVariable("id") UUID id,
+                                                                                    @RequestParam("q") String prefix,
+                                                                                    @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return addressBookService.autocomplete(id, prefix, limit).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Return the Ids of the Contacts having a given phone number, in any AddressBook
+     *
+     * @param phoneNumber
+     * @param country
+     * @return
+     */
+    @GetMapping("/contact/lookup")
+    public CompletableFuture<ResponseEntity<List<UUID>>> lookupPhoneNumber (@RequestParam("phone") String phoneNumber,
+                                                                            @RequestParam(value = "country", required = false) String country) {
+        return addressBookService.lookupPhoneNumber(phoneNumber, country).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Create new Contact under a given {@link AddressBook}
+     *
+     * @param contact
+     * @param addressBookId
+     * @return
+     */
+    @PostMapping(path="/{id}/contact", consumes = "application/json", produces = "application/json")
+    public CompletableFuture<ResponseEntity<UUID>> create(@RequestBody Contact contact, @PathVariable("id") UUID addressBookId) {
+        return addressBookService.get(addressBookId)
+                .thenCompose(addressBook -> {
+                    contact.setId(null);
+                    contact.setAddressBook(addressBook.orElseThrow(() -> new NotFoundException(
+                            String.format("Cannot find address book with id [%s]", addressBookId))));
+                    return addressBookService.create(contact);
+                })
+                .thenApply(done -> ResponseEntity.ok(contact.getId()));
+    }
+
+    /**
+     * Update a Contact and move it to given {@link AddressBook}, conditionally to the If-Match ETag if given. Without
+     * If-Match the update is unconditional, the last writer wins.
+     *
+     * @param contact
+     * @param addressBookId
+     * @param id
+     * @param ifMatch
+     * @return
+     */
+    @PutMapping(path="/{addressBookId}/contact/{id}", consumes = "application/json", produces = "application/json")
+    public CompletableFuture<ResponseEntity<UUID>> update(@RequestBody Contact contact, @PathVariable("addressBookId") UUID addressBookId, @PathVariable("id") UUID id,
+                                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        // Not loaded, the update fails with NotFoundException if it does not exist
+        AddressBook addressBook = new AddressBook();
+        addressBook.setId(addressBookId);
+        contact.setAddressBook(addressBook);
+        contact.setVersion(AddressBookController.expectedVersion(ifMatch));
+        return addressBookService.update(id, contact).thenApply(done -> ResponseEntity.ok(contact.getId()));
+    }
+
+    /**
+     * Update only the fields of a Contact present in a JSON Merge Patch document, conditionally to the If-Match ETag
+     * if given
+     *
+     * @param patch
+     * @param id
+     * @param ifMatch
+     * @return
+     */
+    @PatchMapping(path = "/contact/{id}", consumes = AddressBookController.MERGE_PATCH_VALUE, produces = "application/json")
+    public CompletableFuture<ResponseEntity<UUID>> patchContact (@RequestBody JsonNode patch, @PathVariable("id") UUID id,
+                                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return addressBookService.patchContact(id, AddressBookController.mergePatch(patch), AddressBookController.expectedVersion(ifMatch))
+                .thenApply(done -> ResponseEntity.ok(id));
+    }
+
+    /**
+     * Delete a {@link AddressBook} with given Id
+     *
+     * @param id
+     * @return
+     */
+    @DeleteMapping(path = "/{id}")
+    public CompletableFuture<ResponseEntity<Void>> delete (@PathVariable("id") UUID id) {
+        return addressBookService.delete(id).thenApply(done -> ResponseEntity.ok().build());
+    }
+
+    /**
+     * Delete a {@link Contact} with given Id
+     *
+     * @param id
+     * @return
+     */
+    @DeleteMapping(path = "/contact/{id}")
+    public CompletableFuture<ResponseEntity<Void>> deleteContact (@PathVariable("id") UUID id) {
+        return addressBookService.deleteContact(id).thenApply(done -> ResponseEntity.ok().build());
+    }
+
+    private static <T> ResponseEntity<T> okOrNotFound(Optional<T> body) {
+        return body.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Respond {@link org.springframework.http.HttpStatus#NOT_FOUND} when there is no ETag,
+     * {@link org.springframework.http.HttpStatus#NOT_MODIFIED} when If-None-Match matches it, otherwise load the body
+     * and respond it with its own ETag, or with the ETag checked when the body carries no version
+     */
+    private static <T> CompletableFuture<ResponseEntity<T>> conditionalGet(CompletableFuture<Optional<String>> eTag,
+                                                                           String ifNoneMatch,
+                                                                           Supplier<CompletableFuture<Optional<T>>> body,
+                                                                           Function<T, String> bodyETag) {
+        return eTag.thenCompose(current -> {
+            if (!current.isPresent()) {
+                return CompletableFuture.completedFuture(ResponseEntity.notFound().<T>build());
+            }
+            if (AddressBookController.matches(ifNoneMatch, current.get())) {
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(current.get()).<T>build());
+            }
+            return body.get().thenApply(found -> found
+                    .map(value -> ResponseEntity.ok()
+                            .eTag(bodyETag == null ? current.get() : bodyETag.apply(value))
+                            .body(value))
+                    .orElseGet(() -> ResponseEntity.notFound().build()));
+        });
+    }
+}
@@ -0,0 +1,184 @@
+package addressbook.controller;
+
+
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.model.view.AddressBookSummary;
+import addressbook.model.view.AddressBookView;
+import addressbook.service.addressbook.ReactiveAddressBookService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Non-blocking variant of {@link AddressBookController} served by WebFlux in the 'reactive' profile, on the same
+ * routes. Contacts of an AddressBook are streamed as they are read from DB, with backpressure, both as a JSON array
+ * and as newline delimited JSON.
+ *
+ */
+@RestController
+@RequestMapping("/api/addressbook")
+@Profile("reactive")
+public class ReactiveAddressBookController {
+
+    private final ReactiveAddressBookService addressBookService;
+
+
+    public ReactiveAddressBookController (ReactiveAddressBookService addressBookService) {
+        this.addressBookService = addressBookService;
+    }
+
+
+    /**
+     * Return all Address Book
+     *
+     * @return
+     */
+    @GetMapping("")
+    public Flux<AddressBookView> listAllAddressBook () {
+        return addressBookService.list();
+    }
+
+    /**
+     * Return all Address Book together with their number of Contacts and last modified time
+     *
+     * @return
+     */
+    @GetMapping(path = "", params = "summary=true")
+    public Flux<AddressBookSummary> listAllAddressBookSummaries () {
+        return addressBookService.listSummaries();
+    }
+
+    /**
+     * Find the AddressBook with given Id. Respond {@link org.springframework.http.HttpStatus#NOT_FOUND} if the required
+     * AddressBook is not found.
+     *
+     * @param id
+     * @return
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<AddressBook>> getAddressBook (@PathVariable("id") UUID id) {
+        return addressBookService.get(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Find the AddressBook with given Id, together with its number of Contacts and last modified time
+     *
+     * @param id
+     * @return
+     */
+    @GetMapping(path = "/{id}", params = "summary=true")
+    public Mono<ResponseEntity<AddressBookSummary>> getAddressBookSummary (@PathVariable("id") UUID id) {
+        return addressBookService.getSummary(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Create a new {@link AddressBook}
+     *
+     * @param addressBook
+     * @return
+     */
+    @PostMapping(consumes = "application/json", produces = "application/json")
+    public Mono<UUID> createAddressBook(@RequestBody AddressBook addressBook) {
+        return addressBookService.create(addressBook);
+    }
+
+    /**
+     * Update an AddressBook, conditionally to the If-Match ETag if given
+     *
+     * @param addressBook
+     * @param id
+     * @param ifMatch
+     * @return
+     */
+    @PutMapping(path = "/{id}", consumes = "application/json")
+    public Mono<Void> updateAddressBook (@RequestBody AddressBook addressBook, @PathVariable("id") UUID id,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        addressBook.setVersion(AddressBookController.expectedVersion(ifMatch));
+        return addressBookService.update(id, addressBook);
+    }
+
+    /**
+     * Find the Contact with given Id
+     *
+     * @param id
+     * @return
+     */
+    @GetMapping("/contact/{id}")
+    public Mono<ResponseEntity<Contact>> get (@PathVariable("id") UUID id) {
+        return addressBookService.getContact(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Stream all Contacts under a given AddressBook, as a JSON array or as newline delimited JSON
+     *
+     * @param id
+     * @return
+     */
+    @GetMapping(path = "/{id}/contact", produces = {MediaType.APPLICATION_JSON_VALUE, AddressBookController.NDJSON_VALUE})
+    public Flux<Contact> getContacts (@PathVariable("id") UUID id) {
+        return addressBookService.getContacts(id);
+    }
+
+    /**
+     * Create new Contact under a given {@link AddressBook}
+     *
+     * @param contact
+     * @param addressBookId
+     * @return
+     */
+    @PostMapping(path="/{id}/contact", consumes = "application/json", produces = "application/json")
+    public Mono<UUID> create(@RequestBody Contact contact, @PathVariable("id") UUID addressBookId) {
+        return addressBookService.create(addressBookId, contact);
+    }
+
+    /**
+     * Update a Contact and move it to given {@link AddressBook}, conditionally to the If-Match ETag if given
+     *
+     * @param contact
+     * @param addressBookId
+     * @param id
+     * @param ifMatch
+     * @return
+     */
+    @PutMapping(path="/{addressBookId}/contact/{id}", consumes = "application/json", produces = "application/json")
+    public Mono<UUID> update(@RequestBody Contact contact, @PathVariable("addressBookId") UUID addressBookId, @PathVariable("id") UUID id,
+                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        contact.setVersion(AddressBookController.expectedVersion(ifMatch));
+        return addressBookService.update(addressBookId, id, contact).thenReturn(id);
+    }
+
+    /**
+     * Delete a {@link AddressBook} with given Id
+     *
+     * @param id
+     * @return
+     */
+    @DeleteMapping(path = "/{id}")
+    public Mono<Void> delete (@PathVariable("id") UUID id) {
+        return addressBookService.delete(id);
+    }
+
+    /**
+     * Delete a {@link Contact} with given Id
+     *
+     * @param id
+     * @return
+     */
+    @DeleteMapping(path = "/contact/{id}")
+    public Mono<Void> deleteContact (@PathVariable("id") UUID id) {
+        return addressBookService.deleteContact(id);
+    }
+}
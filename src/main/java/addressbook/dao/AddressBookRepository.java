@@ -1,9 +1,167 @@
 package addressbook.dao;
 
 import addressbook.model.impl.AddressBook;
+import addressbook.model.view.AddressBookSummary;
+import addressbook.model.view.AddressBookVersion;
+import addressbook.model.view.AddressBookView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface AddressBookRepository extends JpaRepository<AddressBook, UUID> {
+
+    /**
+     * Return all AddressBook as read only views. No entity is loaded into the persistence context
+     *
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("select new addressbook.model.view.AddressBookView(b.id, b.name, b.lastModified) from AddressBook b")
+    List<AddressBookView> findAllViews();
+
+    /**
+     * Return all AddressBook with their number of Contacts, counted by one aggregate query
+     *
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("select new addressbook.model.view.AddressBookSummary(b.id, b.name, b.lastModified, count(c.id)) "
+            + "from AddressBook b left join b.contacts c group by b.id, b.name, b.lastModified")
+    List<AddressBookSummary> findAllSummaries();
+
+    /**
+     * Return the AddressBook with given Id and its number of Contacts
+     *
+     * @param id
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("select new addressbook.model.view.AddressBookSummary(b.id, b.name, b.lastModified, count(c.id)) "
+            + "from AddressBook b left join b.contacts c where b.id = :id group by b.id, b.name, b.lastModified")
+    Optional<AddressBookSummary> findSummaryById(@Param("id") UUID id);
+
+    /**
+     * Return the versions of the AddressBook with given Id, without loading it
+     *
+     * @param id
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("select new addressbook.model.view.AddressBookVersion(b.id, b.version, b.contentVersion) "
+            + "from AddressBook b where b.id = :id")
+    Optional<AddressBookVersion> findVersionById(@Param("id") UUID id);
+
+    /**
+     * Return the oldest sync version of an AddressBook still answered with changes, read by a single column query
+     *
+     * @param id
+     * @return
+     */
+    @Query("select b.minSyncVersion from AddressBook b where b.id = :id")
+    Optional<Long> findMinSyncVersionById(@Param("id") UUID id);
+
+    /**
+     * Raise the minimum sync version of every AddressBook having tombstones deleted before the given time to the
+     * highest sync version of those tombstones, so tokens older than them are no longer answered with changes
+     *
+     * @param before
+     * @return number of AddressBook updated
+     */
+    @Modifying
+    @Transactional
+    @Query("update AddressBook b set b.minSyncVersion = (select max(t.syncVersion) from ContactTombstone t "
+            + "where t.addressBook.id = b.id and t.deletedAt < :before) "
+            + "where exists (select t.id from ContactTombstone t "
+            + "where t.addressBook.id = b.id and t.deletedAt < :before and t.syncVersion > b.minSyncVersion)")
+    int raiseMinSyncVersions(@Param("before") Instant before);
+
+    /**
+     * Return the content version of an AddressBook, read by a single column query
+     *
+     * @param id
+     * @return
+     */
+    @Query("select b.contentVersion from AddressBook b where b.id = :id")
+    Optional<Long> findContentVersionById(@Param("id") UUID id);
+
+    /**
+     * Set the last modified time and bump the content version of the given AddressBooks, without loading them
+     *
+     * @param ids
+     * @param lastModified
+     * @return number of AddressBook updated
+     */
+    @Modifying
+    @Transactional
+    @Query("update AddressBook b set b.lastModified = :lastModified, b.contentVersion = b.contentVersion + 1 "
+            + "where b.id in :ids")
+    int touch(@Param("ids") Collection<UUID> ids, @Param("lastModified") Instant lastModified);
+
+    /**
+     * Touch the AddressBook a Contact is moved to and the one it currently belongs to, in one statement. Must be
+     * called before the Contact is moved
+     *
+     * @param contactId
+     * @param addressBookId
+     * @param lastModified
+     * @return number of AddressBook updated
+     */
+    @Modifying
+    @Transactional
+    @Query("update AddressBook b set b.lastModified = :lastModified, b.contentVersion = b.contentVersion + 1 "
+            + "where b.id = :addressBookId or b.id in (select c.addressBook.id from Contact c where c.id = :contactId)")
+    int touchForContact(@Param("contactId") UUID contactId, @Param("addressBookId") UUID addressBookId,
+                        @Param("lastModified") Instant lastModified);
+
+    /**
+     * Touch the AddressBook a Contact belongs to, in one statement
+     *
+     * @param contactId
+     * @param lastModified
+     * @return number of AddressBook updated
+     */
+    @Modifying
+    @Transactional
+    @Query("update AddressBook b set b.lastModified = :lastModified, b.contentVersion = b.contentVersion + 1 "
+            + "where b.id in (select c.addressBook.id from Contact c where c.id = :contactId)")
+    int touchByContact(@Param("contactId") UUID contactId, @Param("lastModified") Instant lastModified);
+
+    /**
+     * Delete an AddressBook with a single DELETE statement, without loading it or its Contacts. The Contacts must be
+     * deleted first
+     *
+     * @param id
+     * @return number of AddressBook deleted
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("delete from AddressBook b where b.id = :id")
+    int deleteAddressBookById(@Param("id") UUID id);
+
+    /**
+     * Rename an AddressBook in one statement. The update only applies when the AddressBook is still at the expected
+     * version, or whatever its version when the expected version is null
+     *
+     * @param id
+     * @param version expected version
+     * @param name
+     * @param lastModified
+     * @return number of AddressBook updated, 0 if it is not found or its version changed
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update AddressBook b set b.name = :name, b.lastModified = :lastModified, b.version = b.version + 1 "
+            + "where b.id = :id and (:version is null or b.version = :version)")
+    int update(@Param("id") UUID id, @Param("version") Long version, @Param("name") String name,
+               @Param("lastModified") Instant lastModified);
 }
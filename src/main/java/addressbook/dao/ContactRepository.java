@@ -1,10 +1,282 @@
 package addressbook.dao;
 
+import addressbook.model.impl.AddressBook;
 import addressbook.model.impl.Contact;
+import addressbook.model.view.ContactMatchView;
+import addressbook.model.view.ContactNameView;
+import addressbook.model.view.ContactPhoneView;
+import addressbook.model.view.ContactView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface ContactRepository extends JpaRepository<Contact, UUID> {
+public interface ContactRepository extends JpaRepository<Contact, UUID>, JpaSpecificationExecutor<Contact> {
+
+    /**
+     * Return the first page of distinct email addresses in ascending order
+     *
+     * @param pageable
+     * @return
+     */
+    @Query("select distinct c.email from Contact c order by c.email")
+    List<String> findDistinctEmails(Pageable pageable);
+
+    /**
+     * Return distinct email addresses sorting after the given one. Used as the keyset for paging through unique
+     * contacts
+     *
+     * @param after
+     * @param pageable
+     * @return
+     */
+    @Query("select distinct c.email from Contact c where c.email > :after order by c.email")
+    List<String> findDistinctEmailsAfter(@Param("after") String after, Pageable pageable);
+
+    /**
+     * Return all Contact having one of the given email addresses as read only views, ordered by email then id. No
+     * entity is loaded into the persistence context
+     *
+     * @param emails
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("select new addressbook.model.view.ContactView(c.id, c.firstName, c.middleName, c.surName, c.phoneNumber, "
+            + "c.email, c.state, c.country) from Contact c where c.email in :emails order by c.email, c.id")
+    List<ContactView> findViewsByEmailIn(@Param("emails") Collection<String> emails);
+
+    /**
+     * Return the version of the Contact with given Id, without loading it
+     *
+     * @param id
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("select c.version from Contact c where c.id = :id")
+    Optional<Long> findVersionById(@Param("id") UUID id);
+
+    /**
+     * Overwrite all fields of a Contact and move it to the given AddressBook in one statement, its sync version being
+     * the content version of that AddressBook. The update only applies when the Contact is still at the expected
+     * version, or whatever its version when the expected version is null
+     *
+     * @return number of Contact updated, 0 if it is not found or its version changed
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update Contact c set c.addressBook = :addressBook, c.firstName = :firstName, c.middleName = :middleName, "
+            + "c.surName = :surName, c.phoneNumber = :phoneNumber, c.email = :email, c.state = :state, "
+            + "c.country = :country, c.normalizedEmail = :normalizedEmail, c.surnameKey = :surnameKey, "
+            + "c.phoneE164 = :phoneE164, c.version = c.version + 1, "
+            + "c.syncVersion = (select b.contentVersion from AddressBook b where b = :addressBook) "
+            + "where c.id = :id and (:version is null or c.version = :version)")
+    int update(@Param("id") UUID id, @Param("version") Long version, @Param("addressBook") AddressBook addressBook,
+               @Param("firstName") String firstName, @Param("middleName") String middleName,
+               @Param("surName") String surName, @Param("phoneNumber") String phoneNumber,
+               @Param("email") String email, @Param("state") String state, @Param("country") String country,
+               @Param("normalizedEmail") String normalizedEmail, @Param("surnameKey") String surnameKey,
+               @Param("phoneE164") String phoneE164);
+
+    /**
+     * Delete a Contact with a single DELETE statement, without loading it
+     *
+     * @param id
+     * @return number of Contact deleted
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("delete from Contact c where c.id = :id")
+    int deleteContactById(@Param("id") UUID id);
+
+    /**
+     * Delete all Contacts of an AddressBook with a single DELETE statement, without loading them
+     *
+     * @param addressBookId
+     * @return number of Contact deleted
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("delete from Contact c where c.addressBook.id = :addressBookId")
+    int deleteByAddressBookId(@Param("addressBookId") UUID addressBookId);
+
+    /**
+     * Check whether a Contact with given email already exist in the AddressBook. Backed by the unique index on
+     * (addressBookId, email)
+     *
+     * @param addressBookId
+     * @param email
+     * @return
+     */
+    boolean existsByAddressBookIdAndEmail(UUID addressBookId, String email);
+
+    /**
+     * Check whether a Contact other than the given one is using the email in the AddressBook
+     *
+     * @param addressBookId
+     * @param email
+     * @param id
+     * @return
+     */
+    boolean existsByAddressBookIdAndEmailAndIdNot(UUID addressBookId, String email, UUID id);
+
+    /**
+     * Return those of the given emails already used by a Contact of the AddressBook
+     *
+     * @param addressBookId
+     * @param emails
+     * @return
+     */
+    @Query("select c.email from Contact c where c.addressBook.id = :addressBookId and c.email in :emails")
+    List<String> findExistingEmails(@Param("addressBookId") UUID addressBookId, @Param("emails") Collection<String> emails);
+
+    /**
+     * Stream all Contact of an AddressBook. Must be consumed within a transaction, and the returned stream must be
+     * closed after use. Rows are fetched from DB in batches as the stream is consumed, loaded Contacts are read only.
+     *
+     * @param addressBookId
+     * @return
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("select c from Contact c where c.addressBook.id = :addressBookId")
+    Stream<Contact> streamByAddressBookId(@Param("addressBookId") UUID addressBookId);
+
+    /**
+     * Stream the emails of the Contacts of an AddressBook, read from the unique index on (addressBookId, email). Must
+     * be consumed within a transaction, and closed after use.
+     *
+     * @param addressBookId
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select c.email from Contact c where c.addressBook.id = :addressBookId")
+    Stream<String> streamEmailsByAddressBookId(@Param("addressBookId") UUID addressBookId);
+
+    /**
+     * Stream the names of every Contact. Must be consumed within a transaction, and closed after use.
+     *
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new addressbook.model.view.ContactNameView(c.id, c.addressBook.id, c.firstName, c.surName) from Contact c")
+    Stream<ContactNameView> streamAllNames();
+
+    /**
+     * Return a page of the Contacts of an AddressBook written after the given sync version, in the order they were
+     * written, then by Id. Backed by the index on (addressBookId, syncVersion, id)
+     *
+     * @param addressBookId
+     * @param syncVersion
+     * @param pageable
+     * @return
+     */
+    @Query("select c from Contact c where c.addressBook.id = :addressBookId and c.syncVersion > :syncVersion "
+            + "order by c.syncVersion, c.id")
+    List<Contact> findChangedSince(@Param("addressBookId") UUID addressBookId, @Param("syncVersion") long syncVersion,
+                                   Pageable pageable);
+
+    /**
+     * Return a page of the Contacts of an AddressBook following the given one in the order of
+     * {@link #findChangedSince}, so a page can resume within Contacts written with the same sync version
+     *
+     * @param addressBookId
+     * @param syncVersion sync version of the last Contact of the previous page
+     * @param id Id of the last Contact of the previous page
+     * @param pageable
+     * @return
+     */
+    @Query("select c from Contact c where c.addressBook.id = :addressBookId and (c.syncVersion > :syncVersion "
+            + "or (c.syncVersion = :syncVersion and c.id > :id)) order by c.syncVersion, c.id")
+    List<Contact> findChangedAfter(@Param("addressBookId") UUID addressBookId, @Param("syncVersion") long syncVersion,
+                                   @Param("id") UUID id, Pageable pageable);
+
+    /**
+     * Stream every Contact with an email, ordered by normalized email so equal emails are next to each other. Must be
+     * consumed within a transaction, and closed after use.
+     *
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new addressbook.model.view.ContactMatchView(c.id, c.firstName, c.surName, c.normalizedEmail, "
+            + "c.surnameKey, c.phoneE164, c.country) from Contact c where c.normalizedEmail is not null "
+            + "order by c.normalizedEmail")
+    Stream<ContactMatchView> streamMatchesByEmail();
+
+    /**
+     * Stream every Contact with a surname, ordered by soundex of the surname, country then first name, so Contacts
+     * with similar names are next to each other. Backed by the index on (surnameKey, country, firstName). Must be
+     * consumed within a transaction, and closed after use.
+     *
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new addressbook.model.view.ContactMatchView(c.id, c.firstName, c.surName, c.normalizedEmail, "
+            + "c.surnameKey, c.phoneE164, c.country) from Contact c where c.surnameKey is not null "
+            + "order by c.surnameKey, c.country, c.firstName")
+    Stream<ContactMatchView> streamMatchesBySurname();
+
+    /**
+     * Stream the phone numbers of every Contact having a valid one. Must be consumed within a transaction, and closed
+     * after use.
+     *
+     * @return
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new addressbook.model.view.ContactPhoneView(c.id, c.addressBook.id, c.phoneNumber, c.country, c.phoneE164) "
+            + "from Contact c where c.phoneE164 is not null")
+    Stream<ContactPhoneView> streamAllPhones();
+
+    /**
+     * Return the phone fields of the Contact with given Id
+     *
+     * @param id
+     * @return
+     */
+    @Query("select new addressbook.model.view.ContactPhoneView(c.id, c.addressBook.id, c.phoneNumber, c.country, c.phoneE164) "
+            + "from Contact c where c.id = :id")
+    Optional<ContactPhoneView> findPhoneById(@Param("id") UUID id);
+
+    /**
+     * Set the E.164 phone number of a Contact, after its number or country was patched
+     *
+     * @param id
+     * @param phoneE164
+     * @return number of Contact updated
+     */
+    @Modifying
+    @Transactional
+    @Query("update Contact c set c.phoneE164 = :phoneE164 where c.id = :id")
+    int updatePhoneE164(@Param("id") UUID id, @Param("phoneE164") String phoneE164);
+
+    /**
+     * Return the Id of the AddressBook the Contact with given Id belongs to
+     *
+     * @param id
+     * @return
+     */
+    @Query("select c.addressBook.id from Contact c where c.id = :id")
+    Optional<UUID> findAddressBookIdById(@Param("id") UUID id);
+
+    /**
+     * Return the names of the Contact with given Id
+     *
+     * @param id
+     * @return
+     */
+    @Query("select new addressbook.model.view.ContactNameView(c.id, c.addressBook.id, c.firstName, c.surName) from Contact c where c.id = :id")
+    Optional<ContactNameView> findNameById(@Param("id") UUID id);
 
 }
@@ -0,0 +1,63 @@
+package addressbook.dao;
+
+import addressbook.model.impl.ContactTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface ContactTombstoneRepository extends JpaRepository<ContactTombstone, UUID> {
+
+    /**
+     * Return the Ids of Contacts removed from an AddressBook after the given sync version. Backed by the index on
+     * (addressBookId, syncVersion)
+     *
+     * @param addressBookId
+     * @param syncVersion
+     * @return
+     */
+    @Query("select distinct t.contactId from ContactTombstone t "
+            + "where t.addressBook.id = :addressBookId and t.syncVersion > :syncVersion")
+    List<UUID> findContactIdsRemovedSince(@Param("addressBookId") UUID addressBookId,
+                                          @Param("syncVersion") long syncVersion);
+
+    /**
+     * Delete the tombstones of a Contact in an AddressBook, when it is moved back into it
+     *
+     * @param contactId
+     * @param addressBookId
+     * @return number of tombstones deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from ContactTombstone t where t.contactId = :contactId and t.addressBook.id = :addressBookId")
+    int deleteByContactIdAndAddressBookId(@Param("contactId") UUID contactId, @Param("addressBookId") UUID addressBookId);
+
+    /**
+     * Delete the tombstones of every AddressBook older than the given time with a single DELETE statement
+     *
+     * @param before
+     * @return number of tombstones deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from ContactTombstone t where t.deletedAt < :before")
+    int deleteDeletedBefore(@Param("before") Instant before);
+
+    /**
+     * Delete all tombstones of an AddressBook with a single DELETE statement
+     *
+     * @param addressBookId
+     * @return number of tombstones deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from ContactTombstone t where t.addressBook.id = :addressBookId")
+    int deleteByAddressBookId(@Param("addressBookId") UUID addressBookId);
+
+}
@@ -0,0 +1,119 @@
+package addressbook.dao.replica;
+
+import java.util.function.Supplier;
+
+
+/**
+ * Track whether the current request has written to the primary DB, or follows a recent write of the same client, see
+ * {@link ReplicaContextFilter}. Once it has, {@link ReplicaRoutingDataSource} sends its later read only transactions
+ * to the primary too, so the client reads its own writes whatever the lag of the replicas. Tasks the request hands to
+ * other threads share its context when wrapped by {@link #wrap(Supplier)}. Outside a request, such as in background
+ * tasks, nothing is tracked.
+ *
+ */
+public final class ReplicaContext {
+
+    // Null outside a request
+    private static final ThreadLocal<State> CURRENT = new ThreadLocal<>();
+
+    private ReplicaContext() {
+    }
+
+    /**
+     * Start tracking the writes of the request handled by the current thread
+     */
+    public static void open() {
+        open(false, () -> {});
+    }
+
+    /**
+     * Start tracking the writes of the request handled by the current thread
+     *
+     * @param written true if the request reads from the primary from the start
+     * @param onWrite run once, on the first write of the request
+     */
+    public static void open(boolean written, Runnable onWrite) {
+        CURRENT.set(new State(written, onWrite));
+    }
+
+    /**
+     * Record a write of the current request, ignored outside a request
+     */
+    public static void markWritten() {
+        State state = CURRENT.get();
+        if (state != null) {
+            state.markWritten();
+        }
+    }
+
+    /**
+     * Return true if the current request has written to the primary DB, or follows a recent write
+     *
+     * @return
+     */
+    public static boolean isWritten() {
+        State state = CURRENT.get();
+        return state != null && state.written;
+    }
+
+    public static void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Wrap a task so it runs within the context of the current request, whatever thread runs it. Writes of the task
+     * are writes of the request
+     *
+     * @param task
+     * @return
+     */
+    public static <T> Supplier<T> wrap(Supplier<T> task) {
+        State state = CURRENT.get();
+        if (state == null) {
+            return task;
+        }
+        return () -> {
+            State previous = CURRENT.get();
+            CURRENT.set(state);
+            try {
+                return task.get();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Context of one request, shared by the threads running its tasks
+     */
+    private static class State {
+
+        private volatile boolean written;
+
+        // Set once onWrite ran, guarded by this
+        private boolean reported;
+
+        private final Runnable onWrite;
+
+        private State(boolean written, Runnable onWrite) {
+            this.written = written;
+            this.onWrite = onWrite;
+        }
+
+        private void markWritten() {
+            written = true;
+            synchronized (this) {
+                if (reported) {
+                    return;
+                }
+                reported = true;
+            }
+            onWrite.run();
+        }
+    }
+}
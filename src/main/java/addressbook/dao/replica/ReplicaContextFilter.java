@@ -0,0 +1,70 @@
+package addressbook.dao.replica;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+
+/**
+ * Scope the read-your-writes tracking of {@link ReplicaContext} to each request, and carry it over to the next
+ * requests of the same client for a while. The first write of a request sets the '{@value #COOKIE_NAME}' cookie,
+ * holding the time until which the client reads from the primary, so a read sent right after a write does not hit a
+ * replica lagging behind it. The time is checked here, a client keeping the cookie longer gains nothing.
+ *
+ */
+public class ReplicaContextFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE_NAME = "addressbook-read-primary";
+
+    private final Duration window;
+
+    public ReplicaContextFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // Set before the response is committed, as the write happens while handling the request
+        ReplicaContext.open(followsWrite(request), () -> response.addCookie(readPrimaryCookie()));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaContext.close();
+        }
+    }
+
+    /**
+     * Return true if the request carries a cookie set by a write within the window
+     */
+    private boolean followsWrite(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Cookie readPrimaryCookie() {
+        Cookie cookie = new Cookie(COOKIE_NAME, String.valueOf(System.currentTimeMillis() + window.toMillis()));
+        cookie.setMaxAge((int) Math.max(1, window.getSeconds()));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        return cookie;
+    }
+}
@@ -0,0 +1,197 @@
+package addressbook.dao.replica;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * DataSource handing out connections to the replicas for read only transactions, in turn, and to the primary for
+ * everything else. A read only transaction still goes to the primary when the current request already wrote or
+ * follows a recent write of its client, see {@link ReplicaContext}, or when no replica is healthy.
+ *
+ * The route is chosen when a connection is taken, so this DataSource must be wrapped in a
+ * {@link LazyConnectionDataSourceProxy}: the transaction manager takes its connection before marking the transaction
+ * read only, the proxy only takes the actual one at the first statement.
+ *
+ * Routes are counted by the '{@value #ROUTES_NAME}' counter, tagged with the DataSource, the route taken and why.
+ *
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    public static final String ROUTES_NAME = "addressbook.datasource.routes";
+
+    public static final String HEALTHY_REPLICAS_NAME = "addressbook.datasource.replicas.healthy";
+
+    public static final String PRIMARY = "primary";
+
+    // Lookup key of the primary, replicas are looked up by their index
+    private static final int PRIMARY_KEY = -1;
+
+    private final String name;
+
+    private final DataSource primary;
+
+    private final List<String> replicaNames;
+
+    private final List<DataSource> replicas;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    // Replaced as a whole by health checks, so reads need no lock
+    private volatile boolean[] healthy;
+
+    private final Counter writes;
+
+    private final Counter stickyReads;
+
+    private final Counter fallbackReads;
+
+    private final List<Counter> replicaReads = new ArrayList<>();
+
+    public ReplicaRoutingDataSource(String name, DataSource primary, Map<String, DataSource> replicas,
+                                    MeterRegistry meterRegistry) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is required");
+        }
+        this.name = name;
+        this.primary = primary;
+        this.replicaNames = new ArrayList<>(replicas.keySet());
+        this.replicas = new ArrayList<>(replicas.values());
+        this.healthy = new boolean[replicas.size()];
+        Arrays.fill(healthy, true);
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY_KEY, primary);
+        for (int i = 0; i < this.replicas.size(); i++) {
+            targets.put(i, this.replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        // Not always a bean, as when it is a shard
+        afterPropertiesSet();
+
+        this.writes = routes(meterRegistry, PRIMARY, "write");
+        this.stickyReads = routes(meterRegistry, PRIMARY, "read_your_writes");
+        this.fallbackReads = routes(meterRegistry, PRIMARY, "no_healthy_replica");
+        for (String replicaName : replicaNames) {
+            replicaReads.add(routes(meterRegistry, replicaName, "read"));
+        }
+        Gauge.builder(HEALTHY_REPLICAS_NAME, this, ReplicaRoutingDataSource::countHealthy)
+                .description("Replicas passing their last health check")
+                .tag("datasource", name)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // Connections taken outside a transaction, such as schema creation, are not writes of the request
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReplicaContext.markWritten();
+            }
+            writes.increment();
+            return PRIMARY_KEY;
+        }
+        if (ReplicaContext.isWritten()) {
+            stickyReads.increment();
+            return PRIMARY_KEY;
+        }
+
+        int replica = nextHealthy();
+        if (replica < 0) {
+            fallbackReads.increment();
+            return PRIMARY_KEY;
+        }
+        replicaReads.get(replica).increment();
+        return replica;
+    }
+
+    /**
+     * Check every replica hands out a valid connection within the timeout. Replicas failing are skipped until they
+     * pass again
+     *
+     * @param timeoutSeconds
+     */
+    public void checkHealth(int timeoutSeconds) {
+        boolean[] checked = new boolean[replicas.size()];
+        for (int i = 0; i < replicas.size(); i++) {
+            try (Connection connection = replicas.get(i).getConnection()) {
+                checked[i] = connection.isValid(timeoutSeconds);
+            } catch (SQLException e) {
+                checked[i] = false;
+            }
+        }
+        healthy = checked;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(primary);
+        replicas.forEach(ReplicaRoutingDataSource::closeQuietly);
+    }
+
+    /**
+     * Return the index of the next healthy replica in turn, -1 if none is healthy
+     */
+    private int nextHealthy() {
+        boolean[] current = healthy;
+        int start = Math.floorMod(next.getAndIncrement(), current.length);
+        for (int i = 0; i < current.length; i++) {
+            int replica = (start + i) % current.length;
+            if (current[replica]) {
+                return replica;
+            }
+        }
+        return -1;
+    }
+
+    private double countHealthy() {
+        int count = 0;
+        for (boolean replica : healthy) {
+            if (replica) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Counter routes(MeterRegistry meterRegistry, String route, String reason) {
+        return Counter.builder(ROUTES_NAME)
+                .description("Connections taken, by DataSource, route and reason")
+                .tag("datasource", name)
+                .tag("route", route)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof Closeable) {
+            try {
+                ((Closeable) dataSource).close();
+            } catch (IOException e) {
+                // Shutting down anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package addressbook.dao.shard;
+
+import java.util.function.Supplier;
+
+
+/**
+ * Hold the shard the current thread works on. {@link ShardRoutingDataSource} hands out connections to that shard, so
+ * it must be set before a transaction starts, and stays the same until it ends.
+ *
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * Return the shard of the current thread, null when none is set
+     *
+     * @return
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run an action on the given shard, then restore the shard set before
+     *
+     * @param shard
+     * @param action
+     * @return
+     */
+    public static <T> T call(String shard, Supplier<T> action) {
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static void run(String shard, Runnable action) {
+        call(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
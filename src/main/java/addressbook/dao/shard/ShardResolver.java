@@ -0,0 +1,99 @@
+package addressbook.dao.shard;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+
+/**
+ * Map an AddressBook to the shard holding it and its Contacts, by consistent hashing.
+ *
+ * Each shard is placed on a hash ring at {@code virtualNodes} points derived from its name, and an AddressBook belongs
+ * to the first point found clockwise from the hash of its Id. Adding a shard only takes over the AddressBooks falling
+ * just before its points, about 1/N of them, the others stay where they are. Shard names are what is hashed, so they
+ * must not change once data is written.
+ *
+ */
+public class ShardResolver {
+
+    public static final String DEFAULT_SHARD = "default";
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final List<String> shards;
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public ShardResolver(Collection<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Each shard needs at least one virtual node");
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        for (String shard : this.shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(HASH_FUNCTION.hashString(shard + '#' + i, StandardCharsets.UTF_8).asLong(), shard);
+            }
+        }
+    }
+
+    /**
+     * Return a resolver mapping every AddressBook to the single {@value #DEFAULT_SHARD} shard, used when sharding
+     * is disabled
+     *
+     * @return
+     */
+    public static ShardResolver single() {
+        return new ShardResolver(Collections.singletonList(DEFAULT_SHARD), 1);
+    }
+
+    /**
+     * Return the shard holding the AddressBook with given Id
+     *
+     * @param addressBookId
+     * @return
+     */
+    public String resolve(UUID addressBookId) {
+        long hash = HASH_FUNCTION.newHasher()
+                .putLong(addressBookId.getMostSignificantBits())
+                .putLong(addressBookId.getLeastSignificantBits())
+                .hash().asLong();
+        Map.Entry<Long, String> point = ring.ceilingEntry(hash);
+        return (point == null ? ring.firstEntry() : point).getValue();
+    }
+
+    /**
+     * Return true if the AddressBook with given Id belongs to the shard
+     *
+     * @param shard
+     * @param addressBookId
+     * @return
+     */
+    public boolean owns(String shard, UUID addressBookId) {
+        return shard.equals(resolve(addressBookId));
+    }
+
+    /**
+     * Return every shard, the first one is the default shard
+     *
+     * @return
+     */
+    public List<String> getShards() {
+        return shards;
+    }
+
+    public String getDefaultShard() {
+        return shards.get(0);
+    }
+}
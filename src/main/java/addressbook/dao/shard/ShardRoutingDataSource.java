@@ -0,0 +1,58 @@
+package addressbook.dao.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * DataSource handing out connections to the shard set in {@link ShardContext}, or to the first shard when none is set,
+ * which is where the schema is created and where startup work not aware of shards runs. A shard that is not configured
+ * is an error rather than a silent fallback.
+ *
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private final Map<String, DataSource> shards;
+
+    private final String defaultShard;
+
+    public ShardRoutingDataSource(Map<String, DataSource> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+        this.defaultShard = shards.keySet().iterator().next();
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(defaultShard));
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+
+    public Map<String, DataSource> getShards() {
+        return shards;
+    }
+
+    public String getDefaultShard() {
+        return defaultShard;
+    }
+
+    @Override
+    public void close() {
+        shards.values().forEach(shard -> {
+            if (shard instanceof HikariDataSource) {
+                ((HikariDataSource) shard).close();
+            }
+        });
+    }
+}
@@ -1,10 +1,14 @@
 package addressbook.model;
 
+import addressbook.model.id.UuidStorageTypeContributor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Type;
 
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.Version;
 import java.util.UUID;
 
 @MappedSuperclass
@@ -12,10 +16,16 @@ public abstract class BaseModel {
 
 
     @Id
-    @GeneratedValue(generator = "UUID")
-    @Type(type="uuid-char")
+    @GeneratedValue(generator = "time-ordered-uuid")
+    @GenericGenerator(name = "time-ordered-uuid", strategy = "addressbook.model.id.TimeOrderedUuidGenerator")
+    @Type(type = UuidStorageTypeContributor.TYPE_NAME)
     private UUID id;
 
+    // Optimistic lock version, also used as the ETag of the entity
+    @Version
+    @JsonIgnore
+    private Long version;
+
 
     public UUID getId() {
         return id;
@@ -25,4 +35,12 @@ public abstract class BaseModel {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
 }
@@ -0,0 +1,43 @@
+package addressbook.model.id;
+
+import addressbook.model.BaseModel;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import java.io.Serializable;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+
+/**
+ * Generate time ordered UUID following the version 7 layout: the first 48 bits are the Unix epoch in milliseconds,
+ * the rest is random apart from the version and variant bits. Ids created close in time are close in the index, so
+ * inserts append to the end of the primary key index instead of splitting random pages.
+ *
+ */
+public class TimeOrderedUuidGenerator implements IdentifierGenerator {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        // Keep an Id assigned before insert, such as the one choosing the shard of an AddressBook
+        if (object instanceof BaseModel && ((BaseModel) object).getId() != null) {
+            return ((BaseModel) object).getId();
+        }
+        return next();
+    }
+
+    public static UUID next() {
+        long randomHigh = RANDOM.nextLong();
+        long randomLow = RANDOM.nextLong();
+
+        long mostSigBits = (System.currentTimeMillis() << 16)
+                | 0x7000L
+                | (randomHigh & 0x0FFFL);
+        long leastSigBits = 0x8000000000000000L
+                | (randomLow & 0x3FFFFFFFFFFFFFFFL);
+
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
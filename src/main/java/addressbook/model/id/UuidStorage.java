@@ -0,0 +1,14 @@
+package addressbook.model.id;
+
+/**
+ * How UUID ids are stored in DB
+ *
+ */
+public enum UuidStorage {
+
+    // 36 character string, e.g. '76f36362-92d9-4676-8384-abb62f54ce03'
+    CHAR,
+
+    // 16 bytes binary
+    BINARY
+}
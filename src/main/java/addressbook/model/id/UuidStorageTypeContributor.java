@@ -0,0 +1,59 @@
+package addressbook.model.id;
+
+import org.hibernate.boot.model.TypeContributions;
+import org.hibernate.boot.model.TypeContributor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.UUIDBinaryType;
+import org.hibernate.type.UUIDCharType;
+
+
+/**
+ * Register the Hibernate type used for every id and foreign key under {@link #TYPE_NAME}, mapped to either a string or
+ * a binary column depending on the configured {@link UuidStorage}
+ *
+ */
+public class UuidStorageTypeContributor implements TypeContributor {
+
+    public static final String TYPE_NAME = "addressbook-uuid";
+
+    private final UuidStorage storage;
+
+    public UuidStorageTypeContributor(UuidStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void contribute(TypeContributions typeContributions, ServiceRegistry serviceRegistry) {
+        if (storage == UuidStorage.BINARY) {
+            typeContributions.contributeType(new BinaryIdType());
+        } else {
+            typeContributions.contributeType(new CharIdType());
+        }
+    }
+
+    /**
+     * {@link UUIDBinaryType} registered under {@link #TYPE_NAME} only
+     */
+    private static class BinaryIdType extends UUIDBinaryType {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String[] getRegistrationKeys() {
+            return new String[] { TYPE_NAME };
+        }
+    }
+
+    /**
+     * {@link UUIDCharType} registered under {@link #TYPE_NAME} only
+     */
+    private static class CharIdType extends UUIDCharType {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String[] getRegistrationKeys() {
+            return new String[] { TYPE_NAME };
+        }
+    }
+}
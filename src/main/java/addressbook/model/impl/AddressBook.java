@@ -3,8 +3,10 @@ package addressbook.model.impl;
 
 import addressbook.model.BaseModel;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import javax.persistence.*;
+import java.time.Instant;
 import java.util.Set;
 
 @Entity
@@ -18,6 +20,18 @@ public class AddressBook extends BaseModel {
     @JoinColumn(name = "addressBookId")
     private Set<Contact> contacts;
 
+    // Last time the AddressBook or one of its Contacts was changed
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant lastModified;
+
+    // Bumped whenever a Contact of the AddressBook changes, the entity version is not
+    @JsonIgnore
+    private long contentVersion;
+
+    // Oldest content version a sync token may carry, raised when tombstones are purged
+    @JsonIgnore
+    private long minSyncVersion;
+
 
 
     public String getName() {
@@ -36,4 +50,34 @@ public class AddressBook extends BaseModel {
     public void setContacts(Set<Contact> contacts) {
         this.contacts = contacts;
     }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Instant lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public long getContentVersion() {
+        return contentVersion;
+    }
+
+    public void setContentVersion(long contentVersion) {
+        this.contentVersion = contentVersion;
+    }
+
+    public long getMinSyncVersion() {
+        return minSyncVersion;
+    }
+
+    public void setMinSyncVersion(long minSyncVersion) {
+        this.minSyncVersion = minSyncVersion;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = Instant.now();
+    }
 }
@@ -5,13 +5,30 @@ import addressbook.model.BaseModel;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import java.util.Objects;
 
 @Entity
-@Table(name = "Contact")
+@Table(name = "Contact",
+        indexes = {
+                @Index(name = "idx_contact_email", columnList = "email"),
+                @Index(name = "idx_contact_surname", columnList = "surName"),
+                @Index(name = "idx_contact_firstname", columnList = "firstName"),
+                @Index(name = "idx_contact_phonenumber", columnList = "phoneNumber"),
+                @Index(name = "idx_contact_country_state", columnList = "country, state"),
+                @Index(name = "idx_contact_state", columnList = "state"),
+                @Index(name = "idx_contact_addressbook_surname", columnList = "addressBookId, surName"),
+                @Index(name = "idx_contact_addressbook_firstname", columnList = "addressBookId, firstName"),
+                @Index(name = "idx_contact_addressbook_syncversion", columnList = "addressBookId, syncVersion, id"),
+                @Index(name = "idx_contact_normalizedemail", columnList = "normalizedEmail"),
+                @Index(name = "idx_contact_surnamekey_country", columnList = "surnameKey, country, firstName"),
+                @Index(name = "idx_contact_phonee164", columnList = "phoneE164")
+        },
+        uniqueConstraints = @UniqueConstraint(name = "uk_contact_addressbook_email", columnNames = {"addressBookId", "email"}))
 public class Contact extends BaseModel {
 
     private String firstName;
@@ -33,6 +50,22 @@ public class Contact extends BaseModel {
     @JoinColumn(name = "addressBookId")
     private AddressBook addressBook;
 
+    // Content version of the AddressBook when the Contact was last written, for delta sync
+    @JsonIgnore
+    private long syncVersion;
+
+    // Email in lower case, to find duplicates
+    @JsonIgnore
+    private String normalizedEmail;
+
+    // Soundex of the surname, to find duplicates
+    @JsonIgnore
+    private String surnameKey;
+
+    // Phone number in E.164 format, null if it is not a valid number
+    @JsonIgnore
+    private String phoneE164;
+
 
     public String getFirstName() {
         return firstName;
@@ -100,6 +133,38 @@ public class Contact extends BaseModel {
         this.country = country;
     }
 
+    public long getSyncVersion() {
+        return syncVersion;
+    }
+
+    public void setSyncVersion(long syncVersion) {
+        this.syncVersion = syncVersion;
+    }
+
+    public String getNormalizedEmail() {
+        return normalizedEmail;
+    }
+
+    public void setNormalizedEmail(String normalizedEmail) {
+        this.normalizedEmail = normalizedEmail;
+    }
+
+    public String getSurnameKey() {
+        return surnameKey;
+    }
+
+    public void setSurnameKey(String surnameKey) {
+        this.surnameKey = surnameKey;
+    }
+
+    public String getPhoneE164() {
+        return phoneE164;
+    }
+
+    public void setPhoneE164(String phoneE164) {
+        this.phoneE164 = phoneE164;
+    }
+
 
     @Override
     public boolean equals(Object o) {
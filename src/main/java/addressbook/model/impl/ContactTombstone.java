@@ -0,0 +1,71 @@
+package addressbook.model.impl;
+
+
+import addressbook.model.BaseModel;
+import addressbook.model.id.UuidStorageTypeContributor;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Record of a Contact removed from an AddressBook, either deleted or moved to another AddressBook, so delta sync can
+ * report it. Tombstones are deleted with their AddressBook, or once older than the retention of
+ * {@link addressbook.service.addressbook.jpaimpl.ContactTombstonePurger}.
+ *
+ */
+@Entity
+@Table(name = "ContactTombstone",
+        indexes = @Index(name = "idx_tombstone_addressbook_syncversion", columnList = "addressBookId, syncVersion"))
+public class ContactTombstone extends BaseModel {
+
+    @Type(type = UuidStorageTypeContributor.TYPE_NAME)
+    private UUID contactId;
+
+    @ManyToOne
+    @JoinColumn(name = "addressBookId")
+    private AddressBook addressBook;
+
+    // Content version of the AddressBook when the Contact was removed
+    private long syncVersion;
+
+    private Instant deletedAt;
+
+
+    public UUID getContactId() {
+        return contactId;
+    }
+
+    public void setContactId(UUID contactId) {
+        this.contactId = contactId;
+    }
+
+    public AddressBook getAddressBook() {
+        return addressBook;
+    }
+
+    public void setAddressBook(AddressBook addressBook) {
+        this.addressBook = addressBook;
+    }
+
+    public long getSyncVersion() {
+        return syncVersion;
+    }
+
+    public void setSyncVersion(long syncVersion) {
+        this.syncVersion = syncVersion;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(Instant deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+}
@@ -0,0 +1,22 @@
+package addressbook.model.view;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Read only projection of an AddressBook together with the number of Contacts in it
+ *
+ */
+public class AddressBookSummary extends AddressBookView {
+
+    private final long contactCount;
+
+    public AddressBookSummary(UUID id, String name, Instant lastModified, long contactCount) {
+        super(id, name, lastModified);
+        this.contactCount = contactCount;
+    }
+
+    public long getContactCount() {
+        return contactCount;
+    }
+}
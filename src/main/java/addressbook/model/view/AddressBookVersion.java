@@ -0,0 +1,35 @@
+package addressbook.model.view;
+
+import java.util.UUID;
+
+/**
+ * Versions of an AddressBook. The version changes with the AddressBook itself, the content version changes whenever
+ * one of its Contacts is created, updated, moved or deleted.
+ *
+ */
+public class AddressBookVersion {
+
+    private final UUID id;
+
+    private final long version;
+
+    private final long contentVersion;
+
+    public AddressBookVersion(UUID id, Long version, long contentVersion) {
+        this.id = id;
+        this.version = version == null ? 0 : version;
+        this.contentVersion = contentVersion;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getContentVersion() {
+        return contentVersion;
+    }
+}
@@ -0,0 +1,35 @@
+package addressbook.model.view;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Read only projection of an AddressBook, serialized the same way as the entity
+ *
+ */
+public class AddressBookView {
+
+    private final UUID id;
+
+    private final String name;
+
+    private final Instant lastModified;
+
+    public AddressBookView(UUID id, String name, Instant lastModified) {
+        this.id = id;
+        this.name = name;
+        this.lastModified = lastModified;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+}
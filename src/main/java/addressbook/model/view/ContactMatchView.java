@@ -0,0 +1,64 @@
+package addressbook.model.view;
+
+import java.util.UUID;
+
+/**
+ * Read only projection of the fields of a Contact compared to find duplicates
+ *
+ */
+public class ContactMatchView {
+
+    private final UUID id;
+
+    private final String firstName;
+
+    private final String surName;
+
+    private final String normalizedEmail;
+
+    private final String surnameKey;
+
+    // E.164 format, null when the phone number is missing or invalid
+    private final String phoneE164;
+
+    private final String country;
+
+    public ContactMatchView(UUID id, String firstName, String surName, String normalizedEmail, String surnameKey,
+                            String phoneE164, String country) {
+        this.id = id;
+        this.firstName = firstName;
+        this.surName = surName;
+        this.normalizedEmail = normalizedEmail;
+        this.surnameKey = surnameKey;
+        this.phoneE164 = phoneE164;
+        this.country = country;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getSurName() {
+        return surName;
+    }
+
+    public String getNormalizedEmail() {
+        return normalizedEmail;
+    }
+
+    public String getSurnameKey() {
+        return surnameKey;
+    }
+
+    public String getPhoneE164() {
+        return phoneE164;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+}
@@ -0,0 +1,41 @@
+package addressbook.model.view;
+
+import java.util.UUID;
+
+/**
+ * Read only projection of the naming fields of a Contact
+ *
+ */
+public class ContactNameView {
+
+    private final UUID id;
+
+    private final UUID addressBookId;
+
+    private final String firstName;
+
+    private final String surName;
+
+    public ContactNameView(UUID id, UUID addressBookId, String firstName, String surName) {
+        this.id = id;
+        this.addressBookId = addressBookId;
+        this.firstName = firstName;
+        this.surName = surName;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getAddressBookId() {
+        return addressBookId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getSurName() {
+        return surName;
+    }
+}
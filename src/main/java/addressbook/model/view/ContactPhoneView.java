@@ -0,0 +1,48 @@
+package addressbook.model.view;
+
+import java.util.UUID;
+
+/**
+ * Read only projection of the phone fields of a Contact
+ *
+ */
+public class ContactPhoneView {
+
+    private final UUID id;
+
+    private final UUID addressBookId;
+
+    private final String phoneNumber;
+
+    private final String country;
+
+    private final String phoneE164;
+
+    public ContactPhoneView(UUID id, UUID addressBookId, String phoneNumber, String country, String phoneE164) {
+        this.id = id;
+        this.addressBookId = addressBookId;
+        this.phoneNumber = phoneNumber;
+        this.country = country;
+        this.phoneE164 = phoneE164;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getAddressBookId() {
+        return addressBookId;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public String getPhoneE164() {
+        return phoneE164;
+    }
+}
@@ -0,0 +1,70 @@
+package addressbook.model.view;
+
+import java.util.UUID;
+
+/**
+ * Read only projection of a Contact, serialized the same way as the entity
+ *
+ */
+public class ContactView {
+
+    private final UUID id;
+
+    private final String firstName;
+
+    private final String middleName;
+
+    private final String surName;
+
+    private final String phoneNumber;
+
+    private final String email;
+
+    private final String state;
+
+    private final String country;
+
+    public ContactView(UUID id, String firstName, String middleName, String surName, String phoneNumber,
+                       String email, String state, String country) {
+        this.id = id;
+        this.firstName = firstName;
+        this.middleName = middleName;
+        this.surName = surName;
+        this.phoneNumber = phoneNumber;
+        this.email = email;
+        this.state = state;
+        this.country = country;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getMiddleName() {
+        return middleName;
+    }
+
+    public String getSurName() {
+        return surName;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+}
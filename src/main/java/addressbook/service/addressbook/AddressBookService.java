@@ -2,11 +2,19 @@ package addressbook.service.addressbook;
 
 import addressbook.model.impl.AddressBook;
 import addressbook.model.impl.Contact;
-
+import addressbook.model.view.AddressBookSummary;
+import addressbook.model.view.AddressBookVersion;
+import addressbook.model.view.AddressBookView;
+import addressbook.service.addressbook.autocomplete.ContactSuggestion;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 
 /**
@@ -28,7 +36,46 @@ public interface AddressBookService {
      *
      * @return
      */
-    List<AddressBook> list();
+    List<AddressBookView> list();
+
+    /**
+     * Return {@link AddressBookSummary} with matching id.
+     *
+     * @param id
+     * @return
+     */
+    Optional<AddressBookSummary> getSummary(UUID id);
+
+    /**
+     * Return All {@link AddressBookSummary}
+     *
+     * @return
+     */
+    List<AddressBookSummary> listSummaries();
+
+    /**
+     * Return the {@link AddressBookVersion} of the AddressBook with matching id. The AddressBook itself is not loaded
+     *
+     * @param id
+     * @return
+     */
+    Optional<AddressBookVersion> getVersion(UUID id);
+
+    /**
+     * Return the version of the {@link Contact} with matching id. The Contact itself is not loaded
+     *
+     * @param id
+     * @return
+     */
+    Optional<Long> getContactVersion(UUID id);
+
+    /**
+     * Return the Id of the AddressBook the {@link Contact} with matching id belongs to. The Contact itself is not loaded
+     *
+     * @param id
+     * @return
+     */
+    Optional<UUID> getContactAddressBookId(UUID id);
 
     /**
      * Create a new addressbook
@@ -40,6 +87,16 @@ public interface AddressBookService {
 
     void create(Contact contact);
 
+    /**
+     * Import Contacts into an existing AddressBook in bulk. Rows failing validation are reported in the result and
+     * do not stop the import. The input is consumed lazily, so it can be streamed from the caller.
+     *
+     * @param addressBookId
+     * @param contacts
+     * @return
+     */
+    BulkImportResult importContacts(UUID addressBookId, Iterator<Contact> contacts);
+
     /**
      * Update an exist AddressBook with given ID
      *
@@ -48,6 +105,16 @@ public interface AddressBookService {
      */
     void update(UUID id, AddressBook addressBook);
 
+    /**
+     * Update only the given fields of an exist AddressBook, following JSON Merge Patch. A null value clears the field.
+     * The update only applies at the expected version, when it is not null
+     *
+     * @param id
+     * @param changes field name to new value
+     * @param expectedVersion
+     */
+    void patch(UUID id, Map<String, String> changes, Long expectedVersion);
+
     /**
      * Return Contact with matching Id
      *
@@ -57,12 +124,68 @@ public interface AddressBookService {
     Optional<Contact> getContact(UUID id);
 
     /**
-     * Return all available contact in unique dataset
+     * Return one page of available contact in unique dataset, contacts are unique by email and ordered by email.
+     *
+     * @param next token returned with the previous page, null for the first page
+     * @param limit maximum number of contact in the page
+     * @return
+     */
+    ContactPage getAllUniqueContact(String next, int limit);
+
+
+    /**
+     * Return a page of Contact matching the criteria. {@link addressbook.service.exception.InvalidException} will be
+     * thrown if no filter is given or the page is sorted on a field that cannot be searched
+     *
+     * @param criteria
+     * @param pageable
+     * @return
+     */
+    Page<Contact> searchContacts(ContactSearchCriteria criteria, Pageable pageable);
+
+    /**
+     * Return up to limit Contacts of the AddressBook whose first name, surname or full name start with the prefix.
+     * Matching ignores case and diacritics
+     *
+     * @param addressBookId
+     * @param prefix
+     * @param limit
+     * @return
+     */
+    List<ContactSuggestion> autocomplete(UUID addressBookId, String prefix, int limit);
+
+    /**
+     * Return the Ids of the Contacts having the given phone number, in any AddressBook. A number without international
+     * prefix is read as a number of the given country. {@link addressbook.service.exception.InvalidException} will be
+     * thrown if the number is not valid
      *
+     * @param phoneNumber
+     * @param country
      * @return
      */
-    Set<Contact> getAllUniqueContact();
+    List<UUID> lookupPhoneNumber(String phoneNumber, String country);
 
+    /**
+     * Pass every Contact of the AddressBook to the consumer, one at a time as they are read from the DataStore.
+     * {@link addressbook.service.exception.NotFoundException} will be thrown if the AddressBook doesn't exist
+     *
+     * @param addressBookId
+     * @param consumer
+     */
+    void exportContacts(UUID addressBookId, Consumer<Contact> consumer);
+
+    /**
+     * Return at most the given number of Contacts of the AddressBook changed since the sync token, the Ids of those
+     * removed, and the token to pass next time. Every Contact is returned when no token is given. When more Contacts
+     * are left, the token resumes after the last one returned.
+     * {@link addressbook.service.exception.NotFoundException} will be thrown if the AddressBook doesn't exist
+     *
+     * @param addressBookId
+     * @param since token returned by the previous call, null for a full sync
+     * @param limit
+     * @return
+     */
+    ContactChanges getContactChanges(UUID addressBookId, String since, int limit);
 
     /**
      * Update Contact with matching Id, using given Pojo data
@@ -72,6 +195,16 @@ public interface AddressBookService {
      */
     void update(UUID id, Contact contact);
 
+    /**
+     * Update only the given fields of a Contact, following JSON Merge Patch. A null value clears the field. The
+     * update only applies at the expected version, when it is not null
+     *
+     * @param id
+     * @param changes field name to new value
+     * @param expectedVersion
+     */
+    void patchContact(UUID id, Map<String, String> changes, Long expectedVersion);
+
 
     void delete (UUID id);
 
@@ -0,0 +1,68 @@
+package addressbook.service.addressbook;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk Contact import. Rows are numbered from 0 in the order they are read from the input. Only the first
+ * {@link #MAX_REPORTED_ERRORS} rejected rows are listed, but all of them are counted.
+ *
+ */
+public class BulkImportResult {
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private int imported;
+
+    private int rejected;
+
+    private final List<RowError> errors = new ArrayList<>();
+
+    public void accept(int count) {
+        imported += count;
+    }
+
+    public void reject(int row, String message) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(row, message));
+        }
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+
+    /**
+     * Reason a single row was not imported
+     *
+     */
+    public static class RowError {
+
+        private final int row;
+
+        private final String message;
+
+        public RowError(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
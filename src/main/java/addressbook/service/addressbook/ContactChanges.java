@@ -0,0 +1,50 @@
+package addressbook.service.addressbook;
+
+import addressbook.model.impl.Contact;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Contacts of an AddressBook changed since a sync token, and the Ids of those removed from it. The same change can
+ * be reported again with the next token, applying it twice has no effect. When more Contacts are left, the next
+ * token resumes after the last one of this page
+ *
+ */
+public class ContactChanges {
+
+    private final List<Contact> contacts;
+
+    private final List<UUID> deleted;
+
+    // Opaque token to pass back to fetch the following changes
+    private final String next;
+
+    // More Contacts are left to fetch with the next token
+    private final boolean more;
+
+    public ContactChanges(List<Contact> contacts, List<UUID> deleted, String next, boolean more) {
+        this.contacts = contacts;
+        this.deleted = deleted;
+        this.next = next;
+        this.more = more;
+    }
+
+    public List<Contact> getContacts() {
+        return contacts;
+    }
+
+    public List<UUID> getDeleted() {
+        return deleted;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    @JsonProperty("hasMore")
+    public boolean hasMore() {
+        return more;
+    }
+}
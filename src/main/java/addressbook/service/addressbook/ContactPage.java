@@ -0,0 +1,30 @@
+package addressbook.service.addressbook;
+
+import addressbook.model.view.ContactView;
+
+import java.util.List;
+
+/**
+ * One page of unique Contact. The next token is null when there is no more page to read
+ *
+ */
+public class ContactPage {
+
+    private final List<ContactView> contacts;
+
+    // Opaque token to pass back to fetch the following page
+    private final String next;
+
+    public ContactPage(List<ContactView> contacts, String next) {
+        this.contacts = contacts;
+        this.next = next;
+    }
+
+    public List<ContactView> getContacts() {
+        return contacts;
+    }
+
+    public String getNext() {
+        return next;
+    }
+}
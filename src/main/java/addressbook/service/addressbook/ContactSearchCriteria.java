@@ -0,0 +1,105 @@
+package addressbook.service.addressbook;
+
+import java.util.UUID;
+
+/**
+ * Filters of a Contact search. Names are matched by prefix, the other fields by equality. Fields left null or blank are
+ * not filtered on, except name prefixes, which match every name when blank and are rejected by the search.
+ *
+ */
+public class ContactSearchCriteria {
+
+    private String firstName;
+
+    private String surName;
+
+    private String email;
+
+    private String phoneNumber;
+
+    private String country;
+
+    private String state;
+
+    // Limit the search to one AddressBook
+    private UUID addressBookId;
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getSurName() {
+        return surName;
+    }
+
+    public void setSurName(String surName) {
+        this.surName = surName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = blankToNull(email);
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = blankToNull(phoneNumber);
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = blankToNull(country);
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = blankToNull(state);
+    }
+
+    public UUID getAddressBookId() {
+        return addressBookId;
+    }
+
+    public void setAddressBookId(UUID addressBookId) {
+        this.addressBookId = addressBookId;
+    }
+
+    /**
+     * @return true when no filter is set
+     */
+    public boolean isEmpty() {
+        return firstName == null && surName == null && email == null && phoneNumber == null
+                && country == null && state == null && addressBookId == null;
+    }
+
+    /**
+     * @return true when a name prefix is given but blank
+     */
+    public boolean hasBlankPrefix() {
+        return isBlank(firstName) || isBlank(surName);
+    }
+
+    private static boolean isBlank(String value) {
+        return value != null && value.trim().isEmpty();
+    }
+
+    private static String blankToNull(String value) {
+        return isBlank(value) ? null : value;
+    }
+}
@@ -0,0 +1,35 @@
+package addressbook.service.addressbook;
+
+import addressbook.service.exception.InvalidException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encode and decode the opaque token handed to client for keyset paging. The token carries the last key of the
+ * previous page, so caller should never rely on its content.
+ *
+ */
+public final class PageToken {
+
+    private PageToken() {
+    }
+
+    public static String encode(String lastKey) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token. {@link InvalidException} will be thrown if the token is malformed
+     *
+     * @param token
+     * @return
+     */
+    public static String decode(String token) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidException(String.format("Invalid page token [%s]", token));
+        }
+    }
+}
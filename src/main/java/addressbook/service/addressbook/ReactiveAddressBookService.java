@@ -0,0 +1,117 @@
+package addressbook.service.addressbook;
+
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.model.view.AddressBookSummary;
+import addressbook.model.view.AddressBookView;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+
+/**
+ * Non-blocking counterpart of {@link AddressBookService}. Single results are empty when nothing is found, failures
+ * are signalled with the same exceptions as {@link AddressBookService}.
+ *
+ */
+public interface ReactiveAddressBookService {
+
+    /**
+     * Return {@link AddressBook} with matching id.
+     *
+     * @param id
+     * @return
+     */
+    Mono<AddressBook> get(UUID id);
+
+    /**
+     * Return All {@link AddressBook}
+     *
+     * @return
+     */
+    Flux<AddressBookView> list();
+
+    /**
+     * Return {@link AddressBookSummary} with matching id.
+     *
+     * @param id
+     * @return
+     */
+    Mono<AddressBookSummary> getSummary(UUID id);
+
+    /**
+     * Return All {@link AddressBookSummary}
+     *
+     * @return
+     */
+    Flux<AddressBookSummary> listSummaries();
+
+    /**
+     * Create a new addressbook
+     *
+     * @param addressBook
+     * @return Id of the created AddressBook
+     */
+    Mono<UUID> create(AddressBook addressBook);
+
+    /**
+     * Update an exist AddressBook with given ID, at the version carried by the given AddressBook if any
+     *
+     * @param id
+     * @param addressBook
+     * @return
+     */
+    Mono<Void> update(UUID id, AddressBook addressBook);
+
+    /**
+     * Delete an AddressBook together with its Contacts
+     *
+     * @param id
+     * @return
+     */
+    Mono<Void> delete(UUID id);
+
+    /**
+     * Return {@link Contact} with matching id.
+     *
+     * @param id
+     * @return
+     */
+    Mono<Contact> getContact(UUID id);
+
+    /**
+     * Stream all Contacts of an AddressBook. Rows are read from DB as they are requested downstream
+     *
+     * @param addressBookId
+     * @return
+     */
+    Flux<Contact> getContacts(UUID addressBookId);
+
+    /**
+     * Create a new Contact in an AddressBook
+     *
+     * @param addressBookId
+     * @param contact
+     * @return Id of the created Contact
+     */
+    Mono<UUID> create(UUID addressBookId, Contact contact);
+
+    /**
+     * Update a Contact and move it to given AddressBook, at the version carried by the given Contact if any
+     *
+     * @param addressBookId
+     * @param id
+     * @param contact
+     * @return
+     */
+    Mono<Void> update(UUID addressBookId, UUID id, Contact contact);
+
+    /**
+     * Delete a Contact
+     *
+     * @param id
+     * @return
+     */
+    Mono<Void> deleteContact(UUID id);
+}
@@ -0,0 +1,34 @@
+package addressbook.service.addressbook;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defer changes to in memory state until the transaction writing the matching rows commits, so a rolled back write
+ * leaves no trace and readers never see a row before it is committed.
+ *
+ */
+public final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * Run an action once the current transaction commits, or at once when no transaction is active. The action is
+     * dropped if the transaction rolls back
+     *
+     * @param action
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
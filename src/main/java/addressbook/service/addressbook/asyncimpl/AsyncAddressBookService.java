@@ -0,0 +1,172 @@
+package addressbook.service.addressbook.asyncimpl;
+
+import addressbook.dao.replica.ReplicaContext;
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.model.view.AddressBookSummary;
+import addressbook.model.view.AddressBookVersion;
+import addressbook.model.view.AddressBookView;
+import addressbook.service.addressbook.AddressBookService;
+import addressbook.service.addressbook.ContactChanges;
+import addressbook.service.addressbook.ContactPage;
+import addressbook.service.addressbook.ContactSearchCriteria;
+import addressbook.service.addressbook.autocomplete.ContactSuggestion;
+import addressbook.service.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+
+/**
+ * Run the operations of another {@link AddressBookService} on a bounded executor, so the calling thread never waits
+ * on the DB. When the executor is saturated, the call fails fast with {@link ServiceUnavailableException} instead of
+ * queuing without limit. Rejected calls are counted by the '{@value #REJECTED_NAME}' counter.
+ *
+ */
+public class AsyncAddressBookService {
+
+    public static final String REJECTED_NAME = "addressbook.async.rejected";
+
+    private final AddressBookService delegate;
+
+    private final ExecutorService executor;
+
+    private final Counter rejected;
+
+    public AsyncAddressBookService(AddressBookService delegate, ExecutorService executor, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.rejected = Counter.builder(REJECTED_NAME)
+                .description("Calls to AddressBookService rejected because the executor is saturated")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Optional<AddressBook>> get(UUID id) {
+        return supply(() -> delegate.get(id));
+    }
+
+    public CompletableFuture<List<AddressBookView>> list() {
+        return supply(delegate::list);
+    }
+
+    public CompletableFuture<Optional<AddressBookSummary>> getSummary(UUID id) {
+        return supply(() -> delegate.getSummary(id));
+    }
+
+    public CompletableFuture<List<AddressBookSummary>> listSummaries() {
+        return supply(delegate::listSummaries);
+    }
+
+    public CompletableFuture<Optional<AddressBookVersion>> getVersion(UUID id) {
+        return supply(() -> delegate.getVersion(id));
+    }
+
+    public CompletableFuture<Optional<Long>> getContactVersion(UUID id) {
+        return supply(() -> delegate.getContactVersion(id));
+    }
+
+    public CompletableFuture<Void> create(AddressBook addressBook) {
+        return run(() -> delegate.create(addressBook));
+    }
+
+    public CompletableFuture<Void> create(Contact contact) {
+        return run(() -> delegate.create(contact));
+    }
+
+    public CompletableFuture<Void> update(UUID id, AddressBook addressBook) {
+        return run(() -> delegate.update(id, addressBook));
+    }
+
+    public CompletableFuture<Void> patch(UUID id, Map<String, String> changes, Long expectedVersion) {
+        return run(() -> delegate.patch(id, changes, expectedVersion));
+    }
+
+    public CompletableFuture<Optional<Contact>> getContact(UUID id) {
+        return supply(() -> delegate.getContact(id));
+    }
+
+    public CompletableFuture<ContactPage> getAllUniqueContact(String next, int limit) {
+        return supply(() -> delegate.getAllUniqueContact(next, limit));
+    }
+
+    public CompletableFuture<Page<Contact>> searchContacts(ContactSearchCriteria criteria, Pageable pageable) {
+        return supply(() -> delegate.searchContacts(criteria, pageable));
+    }
+
+    public CompletableFuture<List<ContactSuggestion>> autocomplete(UUID addressBookId, String prefix, int limit) {
+        return supply(() -> delegate.autocomplete(addressBookId, prefix, limit));
+    }
+
+    public CompletableFuture<List<UUID>> lookupPhoneNumber(String phoneNumber, String country) {
+        return supply(() -> delegate.lookupPhoneNumber(phoneNumber, country));
+    }
+
+    public CompletableFuture<ContactChanges> getContactChanges(UUID addressBookId, String since, int limit) {
+        return supply(() -> delegate.getContactChanges(addressBookId, since, limit));
+    }
+
+    /**
+     * Return all Contacts of an AddressBook, collected from {@link AddressBookService#exportContacts}
+     *
+     * @param addressBookId
+     * @return
+     */
+    public CompletableFuture<List<Contact>> getContacts(UUID addressBookId) {
+        return supply(() -> {
+            List<Contact> contacts = new ArrayList<>();
+            delegate.exportContacts(addressBookId, contacts::add);
+            return contacts;
+        });
+    }
+
+    public CompletableFuture<Void> update(UUID id, Contact contact) {
+        return run(() -> delegate.update(id, contact));
+    }
+
+    public CompletableFuture<Void> patchContact(UUID id, Map<String, String> changes, Long expectedVersion) {
+        return run(() -> delegate.patchContact(id, changes, expectedVersion));
+    }
+
+    public CompletableFuture<Void> delete(UUID id) {
+        return run(() -> delegate.delete(id));
+    }
+
+    public CompletableFuture<Void> deleteContact(UUID id) {
+        return run(() -> delegate.deleteContact(id));
+    }
+
+    /**
+     * Stop accepting calls. Calls already queued are still run
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> operation) {
+        try {
+            // The read-your-writes tracking of the request follows the call
+            return CompletableFuture.supplyAsync(ReplicaContext.wrap(operation), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceUnavailableException("AddressBook service is saturated, retry later");
+        }
+    }
+
+    private CompletableFuture<Void> run(Runnable operation) {
+        return supply(() -> {
+            operation.run();
+            return null;
+        });
+    }
+}
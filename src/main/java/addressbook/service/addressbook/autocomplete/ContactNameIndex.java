@@ -0,0 +1,285 @@
+package addressbook.service.addressbook.autocomplete;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+
+/**
+ * In memory prefix index over Contact names, one sorted map per AddressBook. Each Contact is indexed under its first
+ * name, its surname and its full name, folded to lower case without diacritics, so 'jo', 'Jö' and 'doe j' all find
+ * 'John Doe'. A lookup is a range scan of the sorted map starting at the prefix, it costs O(log n) plus the number of
+ * suggestions returned.
+ *
+ * Keys pair the folded name with the Id of the Contact, the Id object being shared with its suggestion, and names are
+ * interned, so Contacts sharing a first name or surname share its string. A Contact takes about 400 bytes of heap with
+ * names of usual length, mostly the skip list nodes of its three keys and its full name, so a million Contacts take
+ * about 400 MB.
+ *
+ * Suggestions are read without locking. Writes are serialized, and a replaced Contact has its new keys added before
+ * its previous ones are removed, so a concurrent lookup always finds it under either.
+ *
+ * The index is kept in sync by the service writing Contacts, it is not aware of changes made to DB by other means.
+ *
+ */
+@Component
+@Profile("!reactive")
+public class ContactNameIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private static final Interner<String> NAMES = Interners.newWeakInterner();
+
+    // Replaced as a whole when loaded
+    private volatile Map<UUID, NavigableMap<NameKey, ContactSuggestion>> addressBooks = new ConcurrentHashMap<>();
+
+    // Contact Id to what it is indexed under, so a Contact can be removed knowing its Id only, guarded by this
+    private Map<UUID, IndexedContact> contacts = new HashMap<>();
+
+    // Writes made while loading, replayed on the loaded content, guarded by this
+    private List<Consumer<ContactNameIndex>> pendingWrites;
+
+    /**
+     * Add a Contact to the index, or replace it if it is already indexed
+     *
+     * @param id
+     * @param addressBookId
+     * @param firstName
+     * @param surName
+     */
+    public void put(UUID id, UUID addressBookId, String firstName, String surName) {
+        write(index -> index.putNow(id, addressBookId, firstName, surName));
+    }
+
+    public void remove(UUID id) {
+        write(index -> index.removeNow(id));
+    }
+
+    public void removeAddressBook(UUID addressBookId) {
+        write(index -> index.removeAddressBookNow(addressBookId));
+    }
+
+    /**
+     * Replace the content of the index by what the loader puts into an empty index. Suggestions are served from the
+     * current content until then. Writes made meanwhile are applied to the current content and replayed on the
+     * loaded one before it replaces it, so a write committed after the loader read DB is not lost
+     *
+     * @param loader
+     */
+    public void load(Consumer<ContactNameIndex> loader) {
+        synchronized (this) {
+            if (pendingWrites != null) {
+                throw new IllegalStateException("Contact name index is already loading");
+            }
+            pendingWrites = new ArrayList<>();
+        }
+
+        ContactNameIndex loaded = new ContactNameIndex();
+        boolean completed = false;
+        try {
+            loader.accept(loaded);
+            completed = true;
+        } finally {
+            synchronized (this) {
+                if (completed) {
+                    pendingWrites.forEach(change -> change.accept(loaded));
+                    contacts = loaded.contacts;
+                    addressBooks = loaded.addressBooks;
+                }
+                pendingWrites = null;
+            }
+        }
+    }
+
+    /**
+     * Return the AddressBook a Contact is indexed under
+     *
+     * @param id
+     * @return
+     */
+    public synchronized Optional<UUID> getAddressBookId(UUID id) {
+        IndexedContact indexed = contacts.get(id);
+        return indexed == null ? Optional.empty() : Optional.of(indexed.addressBookId);
+    }
+
+    public synchronized int size() {
+        return contacts.size();
+    }
+
+    /**
+     * Return up to limit Contacts of the AddressBook having a name starting with the prefix, in name order
+     *
+     * @param addressBookId
+     * @param prefix
+     * @param limit
+     * @return
+     */
+    public List<ContactSuggestion> suggest(UUID addressBookId, String prefix, int limit) {
+        NavigableMap<NameKey, ContactSuggestion> names = addressBooks.get(addressBookId);
+        String foldedPrefix = fold(prefix);
+        if (names == null || foldedPrefix.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // A Contact can match on more than one of its names, keep it once
+        Map<UUID, ContactSuggestion> suggestions = new LinkedHashMap<>();
+        NavigableMap<NameKey, ContactSuggestion> matches = names.subMap(
+                new NameKey(foldedPrefix, null), true, new NameKey(foldedPrefix + Character.MAX_VALUE, null), false);
+        for (ContactSuggestion suggestion : matches.values()) {
+            suggestions.putIfAbsent(suggestion.getId(), suggestion);
+            if (suggestions.size() == limit) {
+                break;
+            }
+        }
+        return new ArrayList<>(suggestions.values());
+    }
+
+    /**
+     * Fold a name for case and diacritics insensitive matching
+     *
+     * @param name
+     * @return
+     */
+    public static String fold(String name) {
+        String decomposed = Normalizer.normalize(name.trim(), Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private synchronized void write(Consumer<ContactNameIndex> change) {
+        change.accept(this);
+        if (pendingWrites != null) {
+            pendingWrites.add(change);
+        }
+    }
+
+    private void putNow(UUID id, UUID addressBookId, String firstName, String surName) {
+        ContactSuggestion suggestion = new ContactSuggestion(id, intern(firstName), intern(surName));
+        List<NameKey> keys = new ArrayList<>(3);
+        addKey(keys, firstName, id);
+        addKey(keys, surName, id);
+        if (firstName != null && surName != null) {
+            addKey(keys, firstName + " " + surName, id);
+        }
+
+        NavigableMap<NameKey, ContactSuggestion> names =
+                addressBooks.computeIfAbsent(addressBookId, key -> new ConcurrentSkipListMap<>());
+        keys.forEach(key -> names.put(key, suggestion));
+
+        IndexedContact previous = contacts.put(id, new IndexedContact(addressBookId, keys));
+        if (previous != null) {
+            NavigableMap<NameKey, ContactSuggestion> previousNames = addressBooks.get(previous.addressBookId);
+            if (previousNames != null) {
+                previous.keys.stream()
+                        .filter(key -> previousNames != names || !keys.contains(key))
+                        .forEach(previousNames::remove);
+            }
+        }
+    }
+
+    private void removeNow(UUID id) {
+        IndexedContact indexed = contacts.remove(id);
+        if (indexed != null) {
+            NavigableMap<NameKey, ContactSuggestion> names = addressBooks.get(indexed.addressBookId);
+            if (names != null) {
+                indexed.keys.forEach(names::remove);
+            }
+        }
+    }
+
+    private void removeAddressBookNow(UUID addressBookId) {
+        NavigableMap<NameKey, ContactSuggestion> names = addressBooks.remove(addressBookId);
+        if (names != null) {
+            names.values().forEach(suggestion -> contacts.remove(suggestion.getId()));
+        }
+    }
+
+    private static void addKey(List<NameKey> keys, String name, UUID id) {
+        if (name != null) {
+            String folded = fold(name);
+            if (!folded.isEmpty()) {
+                keys.add(new NameKey(intern(folded), id));
+            }
+        }
+    }
+
+    private static String intern(String name) {
+        return name == null ? null : NAMES.intern(name);
+    }
+
+
+    /**
+     * A folded name and the Contact indexed under it, ordered by name then Id. A key without Id sorts before every
+     * key of its name, and is only used as bound of a range
+     */
+    private static class NameKey implements Comparable<NameKey> {
+
+        private final String name;
+
+        private final UUID id;
+
+        private NameKey(String name, UUID id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(NameKey other) {
+            int byName = name.compareTo(other.name);
+            if (byName != 0 || id == other.id) {
+                return byName;
+            }
+            if (id == null || other.id == null) {
+                return id == null ? -1 : 1;
+            }
+            return id.compareTo(other.id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof NameKey)) {
+                return false;
+            }
+            NameKey key = (NameKey) other;
+            return name.equals(key.name) && Objects.equals(id, key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + Objects.hashCode(id);
+        }
+    }
+
+
+    private static class IndexedContact {
+
+        private final UUID addressBookId;
+
+        private final List<NameKey> keys;
+
+        private IndexedContact(UUID addressBookId, List<NameKey> keys) {
+            this.addressBookId = addressBookId;
+            this.keys = keys;
+        }
+    }
+}
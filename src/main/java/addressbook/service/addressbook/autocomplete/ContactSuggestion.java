@@ -0,0 +1,34 @@
+package addressbook.service.addressbook.autocomplete;
+
+import java.util.UUID;
+
+/**
+ * A Contact suggested for a typed name prefix
+ *
+ */
+public class ContactSuggestion {
+
+    private final UUID id;
+
+    private final String firstName;
+
+    private final String surName;
+
+    public ContactSuggestion(UUID id, String firstName, String surName) {
+        this.id = id;
+        this.firstName = firstName;
+        this.surName = surName;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getSurName() {
+        return surName;
+    }
+}
@@ -0,0 +1,281 @@
+package addressbook.service.addressbook.cacheimpl;
+
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.model.view.AddressBookSummary;
+import addressbook.model.view.AddressBookVersion;
+import addressbook.model.view.AddressBookView;
+import addressbook.service.addressbook.AddressBookService;
+import addressbook.service.addressbook.BulkImportResult;
+import addressbook.service.addressbook.ContactChanges;
+import addressbook.service.addressbook.ContactPage;
+import addressbook.service.addressbook.ContactSearchCriteria;
+import addressbook.service.addressbook.autocomplete.ContactSuggestion;
+import com.google.common.cache.Cache;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+
+/**
+ * Read-through cache in front of another {@link AddressBookService}. Single {@link AddressBook} and {@link Contact}
+ * read by Id are cached, everything else is passed to the delegate. Cached entries are invalidated by every write
+ * going through this service, including the AddressBooks on both sides when a Contact is moved.
+ *
+ * Only found entities are cached, so a missing Id is always looked up again. An entity loaded while a write commits is
+ * not kept, as it may predate the write.
+ *
+ */
+public class CachingAddressBookService implements AddressBookService {
+
+    private final AddressBookService delegate;
+
+    private final Cache<UUID, AddressBook> addressBookCache;
+
+    private final Cache<UUID, Contact> contactCache;
+
+    // Bumped once every write is committed, before its invalidations
+    private final AtomicLong writes = new AtomicLong();
+
+    public CachingAddressBookService(AddressBookService delegate,
+                                     Cache<UUID, AddressBook> addressBookCache,
+                                     Cache<UUID, Contact> contactCache) {
+        this.delegate = delegate;
+        this.addressBookCache = addressBookCache;
+        this.contactCache = contactCache;
+    }
+
+    @Override
+    public Optional<AddressBook> get(UUID id) {
+        AddressBook cached = addressBookCache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long writesBefore = writes.get();
+        Optional<AddressBook> addressBook = delegate.get(id);
+        addressBook.ifPresent(book -> cache(addressBookCache, id, book, writesBefore));
+        return addressBook;
+    }
+
+    @Override
+    public Optional<Contact> getContact(UUID id) {
+        Contact cached = contactCache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long writesBefore = writes.get();
+        Optional<Contact> contact = delegate.getContact(id);
+        contact.ifPresent(found -> cache(contactCache, id, found, writesBefore));
+        return contact;
+    }
+
+    @Override
+    public List<AddressBookView> list() {
+        return delegate.list();
+    }
+
+    @Override
+    public Optional<AddressBookSummary> getSummary(UUID id) {
+        return delegate.getSummary(id);
+    }
+
+    @Override
+    public List<AddressBookSummary> listSummaries() {
+        return delegate.listSummaries();
+    }
+
+    @Override
+    public Optional<AddressBookVersion> getVersion(UUID id) {
+        return delegate.getVersion(id);
+    }
+
+    @Override
+    public Optional<Long> getContactVersion(UUID id) {
+        return delegate.getContactVersion(id);
+    }
+
+    @Override
+    public Optional<UUID> getContactAddressBookId(UUID id) {
+        Contact cached = contactCache.getIfPresent(id);
+        if (cached != null && cached.getAddressBook() != null) {
+            return Optional.ofNullable(cached.getAddressBook().getId());
+        }
+        return delegate.getContactAddressBookId(id);
+    }
+
+    @Override
+    public void create(AddressBook addressBook) {
+        delegate.create(addressBook);
+    }
+
+    @Override
+    public void create(Contact contact) {
+        try {
+            delegate.create(contact);
+        } finally {
+            writes.incrementAndGet();
+            invalidateAddressBook(contact.getAddressBook());
+        }
+    }
+
+    @Override
+    public BulkImportResult importContacts(UUID addressBookId, Iterator<Contact> contacts) {
+        try {
+            return delegate.importContacts(addressBookId, contacts);
+        } finally {
+            writes.incrementAndGet();
+            addressBookCache.invalidate(addressBookId);
+        }
+    }
+
+    @Override
+    public void update(UUID id, AddressBook addressBook) {
+        try {
+            delegate.update(id, addressBook);
+        } finally {
+            writes.incrementAndGet();
+            addressBookCache.invalidate(id);
+        }
+    }
+
+    @Override
+    public void patch(UUID id, Map<String, String> changes, Long expectedVersion) {
+        try {
+            delegate.patch(id, changes, expectedVersion);
+        } finally {
+            writes.incrementAndGet();
+            addressBookCache.invalidate(id);
+        }
+    }
+
+    @Override
+    public ContactPage getAllUniqueContact(String next, int limit) {
+        return delegate.getAllUniqueContact(next, limit);
+    }
+
+    @Override
+    public Page<Contact> searchContacts(ContactSearchCriteria criteria, Pageable pageable) {
+        return delegate.searchContacts(criteria, pageable);
+    }
+
+    @Override
+    public List<ContactSuggestion> autocomplete(UUID addressBookId, String prefix, int limit) {
+        return delegate.autocomplete(addressBookId, prefix, limit);
+    }
+
+    @Override
+    public List<UUID> lookupPhoneNumber(String phoneNumber, String country) {
+        return delegate.lookupPhoneNumber(phoneNumber, country);
+    }
+
+    @Override
+    public void exportContacts(UUID addressBookId, Consumer<Contact> consumer) {
+        delegate.exportContacts(addressBookId, consumer);
+    }
+
+    @Override
+    public ContactChanges getContactChanges(UUID addressBookId, String since, int limit) {
+        return delegate.getContactChanges(addressBookId, since, limit);
+    }
+
+    /**
+     * Update a Contact, then invalidate it together with the AddressBook it is moved from and the one it is moved to.
+     * The previous AddressBook Id is read before the update when the Contact is not cached.
+     *
+     * @param id
+     * @param contact
+     */
+    @Override
+    public void update(UUID id, Contact contact) {
+        Optional<UUID> previousAddressBookId = getContactAddressBookId(id);
+        try {
+            delegate.update(id, contact);
+        } finally {
+            writes.incrementAndGet();
+            contactCache.invalidate(id);
+            previousAddressBookId.ifPresent(addressBookCache::invalidate);
+            invalidateAddressBook(contact.getAddressBook());
+        }
+    }
+
+    /**
+     * Patch a Contact, then invalidate it together with its AddressBook. The AddressBook Id is read before the patch
+     * when the Contact is not cached.
+     *
+     * @param id
+     * @param changes
+     * @param expectedVersion
+     */
+    @Override
+    public void patchContact(UUID id, Map<String, String> changes, Long expectedVersion) {
+        Optional<UUID> previousAddressBookId = getContactAddressBookId(id);
+        try {
+            delegate.patchContact(id, changes, expectedVersion);
+        } finally {
+            writes.incrementAndGet();
+            contactCache.invalidate(id);
+            previousAddressBookId.ifPresent(addressBookCache::invalidate);
+        }
+    }
+
+    /**
+     * Delete an AddressBook, and drop the cached Contacts belonging to it
+     *
+     * @param id
+     */
+    @Override
+    public void delete(UUID id) {
+        try {
+            delegate.delete(id);
+        } finally {
+            writes.incrementAndGet();
+            addressBookCache.invalidate(id);
+            contactCache.asMap().values().removeIf(contact ->
+                    contact.getAddressBook() != null && id.equals(contact.getAddressBook().getId()));
+        }
+    }
+
+    /**
+     * Delete a Contact, then invalidate it together with its AddressBook. The AddressBook Id is read before the
+     * delete when the Contact is not cached.
+     *
+     * @param id
+     */
+    @Override
+    public void deleteContact(UUID id) {
+        Optional<UUID> previousAddressBookId = getContactAddressBookId(id);
+        try {
+            delegate.deleteContact(id);
+        } finally {
+            writes.incrementAndGet();
+            contactCache.invalidate(id);
+            previousAddressBookId.ifPresent(addressBookCache::invalidate);
+        }
+    }
+
+    /**
+     * Cache an entity loaded by Id, unless a write was committed since the load started
+     */
+    private <T> void cache(Cache<UUID, T> cache, UUID id, T entity, long writesBefore) {
+        cache.put(id, entity);
+        if (writes.get() != writesBefore) {
+            // The write may have invalidated the Id before the put
+            cache.invalidate(id);
+        }
+    }
+
+    private void invalidateAddressBook(AddressBook addressBook) {
+        if (addressBook != null && addressBook.getId() != null) {
+            addressBookCache.invalidate(addressBook.getId());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package addressbook.service.addressbook.changefeed;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A committed change of an AddressBook or a Contact. Events are published by the service without sequence, the
+ * {@link ChangeFeed} numbers them in commit order.
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    public enum Entity {
+        ADDRESS_BOOK, CONTACT
+    }
+
+    private final long sequence;
+
+    private final Type type;
+
+    private final Entity entity;
+
+    private final UUID id;
+
+    private final UUID addressBookId;
+
+    // AddressBook a Contact is moved from, null when it stays in the same one
+    private final UUID previousAddressBookId;
+
+    private final Instant timestamp;
+
+    private ChangeEvent(long sequence, Type type, Entity entity, UUID id, UUID addressBookId,
+                        UUID previousAddressBookId, Instant timestamp) {
+        this.sequence = sequence;
+        this.type = type;
+        this.entity = entity;
+        this.id = id;
+        this.addressBookId = addressBookId;
+        this.previousAddressBookId = previousAddressBookId;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Return a change of an AddressBook
+     *
+     * @param type
+     * @param id
+     * @return
+     */
+    public static ChangeEvent addressBook(Type type, UUID id) {
+        return new ChangeEvent(0, type, Entity.ADDRESS_BOOK, id, id, null, Instant.now());
+    }
+
+    /**
+     * Return a change of a Contact
+     *
+     * @param type
+     * @param id
+     * @param addressBookId
+     * @param previousAddressBookId
+     * @return
+     */
+    public static ChangeEvent contact(Type type, UUID id, UUID addressBookId, UUID previousAddressBookId) {
+        UUID movedFrom = previousAddressBookId != null && !previousAddressBookId.equals(addressBookId)
+                ? previousAddressBookId : null;
+        return new ChangeEvent(0, type, Entity.CONTACT, id, addressBookId, movedFrom, Instant.now());
+    }
+
+    /**
+     * Return this change numbered with the given sequence
+     *
+     * @param sequence
+     * @return
+     */
+    public ChangeEvent withSequence(long sequence) {
+        return new ChangeEvent(sequence, type, entity, id, addressBookId, previousAddressBookId, timestamp);
+    }
+
+    /**
+     * Return true if this change concerns the given AddressBook, or if no AddressBook is given
+     *
+     * @param addressBookId
+     * @return
+     */
+    public boolean concerns(UUID addressBookId) {
+        return addressBookId == null
+                || addressBookId.equals(this.addressBookId)
+                || addressBookId.equals(previousAddressBookId);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Entity getEntity() {
+        return entity;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getAddressBookId() {
+        return addressBookId;
+    }
+
+    public UUID getPreviousAddressBookId() {
+        return previousAddressBookId;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+}
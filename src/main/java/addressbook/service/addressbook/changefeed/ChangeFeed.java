@@ -0,0 +1,315 @@
+package addressbook.service.addressbook.changefeed;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Number committed {@link ChangeEvent}s and push them to Server-Sent Events subscribers.
+ *
+ * Events are received once the transaction publishing them commits, or right away outside of a transaction, and are
+ * numbered from 1 in that order. The last {@code addressbook.changes.buffer-size} events are kept in a ring buffer, so
+ * a subscriber reconnecting with Last-Event-ID is sent what it missed. When that is older than the buffer, a 'reset'
+ * event tells the subscriber to read the full state again.
+ *
+ * Each subscriber has its own queue of at most {@code addressbook.changes.subscriber-queue-size} events, drained in
+ * order by a sender thread, so the committing thread never waits for a subscriber. A subscriber is drained by one
+ * thread at a time and threads are started on demand, so a send blocked on a slow client holds that client's thread
+ * only, never one another subscriber waits for. A subscriber falling behind is dropped: when its queue is full, its
+ * queued events are replaced by a 'reset' event after which it is completed, and when a send to it takes longer than
+ * {@code addressbook.changes.send-timeout} it is sent nothing more, its thread ending once the send fails. Sequences
+ * restart from 1 with the application.
+ *
+ */
+@Component
+public class ChangeFeed {
+
+    public static final String CHANGE_EVENT_NAME = "change";
+
+    public static final String RESET_EVENT_NAME = "reset";
+
+    private final ChangeEvent[] events;
+
+    // Sequence of the last event received, guarded by this
+    private long lastSequence;
+
+    private final long timeoutMillis;
+
+    private final int queueSize;
+
+    private final long sendTimeoutNanos;
+
+    private final ThreadPoolExecutor sender;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    public ChangeFeed(@Value("${addressbook.changes.buffer-size:10000}") int bufferSize,
+                      @Value("${addressbook.changes.timeout:30m}") Duration timeout,
+                      @Value("${addressbook.changes.subscriber-queue-size:1000}") int queueSize,
+                      @Value("${addressbook.changes.send-timeout:10s}") Duration sendTimeout) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Change buffer size must be at least 1");
+        }
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("Subscriber queue size must be at least 1");
+        }
+        this.events = new ChangeEvent[bufferSize];
+        this.timeoutMillis = timeout.toMillis();
+        this.queueSize = queueSize;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        // No thread is queued for, so at most one thread per subscriber being sent to
+        this.sender = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 1, TimeUnit.MINUTES,
+                new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("addressbook-changes-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Number a committed change, keep it in the buffer and queue it for the subscribers it concerns. Subscribers
+     * stuck in a send are dropped
+     *
+     * @param change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onChange(ChangeEvent change) {
+        ChangeEvent event = change.withSequence(++lastSequence);
+        events[(int) (event.getSequence() % events.length)] = event;
+
+        long now = System.nanoTime();
+        // Queued under the lock, so each subscriber is sent events in sequence order
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isStalled(now)) {
+                subscriber.close();
+            } else if (event.concerns(subscriber.addressBookId)) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Return the buffered events after the given sequence concerning the given AddressBook, or all of them when no
+     * AddressBook is given. Empty if some events after that sequence are no longer buffered, or if the sequence is
+     * ahead of this feed, which happens after a restart.
+     *
+     * @param lastEventId
+     * @param addressBookId
+     * @return
+     */
+    public synchronized Optional<List<ChangeEvent>> since(long lastEventId, UUID addressBookId) {
+        long oldest = Math.max(1, lastSequence - events.length + 1);
+        if (lastEventId + 1 < oldest || lastEventId > lastSequence) {
+            return Optional.empty();
+        }
+
+        List<ChangeEvent> missed = new ArrayList<>();
+        for (long sequence = lastEventId + 1; sequence <= lastSequence; sequence++) {
+            ChangeEvent event = events[(int) (sequence % events.length)];
+            if (event.concerns(addressBookId)) {
+                missed.add(event);
+            }
+        }
+        return Optional.of(missed);
+    }
+
+    /**
+     * Return the sequence of the last event received
+     *
+     * @return
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Return the number of open subscriptions
+     *
+     * @return
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Subscribe to the changes concerning the given AddressBook, or to all changes when no AddressBook is given. When
+     * the Last-Event-ID is given, the buffered events after it are sent first.
+     *
+     * @param addressBookId
+     * @param lastEventId
+     * @return
+     */
+    public SseEmitter subscribe(UUID addressBookId, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, addressBookId);
+        emitter.onTimeout(emitter::complete);
+        emitter.onCompletion(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        // Under the lock, so no event is received between those missed and the subscription, and missed events are
+        // queued at once, so they overflow the queue when too many rather than as they are sent
+        synchronized (this) {
+            Optional<List<ChangeEvent>> missed = lastEventId == null
+                    ? Optional.of(Collections.emptyList())
+                    : since(lastEventId, addressBookId);
+            synchronized (subscriber) {
+                if (missed.isPresent()) {
+                    missed.get().forEach(subscriber::offer);
+                } else {
+                    subscriber.reset(lastSequence, false);
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+            sender.execute(subscriber.emitter::complete);
+        }
+        sender.shutdown();
+    }
+
+
+    /**
+     * Events queued for a subscriber, sent by at most one sender thread at a time
+     */
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final UUID addressBookId;
+
+        // Events to send, and the reset to send after them if any, guarded by this
+        private final Deque<SseEmitter.SseEventBuilder> queue = new ArrayDeque<>();
+
+        // Complete the subscriber once the queue is sent, guarded by this
+        private boolean completeWhenSent;
+
+        // A sender thread is draining the queue, guarded by this
+        private boolean draining;
+
+        // Start of the send in progress as System.nanoTime(), 0 when none
+        private volatile long sendStartedAt;
+
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, UUID addressBookId) {
+            this.emitter = emitter;
+            this.addressBookId = addressBookId;
+        }
+
+        /**
+         * Queue an event. When the queue is full the subscriber has fallen behind, its queue is replaced by a reset
+         * to the given event, after which it is completed
+         */
+        private synchronized void offer(ChangeEvent event) {
+            if (closed || completeWhenSent) {
+                return;
+            }
+            if (queue.size() >= queueSize) {
+                queue.clear();
+                reset(event.getSequence(), true);
+                return;
+            }
+            queue.add(SseEmitter.event()
+                    .id(String.valueOf(event.getSequence()))
+                    .name(CHANGE_EVENT_NAME)
+                    .data(event, MediaType.APPLICATION_JSON));
+            drainLater();
+        }
+
+        /**
+         * Tell the subscriber it missed events, it should resume from the given sequence after reading the full state
+         */
+        private synchronized void reset(long sequence, boolean complete) {
+            queue.add(SseEmitter.event()
+                    .id(String.valueOf(sequence))
+                    .name(RESET_EVENT_NAME)
+                    .data(""));
+            completeWhenSent = complete;
+            drainLater();
+        }
+
+        private boolean isStalled(long now) {
+            long startedAt = sendStartedAt;
+            return startedAt != 0 && now - startedAt > sendTimeoutNanos;
+        }
+
+        private void close() {
+            closed = true;
+            subscribers.remove(this);
+        }
+
+        private void drainLater() {
+            if (!draining) {
+                draining = true;
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    event = closed ? null : queue.poll();
+                    if (event == null) {
+                        draining = false;
+                        if (completeWhenSent && !closed) {
+                            close();
+                            emitter.complete();
+                        }
+                        return;
+                    }
+                }
+                if (!send(event)) {
+                    close();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return false if the subscriber is gone
+         */
+        private boolean send(SseEmitter.SseEventBuilder event) {
+            sendStartedAt = System.nanoTime();
+            try {
+                emitter.send(event);
+                return true;
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+                return false;
+            } catch (IllegalStateException e) {
+                // Already completed
+                return false;
+            } finally {
+                sendStartedAt = 0;
+                if (closed) {
+                    // Dropped while sending
+                    emitter.complete();
+                }
+            }
+        }
+    }
+}
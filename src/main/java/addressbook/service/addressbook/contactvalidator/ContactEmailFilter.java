@@ -0,0 +1,397 @@
+package addressbook.service.addressbook.contactvalidator;
+
+import addressbook.dao.AddressBookRepository;
+import addressbook.dao.ContactRepository;
+import addressbook.dao.shard.ShardContext;
+import addressbook.dao.shard.ShardResolver;
+import addressbook.model.view.AddressBookSummary;
+import addressbook.service.addressbook.TransactionCallbacks;
+import addressbook.service.addressbook.duplicate.ContactNormalizer;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+
+/**
+ * In memory Bloom filter of the emails of each AddressBook, trimmed and in lower case, so most new emails are known
+ * to be unused without querying DB.
+ *
+ * A filter never misses an email committed to its AddressBook: emails are added once the transaction writing them
+ * commits, and those committed while a filter is rebuilt are added to the rebuilt one. Removed emails cannot be taken
+ * out of a Bloom filter, they are only counted, and a filter is rebuilt from DB every
+ * {@code addressbook.email-filter.rebuild-interval} once too many were removed or it holds more emails than it was
+ * sized for. Filters are built in background once the application is started, until then the DB is always queried.
+ * Each filter is read from the shard of its AddressBook.
+ *
+ * Checks are counted by the '{@value #CHECKS_NAME}' counter tagged with their result. The observed false positive
+ * rate is false_positive / (false_positive + absent).
+ *
+ */
+@Component
+@Profile("!reactive")
+public class ContactEmailFilter {
+
+    public static final String CHECKS_NAME = "addressbook.email.filter.checks";
+
+    public static final String REBUILDS_NAME = "addressbook.email.filter.rebuilds";
+
+    public static final String EXPECTED_FPP_NAME = "addressbook.email.filter.expected.fpp";
+
+    // Filters are sized for at least this many emails, so a small AddressBook can grow before being rebuilt
+    private static final long MIN_EXPECTED_INSERTIONS = 1000;
+
+    // Filters are sized for this many times the emails they are built with
+    private static final int GROWTH_FACTOR = 2;
+
+    // Share of the emails added to a filter that can be removed before it is rebuilt
+    private static final double MAX_STALE_RATIO = 0.2;
+
+    private final ContactRepository contactRepository;
+
+    private final AddressBookRepository addressBookRepository;
+
+    private final ShardResolver shardResolver;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final double fpp;
+
+    private final long rebuildIntervalMillis;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("addressbook-email-filter-%d").setDaemon(true).build());
+
+    private final ConcurrentMap<UUID, AddressBookFilter> filters = new ConcurrentHashMap<>();
+
+    private final Counter absent;
+
+    private final Counter duplicate;
+
+    private final Counter falsePositive;
+
+    private final Counter unfiltered;
+
+    private final Counter rebuilt;
+
+    private final Counter rebuildFailed;
+
+    public ContactEmailFilter(ContactRepository contactRepository,
+                              AddressBookRepository addressBookRepository,
+                              ShardResolver shardResolver,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${addressbook.email-filter.fpp:0.01}") double fpp,
+                              @Value("${addressbook.email-filter.rebuild-interval:10m}") Duration rebuildInterval) {
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("Email filter false positive probability must be between 0 and 1");
+        }
+        this.contactRepository = contactRepository;
+        this.addressBookRepository = addressBookRepository;
+        this.shardResolver = shardResolver;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.fpp = fpp;
+        this.rebuildIntervalMillis = rebuildInterval.toMillis();
+
+        this.absent = checks(meterRegistry, "absent");
+        this.duplicate = checks(meterRegistry, "duplicate");
+        this.falsePositive = checks(meterRegistry, "false_positive");
+        this.unfiltered = checks(meterRegistry, "unfiltered");
+        this.rebuilt = rebuilds(meterRegistry, "success");
+        this.rebuildFailed = rebuilds(meterRegistry, "failure");
+        Gauge.builder(EXPECTED_FPP_NAME, this, ContactEmailFilter::maxExpectedFpp)
+                .description("Highest false positive probability estimated by the email filters for their content")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Build the filters of every AddressBook in background, then check every rebuild interval which ones are stale
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.execute(this::buildAll);
+        executor.scheduleWithFixedDelay(this::rebuildStale, rebuildIntervalMillis, rebuildIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Return true if a Contact of the AddressBook uses the email. The query is only run when the filter of the
+     * AddressBook might contain the email, or when the AddressBook has no filter yet
+     *
+     * @param addressBookId
+     * @param email
+     * @param query checks DB for the email
+     * @return
+     */
+    public boolean exists(UUID addressBookId, String email, BooleanSupplier query) {
+        AddressBookFilter filter = filter(addressBookId);
+        BloomFilter<String> bloomFilter = filter == null ? null : filter.bloomFilter;
+        String key = ContactNormalizer.email(email);
+        if (bloomFilter == null || key == null) {
+            unfiltered.increment();
+            return query.getAsBoolean();
+        }
+        if (!bloomFilter.mightContain(key)) {
+            absent.increment();
+            return false;
+        }
+
+        boolean exists = query.getAsBoolean();
+        (exists ? duplicate : falsePositive).increment();
+        return exists;
+    }
+
+    /**
+     * Add the email of a Contact written to the AddressBook, once the current transaction commits
+     *
+     * @param addressBookId
+     * @param email
+     */
+    public void put(UUID addressBookId, String email) {
+        String key = ContactNormalizer.email(email);
+        if (key != null) {
+            TransactionCallbacks.afterCommit(() -> {
+                AddressBookFilter filter = filter(addressBookId);
+                if (filter != null) {
+                    filter.put(key);
+                }
+            });
+        }
+    }
+
+    /**
+     * Count an email no longer used in the AddressBook, it stays in the filter until it is rebuilt
+     *
+     * @param addressBookId
+     */
+    public void markRemoved(UUID addressBookId) {
+        AddressBookFilter filter = filter(addressBookId);
+        if (filter != null) {
+            filter.markRemoved();
+        }
+    }
+
+    /**
+     * Start an empty filter for a new AddressBook, once the current transaction commits
+     *
+     * @param addressBookId
+     */
+    public void addAddressBook(UUID addressBookId) {
+        TransactionCallbacks.afterCommit(() -> filters.putIfAbsent(addressBookId, new AddressBookFilter(create(MIN_EXPECTED_INSERTIONS),
+                MIN_EXPECTED_INSERTIONS)));
+    }
+
+    /**
+     * Drop the filter of a deleted AddressBook, once the current transaction commits
+     *
+     * @param addressBookId
+     */
+    public void removeAddressBook(UUID addressBookId) {
+        TransactionCallbacks.afterCommit(() -> filters.remove(addressBookId));
+    }
+
+    /**
+     * Build the filter of an AddressBook from DB in the calling thread
+     *
+     * @param addressBookId
+     */
+    public void rebuild(UUID addressBookId) {
+        rebuild(addressBookId, filters.computeIfAbsent(addressBookId, id -> new AddressBookFilter()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void buildAll() {
+        for (String shard : shardResolver.getShards()) {
+            List<AddressBookSummary> summaries = read(shard, addressBookRepository::findAllSummaries);
+            for (AddressBookSummary summary : summaries) {
+                if (shardResolver.owns(shard, summary.getId())) {
+                    rebuild(summary.getId(), filters.computeIfAbsent(summary.getId(), id -> new AddressBookFilter()),
+                            summary.getContactCount());
+                }
+            }
+        }
+    }
+
+    private void rebuildStale() {
+        filters.forEach((addressBookId, filter) -> {
+            if (filter.isStale()) {
+                rebuild(addressBookId, filter);
+            }
+        });
+    }
+
+    private void rebuild(UUID addressBookId, AddressBookFilter filter) {
+        Optional<AddressBookSummary> summary;
+        try {
+            summary = read(shardResolver.resolve(addressBookId),
+                    () -> addressBookRepository.findSummaryById(addressBookId));
+        } catch (RuntimeException e) {
+            // Kept as is, tried again at the next interval
+            rebuildFailed.increment();
+            return;
+        }
+        if (summary.isPresent()) {
+            rebuild(addressBookId, filter, summary.get().getContactCount());
+        } else {
+            filters.remove(addressBookId, filter);
+        }
+    }
+
+    /**
+     * Replace the Bloom filter of an AddressBook by one read from DB. Emails committed meanwhile are kept aside and
+     * added to the new filter, so it cannot miss those committed after the emails are read. When the rebuild fails,
+     * the current filter is kept.
+     */
+    private void rebuild(UUID addressBookId, AddressBookFilter filter, long contacts) {
+        filter.startRebuild();
+        try {
+            long expectedInsertions = Math.max(MIN_EXPECTED_INSERTIONS, contacts * GROWTH_FACTOR);
+            BloomFilter<String> bloomFilter = create(expectedInsertions);
+            long[] insertions = new long[1];
+            read(shardResolver.resolve(addressBookId), () -> {
+                try (Stream<String> emails = contactRepository.streamEmailsByAddressBookId(addressBookId)) {
+                    emails.map(ContactNormalizer::email).filter(Objects::nonNull).forEach(key -> {
+                        bloomFilter.put(key);
+                        insertions[0]++;
+                    });
+                }
+                return null;
+            });
+            filter.finishRebuild(bloomFilter, expectedInsertions, insertions[0]);
+            rebuilt.increment();
+        } catch (RuntimeException e) {
+            filter.abortRebuild();
+            rebuildFailed.increment();
+        }
+    }
+
+    private <T> T read(String shard, Supplier<T> query) {
+        return ShardContext.call(shard, () -> transactionTemplate.execute(status -> query.get()));
+    }
+
+    private AddressBookFilter filter(UUID addressBookId) {
+        return addressBookId == null ? null : filters.get(addressBookId);
+    }
+
+    private BloomFilter<String> create(long expectedInsertions) {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, fpp);
+    }
+
+    private double maxExpectedFpp() {
+        return filters.values().stream()
+                .map(filter -> filter.bloomFilter)
+                .filter(Objects::nonNull)
+                .mapToDouble(BloomFilter::expectedFpp)
+                .max()
+                .orElse(0);
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(CHECKS_NAME)
+                .description("Email uniqueness checks, by answer of the email filter and of DB")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter rebuilds(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(REBUILDS_NAME)
+                .description("Email filters rebuilt from DB")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+
+    /**
+     * Bloom filter of one AddressBook. Reads are lock free, Guava Bloom filters support concurrent puts and reads
+     */
+    private static class AddressBookFilter {
+
+        // Null until first built, replaced as a whole when rebuilt
+        private volatile BloomFilter<String> bloomFilter;
+
+        // Guarded by this
+        private long expectedInsertions;
+
+        private long insertions;
+
+        private long removals;
+
+        // Emails added while the filter is rebuilt, null otherwise
+        private List<String> pending;
+
+        private AddressBookFilter() {
+        }
+
+        private AddressBookFilter(BloomFilter<String> bloomFilter, long expectedInsertions) {
+            this.bloomFilter = bloomFilter;
+            this.expectedInsertions = expectedInsertions;
+        }
+
+        private synchronized void put(String key) {
+            if (bloomFilter != null) {
+                bloomFilter.put(key);
+            }
+            if (pending != null) {
+                pending.add(key);
+            }
+            insertions++;
+        }
+
+        private synchronized void markRemoved() {
+            removals++;
+        }
+
+        private synchronized boolean isStale() {
+            return pending == null && bloomFilter != null
+                    && (removals > insertions * MAX_STALE_RATIO || insertions > expectedInsertions);
+        }
+
+        private synchronized void startRebuild() {
+            pending = new ArrayList<>();
+        }
+
+        private synchronized void finishRebuild(BloomFilter<String> rebuilt, long expectedInsertions, long insertions) {
+            pending.forEach(rebuilt::put);
+            this.bloomFilter = rebuilt;
+            this.expectedInsertions = expectedInsertions;
+            this.insertions = insertions + pending.size();
+            this.removals = 0;
+            this.pending = null;
+        }
+
+        private synchronized void abortRebuild() {
+            pending = null;
+        }
+    }
+}
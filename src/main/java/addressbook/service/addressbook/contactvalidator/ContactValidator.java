@@ -8,4 +8,13 @@ public interface ContactValidator {
 
 
     ContactValidatorResult validate(Contact contact);
+
+    /**
+     * Validate the Contact on its own fields only, without checking against other Contacts of its AddressBook.
+     * Used when the duplication check is done for a batch of Contacts at once
+     *
+     * @param contact
+     * @return
+     */
+    ContactValidatorResult validateFields(Contact contact);
 }
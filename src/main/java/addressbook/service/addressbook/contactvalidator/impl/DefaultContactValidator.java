@@ -1,36 +1,58 @@
 package addressbook.service.addressbook.contactvalidator.impl;
 
+import addressbook.dao.ContactRepository;
 import addressbook.model.impl.AddressBook;
 import addressbook.model.impl.Contact;
+import addressbook.service.addressbook.contactvalidator.ContactEmailFilter;
 import addressbook.service.addressbook.contactvalidator.ContactValidator;
 import addressbook.service.addressbook.contactvalidator.ContactValidatorResult;
 import addressbook.service.exception.InvalidException;
-import addressbook.service.exception.NotFoundException;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
+/**
+ * Validate required fields of a Contact, and check the email is not used by another Contact of the same AddressBook.
+ * The duplication check is an indexed existence query, so the contacts of the AddressBook are never loaded, and it is
+ * skipped when the {@link ContactEmailFilter} of the AddressBook knows the email is not used.
+ *
+ */
 @Service
+@Profile("!reactive")
 public class DefaultContactValidator implements ContactValidator {
 
-    @Override
-    public ContactValidatorResult validate(Contact contact) {
-        if (contact.getAddressBook() == null) {
-            return new ContactValidatorResult(false, new NotFoundException("Contact doesn't belong to any AddressBook"));
-        }
+    private final ContactRepository contactRepository;
 
-        if (contact.getFirstName() == null) {
-            return new ContactValidatorResult(false, new InvalidException("Contact must contain first name"));
-        }
+    private final ContactEmailFilter contactEmailFilter;
+
+    private final FieldsContactValidator fieldsValidator = new FieldsContactValidator();
+
+    public DefaultContactValidator(ContactRepository contactRepository, ContactEmailFilter contactEmailFilter) {
+        this.contactRepository = contactRepository;
+        this.contactEmailFilter = contactEmailFilter;
+    }
 
-        if (contact.getEmail() == null) {
-            return new ContactValidatorResult(false, new InvalidException("Contact must contain email address"));
+    @Override
+    public ContactValidatorResult validate(Contact contact) {
+        ContactValidatorResult fieldsResult = validateFields(contact);
+        if (!fieldsResult.getValid()) {
+            return fieldsResult;
         }
 
         AddressBook addressBook = contact.getAddressBook();
 
-        if(!addressBook.getContacts().isEmpty() && !addressBook.getContacts().add(contact)) {
+        boolean duplicated = contactEmailFilter.exists(addressBook.getId(), contact.getEmail(), () -> contact.getId() == null
+                ? contactRepository.existsByAddressBookIdAndEmail(addressBook.getId(), contact.getEmail())
+                : contactRepository.existsByAddressBookIdAndEmailAndIdNot(addressBook.getId(), contact.getEmail(), contact.getId()));
+
+        if (duplicated) {
             return new ContactValidatorResult(false, new InvalidException("Contact is already exist in the AddressBook"));
         }
 
         return new ContactValidatorResult(true, null);
     }
+
+    @Override
+    public ContactValidatorResult validateFields(Contact contact) {
+        return fieldsValidator.validateFields(contact);
+    }
 }
@@ -0,0 +1,41 @@
+package addressbook.service.addressbook.contactvalidator.impl;
+
+import addressbook.model.impl.Contact;
+import addressbook.service.addressbook.contactvalidator.ContactValidator;
+import addressbook.service.addressbook.contactvalidator.ContactValidatorResult;
+import addressbook.service.exception.InvalidException;
+import addressbook.service.exception.NotFoundException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+/**
+ * Validate required fields of a Contact only. Used by the 'reactive' profile, where the R2DBC service checks the email
+ * is not used by another Contact within its own statements.
+ *
+ */
+@Service
+@Profile("reactive")
+public class FieldsContactValidator implements ContactValidator {
+
+    @Override
+    public ContactValidatorResult validate(Contact contact) {
+        return validateFields(contact);
+    }
+
+    @Override
+    public ContactValidatorResult validateFields(Contact contact) {
+        if (contact.getAddressBook() == null) {
+            return new ContactValidatorResult(false, new NotFoundException("Contact doesn't belong to any AddressBook"));
+        }
+
+        if (contact.getFirstName() == null) {
+            return new ContactValidatorResult(false, new InvalidException("Contact must contain first name"));
+        }
+
+        if (contact.getEmail() == null) {
+            return new ContactValidatorResult(false, new InvalidException("Contact must contain email address"));
+        }
+
+        return new ContactValidatorResult(true, null);
+    }
+}
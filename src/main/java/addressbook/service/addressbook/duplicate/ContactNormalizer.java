@@ -0,0 +1,90 @@
+package addressbook.service.addressbook.duplicate;
+
+import addressbook.service.addressbook.autocomplete.ContactNameIndex;
+
+import java.util.Locale;
+
+
+/**
+ * Normalize Contact fields, so the same person written differently compares equal. Every method returns null for a
+ * missing or blank value.
+ *
+ */
+public final class ContactNormalizer {
+
+    // American Soundex digit of each letter a to z, '0' for letters that are not coded
+    private static final String SOUNDEX_CODES = "01230120022455012623010202";
+
+    private static final int SOUNDEX_LENGTH = 4;
+
+    private ContactNormalizer() {
+    }
+
+    /**
+     * Return the email trimmed and in lower case
+     *
+     * @param email
+     * @return
+     */
+    public static String email(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Return the name in lower case without diacritics and surrounding spaces
+     *
+     * @param name
+     * @return
+     */
+    public static String name(String name) {
+        if (name == null) {
+            return null;
+        }
+        String folded = ContactNameIndex.fold(name).trim();
+        return folded.isEmpty() ? null : folded;
+    }
+
+    /**
+     * Return the American Soundex code of a name, so 'Smith', 'Smyth' and 'Schmidt' share the same code. Letters
+     * outside a to z are ignored once diacritics are removed
+     *
+     * @param name
+     * @return
+     */
+    public static String soundex(String name) {
+        String folded = name(name);
+        if (folded == null) {
+            return null;
+        }
+
+        StringBuilder code = new StringBuilder(SOUNDEX_LENGTH);
+        char last = 0;
+        for (int i = 0; i < folded.length() && code.length() < SOUNDEX_LENGTH; i++) {
+            char c = folded.charAt(i);
+            if (c < 'a' || c > 'z') {
+                continue;
+            }
+            char digit = SOUNDEX_CODES.charAt(c - 'a');
+            if (code.length() == 0) {
+                code.append(Character.toUpperCase(c));
+                last = digit;
+            } else if (digit != '0' && digit != last) {
+                code.append(digit);
+                last = digit;
+            } else if (c != 'h' && c != 'w') {
+                // A vowel separates two letters with the same code, 'h' and 'w' do not
+                last = digit;
+            }
+        }
+        if (code.length() == 0) {
+            return null;
+        }
+        while (code.length() < SOUNDEX_LENGTH) {
+            code.append('0');
+        }
+        return code.toString();
+    }
+}
@@ -0,0 +1,238 @@
+package addressbook.service.addressbook.duplicate;
+
+import addressbook.dao.ContactRepository;
+import addressbook.dao.shard.ShardContext;
+import addressbook.dao.shard.ShardResolver;
+import addressbook.model.view.ContactMatchView;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+
+/**
+ * Find Contacts that are likely the same person, across all AddressBooks.
+ *
+ * Comparing every pair is out of reach for millions of Contacts, so Contacts are compared within blocks only, each
+ * read from DB already sorted so a block is a run of consecutive rows:
+ * <ul>
+ *     <li>Contacts with the same email once trimmed and in lower case are duplicates, without scoring</li>
+ *     <li>Contacts with the same soundex of surname and the same country are scored against the previous
+ *     {@code addressbook.duplicates.window} rows of the block, ordered by first name. A pair scoring at least
+ *     {@code addressbook.duplicates.threshold} is a duplicate</li>
+ * </ul>
+ * Both passes stream the Contacts, so memory is bounded by the window and the number of duplicates found, and the run
+ * costs one sorted scan of the Contact table per pass. Duplicates are merged into clusters with a union-find.
+ *
+ * When Contacts are spread across shards, each shard is scanned on its own, so duplicates are only found among the
+ * Contacts of the same shard.
+ *
+ * Runs happen one at a time on a dedicated thread, the report of the last run is kept in memory.
+ *
+ */
+@Component
+public class DuplicateDetector {
+
+    private static final double FIRST_NAME_WEIGHT = 0.6;
+
+    private static final double SURNAME_WEIGHT = 0.4;
+
+    // Added when both Contacts have the same E.164 phone number, not enough on its own for people sharing a phone
+    private static final double SAME_PHONE_BONUS = 0.05;
+
+    private final ContactRepository contactRepository;
+
+    private final ShardResolver shardResolver;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int window;
+
+    private final double threshold;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("addressbook-duplicates-%d").setDaemon(true).build());
+
+    // Guarded by this
+    private DuplicateReport report;
+
+    public DuplicateDetector(ContactRepository contactRepository,
+                             ShardResolver shardResolver,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${addressbook.duplicates.window:20}") int window,
+                             @Value("${addressbook.duplicates.threshold:0.9}") double threshold) {
+        this.contactRepository = contactRepository;
+        this.shardResolver = shardResolver;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.window = window;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Start a run in background, unless one is already running
+     *
+     * @return the report of the run in progress
+     */
+    public synchronized DuplicateReport start() {
+        if (report != null && report.getStatus() == DuplicateReport.Status.RUNNING) {
+            return report;
+        }
+
+        Instant startedAt = Instant.now();
+        report = DuplicateReport.running(startedAt);
+        executor.execute(() -> {
+            DuplicateReport result;
+            try {
+                result = detect(startedAt);
+            } catch (RuntimeException e) {
+                result = DuplicateReport.failed(startedAt, e.toString());
+            }
+            synchronized (this) {
+                report = result;
+            }
+        });
+        return report;
+    }
+
+    /**
+     * Return the report of the last run, empty if no run was started
+     *
+     * @return
+     */
+    public synchronized Optional<DuplicateReport> getReport() {
+        return Optional.ofNullable(report);
+    }
+
+    /**
+     * Find duplicates in the calling thread
+     *
+     * @param startedAt
+     * @return
+     */
+    public DuplicateReport detect(Instant startedAt) {
+        SparseUnionFind<UUID> duplicates = new SparseUnionFind<>();
+        long[] counts = new long[2];
+
+        for (String shard : shardResolver.getShards()) {
+            ShardContext.run(shard, () -> transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<ContactMatchView> contacts = contactRepository.streamMatchesByEmail()) {
+                    counts[0] += matchEmails(contacts.iterator(), duplicates);
+                }
+                try (Stream<ContactMatchView> contacts = contactRepository.streamMatchesBySurname()) {
+                    matchNames(contacts.iterator(), duplicates, counts);
+                }
+            }));
+        }
+
+        return DuplicateReport.completed(startedAt, counts[0], counts[1], duplicates.sets());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Merge Contacts with the same normalized email, given sorted by it
+     *
+     * @return rows read
+     */
+    private static long matchEmails(Iterator<ContactMatchView> contacts, SparseUnionFind<UUID> duplicates) {
+        long rows = 0;
+        ContactMatchView previous = null;
+        while (contacts.hasNext()) {
+            ContactMatchView contact = contacts.next();
+            rows++;
+            if (previous != null && previous.getNormalizedEmail().equals(contact.getNormalizedEmail())) {
+                duplicates.union(previous.getId(), contact.getId());
+            }
+            previous = contact;
+        }
+        return rows;
+    }
+
+    /**
+     * Score each Contact against the previous ones of its block within the window, given sorted by block then first
+     * name. Adds the rows read and the pairs scored to counts
+     */
+    private void matchNames(Iterator<ContactMatchView> contacts, SparseUnionFind<UUID> duplicates, long[] counts) {
+        Deque<Candidate> candidates = new ArrayDeque<>(window + 1);
+        while (contacts.hasNext()) {
+            Candidate contact = new Candidate(contacts.next());
+            counts[0]++;
+
+            if (!candidates.isEmpty() && !candidates.peekLast().sameBlock(contact)) {
+                candidates.clear();
+            }
+            for (Candidate candidate : candidates) {
+                counts[1]++;
+                if (score(candidate, contact) >= threshold) {
+                    duplicates.union(candidate.view.getId(), contact.view.getId());
+                }
+            }
+
+            candidates.addLast(contact);
+            if (candidates.size() > window) {
+                candidates.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Return how likely two Contacts of the same block are the same person, 1 for the same email
+     */
+    private static double score(Candidate first, Candidate second) {
+        if (first.view.getNormalizedEmail() != null
+                && first.view.getNormalizedEmail().equals(second.view.getNormalizedEmail())) {
+            return 1;
+        }
+
+        double score = FIRST_NAME_WEIGHT * JaroWinkler.similarity(first.firstName, second.firstName)
+                + SURNAME_WEIGHT * JaroWinkler.similarity(first.surName, second.surName);
+        if (first.phone != null && first.phone.equals(second.phone)) {
+            score += SAME_PHONE_BONUS;
+        }
+        return score;
+    }
+
+
+    /**
+     * A Contact with its fields normalized once for all the pairs it is scored in
+     */
+    private static class Candidate {
+
+        private final ContactMatchView view;
+
+        private final String firstName;
+
+        private final String surName;
+
+        private final String phone;
+
+        private Candidate(ContactMatchView view) {
+            this.view = view;
+            this.firstName = ContactNormalizer.name(view.getFirstName());
+            this.surName = ContactNormalizer.name(view.getSurName());
+            this.phone = view.getPhoneE164();
+        }
+
+        private boolean sameBlock(Candidate other) {
+            return view.getSurnameKey().equals(other.view.getSurnameKey())
+                    && Objects.equals(view.getCountry(), other.view.getCountry());
+        }
+    }
+}
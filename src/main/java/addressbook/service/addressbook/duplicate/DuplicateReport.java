@@ -0,0 +1,86 @@
+package addressbook.service.addressbook.duplicate;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * State of a duplicate detection run, and once completed the clusters of Contact Ids found to be the same person
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DuplicateReport {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final Status status;
+
+    private final Instant startedAt;
+
+    private final Instant completedAt;
+
+    // Rows read by all passes
+    private final long rowsScanned;
+
+    // Pairs of Contacts scored
+    private final long comparisons;
+
+    private final List<List<UUID>> clusters;
+
+    private final String error;
+
+    private DuplicateReport(Status status, Instant startedAt, Instant completedAt, long rowsScanned, long comparisons,
+                            List<List<UUID>> clusters, String error) {
+        this.status = status;
+        this.startedAt = startedAt;
+        this.completedAt = completedAt;
+        this.rowsScanned = rowsScanned;
+        this.comparisons = comparisons;
+        this.clusters = clusters;
+        this.error = error;
+    }
+
+    public static DuplicateReport running(Instant startedAt) {
+        return new DuplicateReport(Status.RUNNING, startedAt, null, 0, 0, null, null);
+    }
+
+    public static DuplicateReport completed(Instant startedAt, long rowsScanned, long comparisons, List<List<UUID>> clusters) {
+        return new DuplicateReport(Status.COMPLETED, startedAt, Instant.now(), rowsScanned, comparisons, clusters, null);
+    }
+
+    public static DuplicateReport failed(Instant startedAt, String error) {
+        return new DuplicateReport(Status.FAILED, startedAt, Instant.now(), 0, 0, null, error);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public long getRowsScanned() {
+        return rowsScanned;
+    }
+
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    public List<List<UUID>> getClusters() {
+        return clusters;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,85 @@
+package addressbook.service.addressbook.duplicate;
+
+
+/**
+ * Jaro-Winkler similarity of two strings, from 0 for nothing in common to 1 for equal strings. It tolerates typos and
+ * transposed letters, and favours strings sharing a prefix, which suits person names.
+ *
+ */
+public final class JaroWinkler {
+
+    private static final double PREFIX_SCALE = 0.1;
+
+    private static final int MAX_PREFIX = 4;
+
+    private JaroWinkler() {
+    }
+
+    /**
+     * Return the similarity of two strings, 0 if either is null
+     *
+     * @param first
+     * @param second
+     * @return
+     */
+    public static double similarity(String first, String second) {
+        if (first == null || second == null) {
+            return 0;
+        }
+        if (first.equals(second)) {
+            return 1;
+        }
+
+        double jaro = jaro(first, second);
+        int prefix = 0;
+        int maxPrefix = Math.min(MAX_PREFIX, Math.min(first.length(), second.length()));
+        while (prefix < maxPrefix && first.charAt(prefix) == second.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * PREFIX_SCALE * (1 - jaro);
+    }
+
+    private static double jaro(String first, String second) {
+        if (first.isEmpty() || second.isEmpty()) {
+            return 0;
+        }
+
+        int window = Math.max(0, Math.max(first.length(), second.length()) / 2 - 1);
+        boolean[] firstMatched = new boolean[first.length()];
+        boolean[] secondMatched = new boolean[second.length()];
+
+        int matches = 0;
+        for (int i = 0; i < first.length(); i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(second.length() - 1, i + window);
+            for (int j = from; j <= to; j++) {
+                if (!secondMatched[j] && first.charAt(i) == second.charAt(j)) {
+                    firstMatched[i] = true;
+                    secondMatched[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0;
+        }
+
+        int transpositions = 0;
+        int j = 0;
+        for (int i = 0; i < first.length(); i++) {
+            if (firstMatched[i]) {
+                while (!secondMatched[j]) {
+                    j++;
+                }
+                if (first.charAt(i) != second.charAt(j)) {
+                    transpositions++;
+                }
+                j++;
+            }
+        }
+
+        double m = matches;
+        return (m / first.length() + m / second.length() + (m - transpositions / 2.0) / m) / 3;
+    }
+}
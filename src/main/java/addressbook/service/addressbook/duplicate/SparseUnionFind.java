@@ -0,0 +1,86 @@
+package addressbook.service.addressbook.duplicate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Union-find over the elements found to match at least once. Elements never passed to {@link #union} take no memory,
+ * so the size is bounded by the number of duplicates rather than the number of Contacts.
+ *
+ * @param <T> element type
+ */
+public class SparseUnionFind<T> {
+
+    private final Map<T, T> parents = new HashMap<>();
+
+    // Size of each set, by root
+    private final Map<T, Integer> sizes = new HashMap<>();
+
+    /**
+     * Merge the sets of two elements
+     *
+     * @param first
+     * @param second
+     */
+    public void union(T first, T second) {
+        T firstRoot = find(first);
+        T secondRoot = find(second);
+        if (firstRoot.equals(secondRoot)) {
+            return;
+        }
+
+        int firstSize = sizes.getOrDefault(firstRoot, 1);
+        int secondSize = sizes.getOrDefault(secondRoot, 1);
+        // The smaller set goes under the larger one, so paths stay short
+        if (firstSize < secondSize) {
+            T root = firstRoot;
+            firstRoot = secondRoot;
+            secondRoot = root;
+        }
+        parents.put(secondRoot, firstRoot);
+        parents.putIfAbsent(firstRoot, firstRoot);
+        sizes.remove(secondRoot);
+        sizes.put(firstRoot, firstSize + secondSize);
+    }
+
+    /**
+     * Return the root of the set of an element, which is the element itself if it was never merged
+     *
+     * @param element
+     * @return
+     */
+    public T find(T element) {
+        T current = element;
+        T parent = parents.get(current);
+        while (parent != null && !parent.equals(current)) {
+            // Path halving
+            T grandParent = parents.get(parent);
+            parents.put(current, grandParent);
+            current = grandParent;
+            parent = parents.get(current);
+        }
+        return current;
+    }
+
+    /**
+     * Return every set of more than one element
+     *
+     * @return
+     */
+    public List<List<T>> sets() {
+        Map<T, List<T>> sets = new HashMap<>();
+        for (T element : new ArrayList<>(parents.keySet())) {
+            sets.computeIfAbsent(find(element), root -> new ArrayList<>()).add(element);
+        }
+        List<List<T>> result = new ArrayList<>(sets.size());
+        for (List<T> set : sets.values()) {
+            if (set.size() > 1) {
+                result.add(set);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,81 @@
+package addressbook.service.addressbook.jpaimpl;
+
+import addressbook.dao.ContactRepository;
+import addressbook.dao.shard.ShardContext;
+import addressbook.dao.shard.ShardResolver;
+import addressbook.model.view.ContactNameView;
+import addressbook.model.view.ContactPhoneView;
+import addressbook.service.addressbook.autocomplete.ContactNameIndex;
+import addressbook.service.addressbook.phone.PhoneNumberIndex;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+
+/**
+ * Build the in memory Contact indexes from DB once the application is started. From then on they are maintained by
+ * {@link JpaAddressBookService}. Each shard is read in turn, and only for the AddressBooks it owns.
+ *
+ */
+@Component
+@Profile("!reactive")
+public class ContactIndexLoader {
+
+    private final ContactRepository contactRepository;
+
+    private final ContactNameIndex contactNameIndex;
+
+    private final PhoneNumberIndex phoneNumberIndex;
+
+    private final ShardResolver shardResolver;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public ContactIndexLoader(ContactRepository contactRepository, ContactNameIndex contactNameIndex,
+                              PhoneNumberIndex phoneNumberIndex, ShardResolver shardResolver,
+                              PlatformTransactionManager transactionManager) {
+        this.contactRepository = contactRepository;
+        this.contactNameIndex = contactNameIndex;
+        this.phoneNumberIndex = phoneNumberIndex;
+        this.shardResolver = shardResolver;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Load each index into a fresh index swapped in once complete, so writes committed meanwhile are kept
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        contactNameIndex.load(index -> forEachShard(shard -> loadNames(shard, index)));
+        phoneNumberIndex.load(index -> forEachShard(shard -> loadPhones(shard, index)));
+    }
+
+    private void forEachShard(Consumer<String> load) {
+        for (String shard : shardResolver.getShards()) {
+            ShardContext.run(shard, () -> transactionTemplate.executeWithoutResult(status -> load.accept(shard)));
+        }
+    }
+
+    private void loadNames(String shard, ContactNameIndex index) {
+        try (Stream<ContactNameView> names = contactRepository.streamAllNames()) {
+            names.filter(name -> shardResolver.owns(shard, name.getAddressBookId()))
+                    .forEach(name -> index.put(
+                            name.getId(), name.getAddressBookId(), name.getFirstName(), name.getSurName()));
+        }
+    }
+
+    private void loadPhones(String shard, PhoneNumberIndex index) {
+        try (Stream<ContactPhoneView> phones = contactRepository.streamAllPhones()) {
+            phones.filter(phone -> shardResolver.owns(shard, phone.getAddressBookId()))
+                    .forEach(phone -> index.put(
+                            phone.getId(), phone.getAddressBookId(), phone.getPhoneE164()));
+        }
+    }
+}
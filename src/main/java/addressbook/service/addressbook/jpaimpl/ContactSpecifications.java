@@ -0,0 +1,70 @@
+package addressbook.service.addressbook.jpaimpl;
+
+import addressbook.dao.ContactRepository;
+import addressbook.model.impl.Contact;
+import addressbook.service.addressbook.ContactSearchCriteria;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Build JPA {@link Specification} for {@link ContactRepository}. Every filter is on an indexed column of Contact, and
+ * name filters are left anchored prefix matches so they can use the index.
+ *
+ */
+public final class ContactSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private ContactSpecifications() {
+    }
+
+    public static Specification<Contact> matching(ContactSearchCriteria criteria) {
+        return (root, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (criteria.getAddressBookId() != null) {
+                predicates.add(builder.equal(root.get("addressBook").get("id"), criteria.getAddressBookId()));
+            }
+            if (criteria.getSurName() != null) {
+                predicates.add(builder.like(root.get("surName"), prefixPattern(criteria.getSurName()), LIKE_ESCAPE));
+            }
+            if (criteria.getFirstName() != null) {
+                predicates.add(builder.like(root.get("firstName"), prefixPattern(criteria.getFirstName()), LIKE_ESCAPE));
+            }
+            if (criteria.getEmail() != null) {
+                predicates.add(builder.equal(root.get("email"), criteria.getEmail()));
+            }
+            if (criteria.getPhoneNumber() != null) {
+                predicates.add(builder.equal(root.get("phoneNumber"), criteria.getPhoneNumber()));
+            }
+            if (criteria.getCountry() != null) {
+                predicates.add(builder.equal(root.get("country"), criteria.getCountry()));
+            }
+            if (criteria.getState() != null) {
+                predicates.add(builder.equal(root.get("state"), criteria.getState()));
+            }
+
+            return builder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Escape LIKE wildcards in the value, so only the appended '%' acts as wildcard
+     *
+     * @param prefix
+     * @return
+     */
+    private static String prefixPattern(String prefix) {
+        StringBuilder pattern = new StringBuilder(prefix.length() + 1);
+        for (char c : prefix.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
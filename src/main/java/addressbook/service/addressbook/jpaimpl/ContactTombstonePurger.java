@@ -0,0 +1,119 @@
+package addressbook.service.addressbook.jpaimpl;
+
+import addressbook.dao.AddressBookRepository;
+import addressbook.dao.ContactTombstoneRepository;
+import addressbook.dao.shard.ShardContext;
+import addressbook.dao.shard.ShardResolver;
+import addressbook.service.exception.GoneException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Delete tombstones older than {@code addressbook.tombstones.retention} every
+ * {@code addressbook.tombstones.purge-interval}, on each shard in turn. In the same transaction the minimum sync
+ * version of their AddressBooks is raised to the newest tombstone purged, so a sync token needing them is answered
+ * with {@link GoneException} rather than missing the Contacts removed.
+ *
+ * Purged tombstones are counted by the '{@value #PURGED_NAME}' counter, failed purges by '{@value #FAILURES_NAME}'.
+ *
+ */
+@Component
+public class ContactTombstonePurger {
+
+    public static final String PURGED_NAME = "addressbook.tombstones.purged";
+
+    public static final String FAILURES_NAME = "addressbook.tombstones.purge.failures";
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("addressbook-tombstone-purge-%d").setDaemon(true).build());
+
+    private final AddressBookRepository addressBookRepository;
+
+    private final ContactTombstoneRepository contactTombstoneRepository;
+
+    private final ShardResolver shardResolver;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration retention;
+
+    private final long purgeIntervalMillis;
+
+    private final Counter purged;
+
+    private final Counter failures;
+
+    public ContactTombstonePurger(AddressBookRepository addressBookRepository,
+                                  ContactTombstoneRepository contactTombstoneRepository,
+                                  ShardResolver shardResolver,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${addressbook.tombstones.retention:30d}") Duration retention,
+                                  @Value("${addressbook.tombstones.purge-interval:1h}") Duration purgeInterval) {
+        this.addressBookRepository = addressBookRepository;
+        this.contactTombstoneRepository = contactTombstoneRepository;
+        this.shardResolver = shardResolver;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+        this.purgeIntervalMillis = purgeInterval.toMillis();
+        this.purged = Counter.builder(PURGED_NAME)
+                .description("Contact tombstones deleted once older than the retention")
+                .register(meterRegistry);
+        this.failures = Counter.builder(FAILURES_NAME)
+                .description("Tombstone purges failed, retried at the next interval")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::purgeExpired, purgeIntervalMillis, purgeIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Delete the tombstones of Contacts removed before the given time, on every shard
+     *
+     * @param before
+     * @return number of tombstones deleted
+     */
+    public int purge(Instant before) {
+        int deleted = 0;
+        for (String shard : shardResolver.getShards()) {
+            deleted += ShardContext.call(shard, () -> transactionTemplate.execute(status -> {
+                addressBookRepository.raiseMinSyncVersions(before);
+                return contactTombstoneRepository.deleteDeletedBefore(before);
+            }));
+        }
+        purged.increment(deleted);
+        return deleted;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void purgeExpired() {
+        try {
+            purge(Instant.now().minus(retention));
+        } catch (RuntimeException e) {
+            // Tried again at the next interval, a task throwing would not be run again
+            failures.increment();
+        }
+    }
+}
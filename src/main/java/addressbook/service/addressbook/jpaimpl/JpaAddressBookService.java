@@ -2,39 +2,135 @@ package addressbook.service.addressbook.jpaimpl;
 
 import addressbook.dao.AddressBookRepository;
 import addressbook.dao.ContactRepository;
+import addressbook.dao.ContactTombstoneRepository;
 import addressbook.model.impl.AddressBook;
 import addressbook.model.impl.Contact;
+import addressbook.model.impl.ContactTombstone;
+import addressbook.model.view.AddressBookSummary;
+import addressbook.model.view.AddressBookVersion;
+import addressbook.model.view.AddressBookView;
+import addressbook.model.view.ContactView;
 import addressbook.service.addressbook.AddressBookService;
+import addressbook.service.addressbook.BulkImportResult;
+import addressbook.service.addressbook.ContactChanges;
+import addressbook.service.addressbook.ContactPage;
+import addressbook.service.addressbook.ContactSearchCriteria;
+import addressbook.service.addressbook.PageToken;
+import addressbook.service.addressbook.TransactionCallbacks;
+import addressbook.service.addressbook.autocomplete.ContactNameIndex;
+import addressbook.service.addressbook.autocomplete.ContactSuggestion;
+import addressbook.service.addressbook.changefeed.ChangeEvent;
+import addressbook.service.addressbook.contactvalidator.ContactEmailFilter;
 import addressbook.service.addressbook.contactvalidator.ContactValidator;
+import addressbook.service.addressbook.duplicate.ContactNormalizer;
 import addressbook.service.addressbook.contactvalidator.ContactValidatorResult;
+import addressbook.service.addressbook.phone.PhoneNumberIndex;
+import addressbook.service.addressbook.phone.PhoneNumberNormalizer;
+import addressbook.service.exception.ConflictException;
+import addressbook.service.exception.GoneException;
+import addressbook.service.exception.InvalidException;
 import addressbook.service.exception.NotFoundException;
-import com.google.common.collect.Sets;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 /**
  * This class access AddressBook and Contact in DataBase with JPA.
  *
+ * Every write publishes a {@link ChangeEvent}, delivered to listeners once its transaction commits. The in memory
+ * indexes are updated once it commits too, so a rolled back write is never suggested nor looked up.
+ *
  */
 @Service
+@Profile("!reactive")
 public class JpaAddressBookService implements AddressBookService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    public static final int MAX_SUGGESTIONS = 100;
+
+    private static final Set<String> SEARCH_SORT_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("firstName", "surName", "email", "phoneNumber", "country", "state")));
+
+    private static final Set<String> PATCHABLE_ADDRESS_BOOK_FIELDS = Collections.singleton("name");
+
+    private static final Set<String> PATCHABLE_CONTACT_FIELDS = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("firstName", "middleName", "surName", "phoneNumber", "email", "state", "country")));
+
     @Autowired
     private AddressBookRepository addressBookRepository;
 
     @Autowired
     private ContactRepository contactRepository;
 
+    @Autowired
+    private ContactTombstoneRepository contactTombstoneRepository;
+
     @Autowired
     private ContactValidator contactValidator;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ContactNameIndex contactNameIndex;
+
+    @Autowired
+    private PhoneNumberNormalizer phoneNumberNormalizer;
+
+    @Autowired
+    private PhoneNumberIndex phoneNumberIndex;
+
+    @Autowired
+    private ContactEmailFilter contactEmailFilter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Number of rows imported in one transaction by importContacts
+    @Value("${addressbook.import.chunk-size:1000}")
+    private int importChunkSize;
+
 
     public JpaAddressBookService(AddressBookRepository addressBookRepository, ContactRepository contactRepository) {
         this.addressBookRepository = addressBookRepository;
@@ -42,36 +138,269 @@ public class JpaAddressBookService implements AddressBookService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<AddressBook> get (UUID id) {
         return addressBookRepository.findById(id);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Contact> getContact(UUID id) {
         return contactRepository.findById(id);
     }
 
 
     /**
-     * Return all unique contact
+     * Return a page of unique contact. The de-duplication by email is done in DB, and the page is located by the last
+     * email of previous page, so no earlier page need to be held or skipped over. Contacts are read as views in a read
+     * only transaction, so no entity is hydrated or dirty checked.
+     *
+     * @param next
+     * @param limit
+     * @return
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ContactPage getAllUniqueContact(String next, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidException(String.format("Page limit must be between 1 and %d", MAX_PAGE_SIZE));
+        }
+
+        Pageable pageable = PageRequest.of(0, limit);
+        List<String> emails = next == null
+                ? contactRepository.findDistinctEmails(pageable)
+                : contactRepository.findDistinctEmailsAfter(PageToken.decode(next), pageable);
+
+        if (emails.isEmpty()) {
+            return new ContactPage(Collections.emptyList(), null);
+        }
+
+        // Contacts come back ordered by email, keep the first one of each email
+        Map<String, ContactView> uniqueContacts = new LinkedHashMap<>();
+        for (ContactView contact : contactRepository.findViewsByEmailIn(emails)) {
+            uniqueContacts.putIfAbsent(contact.getEmail(), contact);
+        }
+
+        String nextToken = emails.size() == limit ? PageToken.encode(emails.get(emails.size() - 1)) : null;
+        return new ContactPage(new ArrayList<>(uniqueContacts.values()), nextToken);
+    }
+
+
+    /**
+     * Search Contacts by the given criteria. At least one filter is required, name prefixes must not be blank and
+     * sorting is limited to indexed fields, so a search never reads the whole Contact table.
+     *
+     * @param criteria
+     * @param pageable
+     * @return
+     */
+    @Override
+    public Page<Contact> searchContacts(ContactSearchCriteria criteria, Pageable pageable) {
+        if (criteria.hasBlankPrefix()) {
+            throw new InvalidException("Name prefixes must not be blank");
+        }
+        if (criteria.isEmpty()) {
+            throw new InvalidException("At least one search filter is required");
+        }
+        if (pageable.getPageSize() > MAX_PAGE_SIZE) {
+            throw new InvalidException(String.format("Page size must not be greater than %d", MAX_PAGE_SIZE));
+        }
+        for (Sort.Order order : pageable.getSort()) {
+            if (!SEARCH_SORT_PROPERTIES.contains(order.getProperty())) {
+                throw new InvalidException(String.format("Contacts cannot be sorted by [%s]", order.getProperty()));
+            }
+        }
+
+        return contactRepository.findAll(ContactSpecifications.matching(criteria), pageable);
+    }
+
+    /**
+     * Suggest Contacts from the in memory name index, DB is not queried
+     *
+     * @param addressBookId
+     * @param prefix
+     * @param limit
+     * @return
+     */
+    @Override
+    public List<ContactSuggestion> autocomplete(UUID addressBookId, String prefix, int limit) {
+        if (prefix == null) {
+            throw new InvalidException("Name prefix is required");
+        }
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new InvalidException(String.format("Suggestion limit must be between 1 and %d", MAX_SUGGESTIONS));
+        }
+        return contactNameIndex.suggest(addressBookId, prefix, limit);
+    }
+
+    /**
+     * Find Contacts by phone number from the in memory phone index, DB is not queried. The number is normalized to
+     * E.164 like the stored numbers, so any formatting of the same number matches
+     *
+     * @param phoneNumber
+     * @param country
+     * @return
+     */
+    @Override
+    public List<UUID> lookupPhoneNumber(String phoneNumber, String country) {
+        if (phoneNumber == null) {
+            throw new InvalidException("Phone number is required");
+        }
+        String e164 = phoneNumberNormalizer.toE164(phoneNumber, country);
+        if (e164 == null) {
+            throw new InvalidException(String.format("Invalid phone number [%s]", phoneNumber));
+        }
+        return phoneNumberIndex.lookup(e164);
+    }
+
+    /**
+     * Stream Contacts of an AddressBook from DB. Each Contact is detached once consumed, so the persistence context
+     * does not grow with the size of the AddressBook.
+     *
+     * @param addressBookId
+     * @param consumer
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportContacts(UUID addressBookId, Consumer<Contact> consumer) {
+        if (!addressBookRepository.existsById(addressBookId)) {
+            throw new NotFoundException(String.format("Cannot find address book with id [%s]", addressBookId));
+        }
+
+        try (Stream<Contact> contacts = contactRepository.streamByAddressBookId(addressBookId)) {
+            contacts.forEach(contact -> {
+                consumer.accept(contact);
+                entityManager.detach(contact);
+            });
+        }
+    }
+
+    /**
+     * Return a page of the Contacts of an AddressBook written after the sync version carried by the token, and those
+     * removed from it since. The sync version of a Contact is the content version its AddressBook was touched to when
+     * the Contact was written. Touching locks the AddressBook row until commit, so the versions of an AddressBook are
+     * committed in order and no earlier change can show up after a token was handed out.
+     *
+     * Contacts come ordered by sync version then Id. A full page hands out a token resuming after its last Contact,
+     * which also remembers the sync version the client started from, the last page hands out the content version
+     * read before it. Removals are returned from the position of the page on, so each is returned at least once.
      *
+     * {@link GoneException} is thrown for a token older than the minimum sync version of the AddressBook, as
+     * tombstones it needs have been purged, the client has to sync in full again.
+     *
+     * @param addressBookId
+     * @param since
+     * @param limit
      * @return
      */
     @Override
-    public Set<Contact> getAllUniqueContact() {
-        return Sets.newHashSet(contactRepository.findAll());
+    @Transactional(readOnly = true)
+    public ContactChanges getContactChanges(UUID addressBookId, String since, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidException(String.format("Page limit must be between 1 and %d", MAX_PAGE_SIZE));
+        }
+
+        // Read before the changes, so a change committed in between is returned again with the next token
+        long current = addressBookRepository.findContentVersionById(addressBookId).orElseThrow(() ->
+                new NotFoundException(String.format("Cannot find address book with id [%s]", addressBookId)));
+
+        SyncPosition position = since == null ? SyncPosition.FULL : SyncPosition.decode(since);
+        if (position.syncVersion > current) {
+            throw new InvalidException(String.format("Invalid sync token [%s]", since));
+        }
 
+        Pageable pageable = PageRequest.of(0, limit);
+        List<Contact> changed = position.lastId == null
+                ? contactRepository.findChangedSince(addressBookId, position.syncVersion, pageable)
+                : contactRepository.findChangedAfter(addressBookId, position.syncVersion, position.lastId, pageable);
+        // Nothing to remove before the first page of a full sync
+        List<UUID> removed = since == null
+                ? Collections.emptyList()
+                : contactTombstoneRepository.findContactIdsRemovedSince(addressBookId, position.syncVersion);
+
+        // Read after the tombstones, so a purge committed in between is detected
+        if (position.from != SyncPosition.FULL.from
+                && position.from < addressBookRepository.findMinSyncVersionById(addressBookId).orElse(0L)) {
+            throw new GoneException(String.format("Sync token [%s] is too old, a full sync is required", since));
+        }
+
+        if (changed.size() == limit) {
+            Contact last = changed.get(changed.size() - 1);
+            String next = new SyncPosition(position.from, last.getSyncVersion(), last.getId()).encode();
+            return new ContactChanges(changed, removed, next, true);
+        }
+        return new ContactChanges(changed, removed, new SyncPosition(current, current, null).encode(), false);
     }
 
 
     /**
-     * Return all AddressBook
+     * Return all AddressBook, read as views in a read only transaction
      *
      * @return
      */
     @Override
-    public List<AddressBook> list() {
-        return addressBookRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<AddressBookView> list() {
+        return addressBookRepository.findAllViews();
+    }
+
+    /**
+     * Return the AddressBook with given Id and its number of Contacts, counted in DB
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<AddressBookSummary> getSummary(UUID id) {
+        return addressBookRepository.findSummaryById(id);
+    }
+
+    /**
+     * Return all AddressBook with their number of Contacts. All books are counted by a single GROUP BY query
+     *
+     * @return
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<AddressBookSummary> listSummaries() {
+        return addressBookRepository.findAllSummaries();
+    }
+
+    /**
+     * Return the versions of an AddressBook, read by a single column query
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<AddressBookVersion> getVersion(UUID id) {
+        return addressBookRepository.findVersionById(id);
+    }
+
+    /**
+     * Return the version of a Contact, read by a single column query
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Long> getContactVersion(UUID id) {
+        return contactRepository.findVersionById(id);
+    }
+
+    /**
+     * Return the AddressBook Id of a Contact, read by a single column query
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<UUID> getContactAddressBookId(UUID id) {
+        return contactRepository.findAddressBookIdById(id);
     }
 
     /**
@@ -83,39 +412,85 @@ public class JpaAddressBookService implements AddressBookService {
     @Override
     public void create(AddressBook addressBook) {
         addressBookRepository.save(addressBook);
+        contactEmailFilter.addAddressBook(addressBook.getId());
+        eventPublisher.publishEvent(ChangeEvent.addressBook(ChangeEvent.Type.CREATED, addressBook.getId()));
     }
 
 
     /**
-     * Update an Existing AddressBook. {@link NotFoundException} will be thrown if AddressBook cannot be found with
-     * given Id
+     * Update an Existing AddressBook with a single UPDATE statement. When the given AddressBook carries a version, the
+     * update only applies at that version. {@link NotFoundException} will be thrown if AddressBook cannot be found
+     * with given Id, {@link ConflictException} if it has been changed since the expected version
      *
      * @param id
      * @param addressBook
      */
     @Override
+    @Transactional
     public void update(UUID id, AddressBook addressBook) {
-        Optional<AddressBook> existAddressBook = addressBookRepository.findById(id);
-        if(existAddressBook.isPresent()) {
-            AddressBook addressBookEntity = existAddressBook.get();
-            BeanUtils.copyProperties(addressBook, addressBookEntity, "id", "contacts");
-            addressBookRepository.save(addressBookEntity);
-        } else {
+        int updated = addressBookRepository.update(id, addressBook.getVersion(), addressBook.getName(), Instant.now());
+        if (updated == 0) {
+            if (addressBookRepository.existsById(id)) {
+                throw new ConflictException(String.format("AddressBook [%s] has been changed since version [%d]",
+                        id, addressBook.getVersion()));
+            }
             throw new NotFoundException(String.format("AddressBook cannot be found with given Id [%s]", id.toString()));
         }
+        eventPublisher.publishEvent(ChangeEvent.addressBook(ChangeEvent.Type.UPDATED, id));
     }
 
     /**
-     * Save an Contact. Validate before saving
+     * Update only the given fields of an AddressBook with a single UPDATE statement, see
+     * {@link #update(UUID, AddressBook)} for the version check
+     *
+     * @param id
+     * @param changes
+     * @param expectedVersion
+     */
+    @Override
+    @Transactional
+    public void patch(UUID id, Map<String, String> changes, Long expectedVersion) {
+        checkPatchable(changes, PATCHABLE_ADDRESS_BOOK_FIELDS, "AddressBook");
+        if (changes.isEmpty()) {
+            if (!addressBookRepository.existsById(id)) {
+                throw new NotFoundException(String.format("AddressBook cannot be found with given Id [%s]", id.toString()));
+            }
+            return;
+        }
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<AddressBook> update = builder.createCriteriaUpdate(AddressBook.class);
+        Root<AddressBook> root = update.from(AddressBook.class);
+        update.set(root.<Instant>get("lastModified"), Instant.now());
+        int updated = executePatch(builder, update, root, id, changes, expectedVersion);
+
+        if (updated == 0) {
+            if (addressBookRepository.existsById(id)) {
+                throw new ConflictException(String.format("AddressBook [%s] has been changed since version [%d]",
+                        id, expectedVersion));
+            }
+            throw new NotFoundException(String.format("AddressBook cannot be found with given Id [%s]", id.toString()));
+        }
+        eventPublisher.publishEvent(ChangeEvent.addressBook(ChangeEvent.Type.UPDATED, id));
+    }
+
+    /**
+     * Save an Contact. Validate before saving. Its AddressBook is touched in the same transaction
      *
      * @param contact
      */
     @Override
+    @Transactional
     public void create (Contact contact) {
 
         ContactValidatorResult validatorResult = contactValidator.validate(contact);
         if(validatorResult.getValid()) {
-            contactRepository.save(contact);
+            contact.setSyncVersion(nextSyncVersion(contact.getAddressBook().getId()));
+            normalize(contact);
+            saveContact(contact);
+            indexContact(contact);
+            eventPublisher.publishEvent(ChangeEvent.contact(ChangeEvent.Type.CREATED,
+                    contact.getId(), contact.getAddressBook().getId(), null));
         } else if (validatorResult.getException() != null) {
             throw validatorResult.getException();
         }
@@ -123,49 +498,468 @@ public class JpaAddressBookService implements AddressBookService {
     }
 
     /**
-     * Update a Contact with given Id {@link NotFoundException} will be thrown if it is not already exist.
-     * Validate before saving.
+     * Import Contacts in chunks of {@code addressbook.import.chunk-size} rows. Each chunk is validated with one
+     * query for duplicated emails, then inserted with JDBC batching in its own transaction, so a failure only rolls
+     * back the current chunk. The AddressBook is touched once per chunk. Reading stops at the first row that cannot be
+     * parsed.
+     *
+     * @param addressBookId
+     * @param contacts
+     * @return
+     */
+    @Override
+    public BulkImportResult importContacts(UUID addressBookId, Iterator<Contact> contacts) {
+        if (!addressBookRepository.existsById(addressBookId)) {
+            throw new NotFoundException(String.format("Cannot find address book with id [%s]", addressBookId));
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        BulkImportResult result = new BulkImportResult();
+
+        int row = 0;
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            int firstRow = row;
+            List<Contact> chunk = new ArrayList<>(importChunkSize);
+            try {
+                while (chunk.size() < importChunkSize && contacts.hasNext()) {
+                    chunk.add(contacts.next());
+                    row++;
+                }
+                endOfInput = chunk.size() < importChunkSize;
+            } catch (InvalidException e) {
+                result.reject(row, e.getMessage());
+                endOfInput = true;
+            }
+
+            if (!chunk.isEmpty()) {
+                List<BulkImportResult.RowError> chunkErrors = new ArrayList<>();
+                try {
+                    List<Contact> imported = transactionTemplate.execute(
+                            status -> importChunk(addressBookId, chunk, firstRow, chunkErrors));
+                    result.accept(imported.size());
+                    chunkErrors.forEach(error -> result.reject(error.getRow(), error.getMessage()));
+                    imported.forEach(this::indexContact);
+                    imported.forEach(contact -> eventPublisher.publishEvent(
+                            ChangeEvent.contact(ChangeEvent.Type.CREATED, contact.getId(), addressBookId, null)));
+                } catch (DataIntegrityViolationException e) {
+                    // A concurrent writer inserted one of the emails, the whole chunk is rolled back
+                    for (int i = 0; i < chunk.size(); i++) {
+                        result.reject(firstRow + i, "Contact is already exist in the AddressBook");
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Validate and insert one chunk of Contacts, must be called within a transaction. The persistence context is
+     * flushed and cleared at the end, so the memory used is bounded by the chunk size.
+     *
+     * @return Contacts inserted
+     */
+    private List<Contact> importChunk(UUID addressBookId, List<Contact> chunk, int firstRow, List<BulkImportResult.RowError> errors) {
+        AddressBook addressBook = entityManager.getReference(AddressBook.class, addressBookId);
+
+        Set<String> emails = chunk.stream()
+                .map(Contact::getEmail)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<String> usedEmails = emails.isEmpty()
+                ? new HashSet<>()
+                : new HashSet<>(contactRepository.findExistingEmails(addressBookId, emails));
+
+        List<Contact> imported = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Contact contact = chunk.get(i);
+            contact.setId(null);
+            contact.setAddressBook(addressBook);
+
+            ContactValidatorResult validatorResult = contactValidator.validateFields(contact);
+            if (!validatorResult.getValid()) {
+                errors.add(new BulkImportResult.RowError(firstRow + i, validatorResult.getException().getMessage()));
+            } else if (!usedEmails.add(contact.getEmail())) {
+                errors.add(new BulkImportResult.RowError(firstRow + i, "Contact is already exist in the AddressBook"));
+            } else {
+                imported.add(contact);
+            }
+        }
+
+        if (!imported.isEmpty()) {
+            long syncVersion = nextSyncVersion(addressBookId);
+            for (Contact contact : imported) {
+                contact.setSyncVersion(syncVersion);
+                normalize(contact);
+                contactRepository.save(contact);
+            }
+        }
+
+        contactRepository.flush();
+        entityManager.clear();
+        return imported;
+    }
+
+    /**
+     * Update a Contact with given Id {@link NotFoundException} will be thrown if it or the AddressBook it is put in
+     * does not exist. Only the fields are validated, an email already used in the AddressBook is rejected by the
+     * unique constraint. The AddressBooks it is moved from and to are touched by one statement, then the Contact is
+     * written by a single UPDATE statement taking its sync version from the touched AddressBook, which only applies at
+     * the version carried by the given Contact if any, otherwise {@link ConflictException} is thrown. Without version
+     * the update is unconditional. A tombstone is left in the AddressBook it is moved from.
      *
      * @param contact
      */
     @Override
+    @Transactional
     public void update(UUID id , Contact contact) {
-        ContactValidatorResult validatorResult = contactValidator.validate(contact);
+        ContactValidatorResult validatorResult = contactValidator.validateFields(contact);
 
         if(validatorResult.getValid()) {
-            Optional<Contact> existContact = contactRepository.findById(id);
-            if(existContact.isPresent()) {
-                Contact contactEntity = existContact.get();
-                BeanUtils.copyProperties(contact, contactEntity, "id");
-                contactRepository.save(contactEntity);
-            } else {
+            contact.setId(id);
+            UUID addressBookId = contact.getAddressBook().getId();
+            // Touched before the update, while the Contact still refers to the AddressBook it is moved from
+            int touched = addressBookRepository.touchForContact(id, addressBookId, Instant.now());
+            UUID previousAddressBookId = contactRepository.findAddressBookIdById(id).orElse(null);
+            if (touched < (previousAddressBookId == null || previousAddressBookId.equals(addressBookId) ? 1 : 2)) {
+                throw new NotFoundException(String.format("Cannot find address book with id [%s]", addressBookId));
+            }
+
+            normalize(contact);
+            int updated;
+            try {
+                updated = contactRepository.update(id, contact.getVersion(),
+                        entityManager.getReference(AddressBook.class, addressBookId),
+                        contact.getFirstName(), contact.getMiddleName(), contact.getSurName(), contact.getPhoneNumber(),
+                        contact.getEmail(), contact.getState(), contact.getCountry(),
+                        contact.getNormalizedEmail(), contact.getSurnameKey(), contact.getPhoneE164());
+            } catch (DataIntegrityViolationException e) {
+                throw new InvalidException("Contact is already exist in the AddressBook");
+            }
+
+            if (updated == 0) {
+                if (previousAddressBookId != null) {
+                    throw new ConflictException(String.format("Contact [%s] has been changed since version [%d]",
+                            id, contact.getVersion()));
+                }
                 throw new NotFoundException(String.format("Contact cannot be found with given Id [%s]", id.toString()));
             }
+            if (previousAddressBookId != null && !previousAddressBookId.equals(addressBookId)) {
+                bury(id, previousAddressBookId);
+                contactTombstoneRepository.deleteByContactIdAndAddressBookId(id, addressBookId);
+            }
+            // The previous email is not read, it is counted as removed whether it changed or not
+            contactEmailFilter.markRemoved(previousAddressBookId);
+            indexContact(contact);
+            eventPublisher.publishEvent(ChangeEvent.contact(ChangeEvent.Type.UPDATED,
+                    id, addressBookId, previousAddressBookId));
         } else if (validatorResult.getException() != null) {
             throw validatorResult.getException();
         }
     }
 
     /**
-     * Delete a {@link AddressBook}
+     * Update only the given fields of a Contact with a single UPDATE statement, see {@link #update(UUID, Contact)} for
+     * the version check. Required fields cannot be cleared, and an email already used in the AddressBook is rejected
+     * by the unique constraint.
+     *
+     * @param id
+     * @param changes
+     * @param expectedVersion
+     */
+    @Override
+    @Transactional
+    public void patchContact(UUID id, Map<String, String> changes, Long expectedVersion) {
+        checkPatchable(changes, PATCHABLE_CONTACT_FIELDS, "Contact");
+        if (changes.containsKey("firstName") && changes.get("firstName") == null) {
+            throw new InvalidException("Contact must contain first name");
+        }
+        if (changes.containsKey("email") && changes.get("email") == null) {
+            throw new InvalidException("Contact must contain email address");
+        }
+        if (changes.isEmpty()) {
+            if (!contactRepository.existsById(id)) {
+                throw new NotFoundException(String.format("Contact cannot be found with given Id [%s]", id.toString()));
+            }
+            return;
+        }
+
+        // Touching first locks the AddressBook, so the Contact cannot be moved out of it meanwhile
+        if (addressBookRepository.touchByContact(id, Instant.now()) == 0) {
+            throw new NotFoundException(String.format("Contact cannot be found with given Id [%s]", id.toString()));
+        }
+        UUID addressBookId = contactRepository.findAddressBookIdById(id).get();
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Contact> update = builder.createCriteriaUpdate(Contact.class);
+        Root<Contact> root = update.from(Contact.class);
+        update.set(root.<Long>get("syncVersion"), contentVersion(addressBookId));
+        Map<String, String> columns = new LinkedHashMap<>(changes);
+        if (changes.containsKey("email")) {
+            columns.put("normalizedEmail", ContactNormalizer.email(changes.get("email")));
+        }
+        if (changes.containsKey("surName")) {
+            columns.put("surnameKey", ContactNormalizer.soundex(changes.get("surName")));
+        }
+        int updated;
+        try {
+            updated = executePatch(builder, update, root, id, columns, expectedVersion);
+        } catch (PersistenceException e) {
+            if (e.getCause() instanceof org.hibernate.exception.ConstraintViolationException) {
+                throw new InvalidException("Contact is already exist in the AddressBook");
+            }
+            throw e;
+        }
+
+        if (updated == 0) {
+            if (contactRepository.existsById(id)) {
+                throw new ConflictException(String.format("Contact [%s] has been changed since version [%d]",
+                        id, expectedVersion));
+            }
+            throw new NotFoundException(String.format("Contact cannot be found with given Id [%s]", id.toString()));
+        }
+
+        if (changes.containsKey("firstName") || changes.containsKey("surName")) {
+            contactRepository.findNameById(id).ifPresent(name -> TransactionCallbacks.afterCommit(() -> contactNameIndex.put(
+                    name.getId(), name.getAddressBookId(), name.getFirstName(), name.getSurName())));
+        }
+        if (changes.containsKey("email")) {
+            contactEmailFilter.markRemoved(addressBookId);
+            contactEmailFilter.put(addressBookId, changes.get("email"));
+        }
+        if (changes.containsKey("phoneNumber") || changes.containsKey("country")) {
+            // E.164 depends on both fields, the one not patched is read back
+            contactRepository.findPhoneById(id).ifPresent(phone -> {
+                String e164 = phoneNumberNormalizer.toE164(phone.getPhoneNumber(), phone.getCountry());
+                contactRepository.updatePhoneE164(id, e164);
+                TransactionCallbacks.afterCommit(() -> phoneNumberIndex.put(id, phone.getAddressBookId(), e164));
+            });
+        }
+        eventPublisher.publishEvent(ChangeEvent.contact(ChangeEvent.Type.UPDATED, id, addressBookId, null));
+    }
+
+    /**
+     * Delete a {@link AddressBook} with its Contacts. Both are removed by bulk DELETE statements in one transaction,
+     * nothing is loaded into the persistence context
      *
      * @param id
      */
     @Override
+    @Transactional
     public void delete(UUID id) {
-        Optional<AddressBook> existAddressBook = addressBookRepository.findById(id);
-        existAddressBook.ifPresent(addressBook -> addressBookRepository.delete(addressBook));
+        contactRepository.deleteByAddressBookId(id);
+        contactTombstoneRepository.deleteByAddressBookId(id);
+        if (addressBookRepository.deleteAddressBookById(id) > 0) {
+            eventPublisher.publishEvent(ChangeEvent.addressBook(ChangeEvent.Type.DELETED, id));
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            contactNameIndex.removeAddressBook(id);
+            phoneNumberIndex.removeAddressBook(id);
+        });
+        contactEmailFilter.removeAddressBook(id);
     }
 
     /**
-     * Delete a {@link Contact}
+     * Delete a {@link Contact} by a DELETE statement, after touching its AddressBook, and leave a tombstone in the
+     * AddressBook. Only the Id of its AddressBook is read, the Contact is not loaded
      *
      * @param id
      */
     @Override
+    @Transactional
     public void deleteContact(UUID id) {
-        Optional<Contact> existContact = contactRepository.findById(id);
-        existContact.ifPresent(contact -> contactRepository.delete(contact));
+        if (addressBookRepository.touchByContact(id, Instant.now()) > 0) {
+            UUID addressBookId = contactRepository.findAddressBookIdById(id).get();
+            contactRepository.deleteContactById(id);
+            bury(id, addressBookId);
+            contactEmailFilter.markRemoved(addressBookId);
+            eventPublisher.publishEvent(ChangeEvent.contact(ChangeEvent.Type.DELETED, id, addressBookId, null));
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            contactNameIndex.remove(id);
+            phoneNumberIndex.remove(id);
+        });
     }
 
+    /**
+     * Save a Contact. A concurrent insert of the same email into the AddressBook can pass validation, in which case
+     * the unique constraint on (addressBookId, email) rejects it and it is reported as {@link InvalidException}. The
+     * insert is flushed, so the violation surfaces here rather than at commit
+     *
+     * @param contact
+     */
+    private void saveContact(Contact contact) {
+        try {
+            contactRepository.saveAndFlush(contact);
+        } catch (DataIntegrityViolationException e) {
+            throw new InvalidException("Contact is already exist in the AddressBook");
+        }
+    }
+
+    /**
+     * Reject a patch changing a field that is unknown or cannot be changed
+     *
+     * @param changes
+     * @param patchable
+     * @param entityName
+     */
+    private static void checkPatchable(Map<String, String> changes, Set<String> patchable, String entityName) {
+        for (String field : changes.keySet()) {
+            if (!patchable.contains(field)) {
+                throw new InvalidException(String.format("%s field [%s] cannot be patched", entityName, field));
+            }
+        }
+    }
+
+    /**
+     * Complete a criteria update with the patched fields bound as parameters and the version bump, restricted to the
+     * given Id and expected version, then execute it
+     *
+     * @return number of rows updated
+     */
+    private <T> int executePatch(CriteriaBuilder builder, CriteriaUpdate<T> update, Root<T> root, UUID id,
+                                 Map<String, String> changes, Long expectedVersion) {
+        Map<ParameterExpression<String>, String> values = new LinkedHashMap<>();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            ParameterExpression<String> value = builder.parameter(String.class, change.getKey());
+            update.set(root.<String>get(change.getKey()), value);
+            values.put(value, change.getValue());
+        }
+        update.set(root.<Long>get("version"), builder.sum(root.<Long>get("version"), 1L));
+
+        ParameterExpression<UUID> idParameter = builder.parameter(UUID.class, "id");
+        ParameterExpression<Long> versionParameter = builder.parameter(Long.class, "version");
+        Predicate where = builder.equal(root.get("id"), idParameter);
+        if (expectedVersion != null) {
+            where = builder.and(where, builder.equal(root.get("version"), versionParameter));
+        }
+        update.where(where);
+
+        Query query = entityManager.createQuery(update);
+        values.forEach(query::setParameter);
+        query.setParameter(idParameter, id);
+        if (expectedVersion != null) {
+            query.setParameter(versionParameter, expectedVersion);
+        }
+        return query.executeUpdate();
+    }
+
+    /**
+     * Mark the given AddressBooks as modified now and bump their content version, after one of their Contacts changed
+     *
+     * @param addressBookIds
+     */
+    private void touchAddressBook(UUID... addressBookIds) {
+        addressBookRepository.touch(new HashSet<>(Arrays.asList(addressBookIds)), Instant.now());
+    }
+
+    /**
+     * Touch an AddressBook and return its new content version, used as sync version of the Contacts written with it.
+     * {@link NotFoundException} will be thrown if the AddressBook doesn't exist
+     *
+     * @param addressBookId
+     * @return
+     */
+    private long nextSyncVersion(UUID addressBookId) {
+        touchAddressBook(addressBookId);
+        return contentVersion(addressBookId);
+    }
+
+    private long contentVersion(UUID addressBookId) {
+        return addressBookRepository.findContentVersionById(addressBookId).orElseThrow(() ->
+                new NotFoundException(String.format("Cannot find address book with id [%s]", addressBookId)));
+    }
+
+    /**
+     * Record that a Contact was removed from an AddressBook, at the current content version of the AddressBook. The
+     * AddressBook must have been touched in the current transaction
+     *
+     * @param contactId
+     * @param addressBookId
+     */
+    private void bury(UUID contactId, UUID addressBookId) {
+        ContactTombstone tombstone = new ContactTombstone();
+        tombstone.setContactId(contactId);
+        tombstone.setAddressBook(entityManager.getReference(AddressBook.class, addressBookId));
+        tombstone.setSyncVersion(contentVersion(addressBookId));
+        tombstone.setDeletedAt(Instant.now());
+        contactTombstoneRepository.save(tombstone);
+    }
+
+    /**
+     * Set the normalized fields of a Contact, used to find duplicates and to look up phone numbers
+     *
+     * @param contact
+     */
+    private void normalize(Contact contact) {
+        contact.setNormalizedEmail(ContactNormalizer.email(contact.getEmail()));
+        contact.setSurnameKey(ContactNormalizer.soundex(contact.getSurName()));
+        contact.setPhoneE164(phoneNumberNormalizer.toE164(contact.getPhoneNumber(), contact.getCountry()));
+    }
+
+    /**
+     * Reflect a saved Contact in the in memory indexes once the transaction saving it commits
+     *
+     * @param contact
+     */
+    private void indexContact(Contact contact) {
+        UUID id = contact.getId();
+        UUID addressBookId = contact.getAddressBook().getId();
+        String firstName = contact.getFirstName();
+        String surName = contact.getSurName();
+        String e164 = contact.getPhoneE164();
+        TransactionCallbacks.afterCommit(() -> {
+            contactNameIndex.put(id, addressBookId, firstName, surName);
+            phoneNumberIndex.put(id, addressBookId, e164);
+        });
+        contactEmailFilter.put(contact.getAddressBook().getId(), contact.getEmail());
+    }
+
+
+    /**
+     * Position of a client in the changes of an AddressBook, carried by its sync token. The token of a page left
+     * before the end also carries the sync version the client started from, and the last Contact returned
+     */
+    private static class SyncPosition {
+
+        private static final SyncPosition FULL = new SyncPosition(-1, -1, null);
+
+        // Sync version the client started from, -1 for a full sync
+        private final long from;
+
+        private final long syncVersion;
+
+        // Last Contact returned with the sync version, null when every Contact with it was returned
+        private final UUID lastId;
+
+        private SyncPosition(long from, long syncVersion, UUID lastId) {
+            this.from = from;
+            this.syncVersion = syncVersion;
+            this.lastId = lastId;
+        }
+
+        private String encode() {
+            return PageToken.encode(lastId == null
+                    ? Long.toString(syncVersion)
+                    : from + ":" + syncVersion + ":" + lastId);
+        }
+
+        private static SyncPosition decode(String token) {
+            String[] parts = PageToken.decode(token).split(":");
+            try {
+                if (parts.length == 1) {
+                    long syncVersion = Long.parseLong(parts[0]);
+                    return new SyncPosition(syncVersion, syncVersion, null);
+                }
+                if (parts.length == 3) {
+                    return new SyncPosition(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                            UUID.fromString(parts[2]));
+                }
+            } catch (IllegalArgumentException e) {
+                // Reported below
+            }
+            throw new InvalidException(String.format("Invalid sync token [%s]", token));
+        }
+    }
 }
@@ -0,0 +1,252 @@
+package addressbook.service.addressbook.metricsimpl;
+
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.model.view.AddressBookSummary;
+import addressbook.model.view.AddressBookVersion;
+import addressbook.model.view.AddressBookView;
+import addressbook.service.addressbook.AddressBookService;
+import addressbook.service.addressbook.BulkImportResult;
+import addressbook.service.addressbook.ContactChanges;
+import addressbook.service.addressbook.ContactPage;
+import addressbook.service.addressbook.ContactSearchCriteria;
+import addressbook.service.addressbook.autocomplete.ContactSuggestion;
+import addressbook.service.exception.ConflictException;
+import addressbook.service.exception.InvalidException;
+import addressbook.service.exception.NotFoundException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+
+/**
+ * Record Micrometer metrics for every call to another {@link AddressBookService}.
+ *
+ * Each call is timed by the '{@value #TIMER_NAME}' timer, tagged with the method name and its outcome. The outcome is
+ * 'not_found' when the method throws {@link NotFoundException} or returns an empty Optional, 'invalid' on
+ * {@link InvalidException}, 'conflict' on {@link ConflictException}, 'error' on any other exception, and 'success'
+ * otherwise. Timers publish percentile histograms. The number of items returned by listing methods is recorded by the
+ * '{@value #RESULT_SIZE_NAME}' distribution summary.
+ *
+ */
+public class MeteredAddressBookService implements AddressBookService {
+
+    public static final String TIMER_NAME = "addressbook.service";
+
+    public static final String RESULT_SIZE_NAME = "addressbook.service.result.size";
+
+    private static final String OUTCOME_SUCCESS = "success";
+
+    private static final String OUTCOME_NOT_FOUND = "not_found";
+
+    private static final String OUTCOME_INVALID = "invalid";
+
+    private static final String OUTCOME_CONFLICT = "conflict";
+
+    private static final String OUTCOME_ERROR = "error";
+
+    private final AddressBookService delegate;
+
+    private final MeterRegistry meterRegistry;
+
+    // Meters by method and outcome, so the hot path doesn't build meter ids
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final Map<String, DistributionSummary> resultSizes = new ConcurrentHashMap<>();
+
+    public MeteredAddressBookService(AddressBookService delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Optional<AddressBook> get(UUID id) {
+        return record("get", () -> delegate.get(id));
+    }
+
+    @Override
+    public List<AddressBookView> list() {
+        List<AddressBookView> addressBooks = record("list", delegate::list);
+        resultSize("list").record(addressBooks.size());
+        return addressBooks;
+    }
+
+    @Override
+    public Optional<AddressBookSummary> getSummary(UUID id) {
+        return record("getSummary", () -> delegate.getSummary(id));
+    }
+
+    @Override
+    public List<AddressBookSummary> listSummaries() {
+        List<AddressBookSummary> summaries = record("listSummaries", delegate::listSummaries);
+        resultSize("listSummaries").record(summaries.size());
+        return summaries;
+    }
+
+    @Override
+    public Optional<AddressBookVersion> getVersion(UUID id) {
+        return record("getVersion", () -> delegate.getVersion(id));
+    }
+
+    @Override
+    public Optional<Long> getContactVersion(UUID id) {
+        return record("getContactVersion", () -> delegate.getContactVersion(id));
+    }
+
+    @Override
+    public Optional<UUID> getContactAddressBookId(UUID id) {
+        return record("getContactAddressBookId", () -> delegate.getContactAddressBookId(id));
+    }
+
+    @Override
+    public void create(AddressBook addressBook) {
+        run("createAddressBook", () -> delegate.create(addressBook));
+    }
+
+    @Override
+    public void create(Contact contact) {
+        run("create", () -> delegate.create(contact));
+    }
+
+    @Override
+    public BulkImportResult importContacts(UUID addressBookId, Iterator<Contact> contacts) {
+        BulkImportResult result = record("importContacts", () -> delegate.importContacts(addressBookId, contacts));
+        resultSize("importContacts").record(result.getImported());
+        return result;
+    }
+
+    @Override
+    public void update(UUID id, AddressBook addressBook) {
+        run("updateAddressBook", () -> delegate.update(id, addressBook));
+    }
+
+    @Override
+    public void patch(UUID id, Map<String, String> changes, Long expectedVersion) {
+        run("patchAddressBook", () -> delegate.patch(id, changes, expectedVersion));
+    }
+
+    @Override
+    public Optional<Contact> getContact(UUID id) {
+        return record("getContact", () -> delegate.getContact(id));
+    }
+
+    @Override
+    public ContactPage getAllUniqueContact(String next, int limit) {
+        ContactPage page = record("getAllUniqueContact", () -> delegate.getAllUniqueContact(next, limit));
+        resultSize("getAllUniqueContact").record(page.getContacts().size());
+        return page;
+    }
+
+    @Override
+    public Page<Contact> searchContacts(ContactSearchCriteria criteria, Pageable pageable) {
+        Page<Contact> page = record("searchContacts", () -> delegate.searchContacts(criteria, pageable));
+        resultSize("searchContacts").record(page.getNumberOfElements());
+        return page;
+    }
+
+    @Override
+    public List<ContactSuggestion> autocomplete(UUID addressBookId, String prefix, int limit) {
+        List<ContactSuggestion> suggestions = record("autocomplete", () -> delegate.autocomplete(addressBookId, prefix, limit));
+        resultSize("autocomplete").record(suggestions.size());
+        return suggestions;
+    }
+
+    @Override
+    public List<UUID> lookupPhoneNumber(String phoneNumber, String country) {
+        List<UUID> ids = record("lookupPhoneNumber", () -> delegate.lookupPhoneNumber(phoneNumber, country));
+        resultSize("lookupPhoneNumber").record(ids.size());
+        return ids;
+    }
+
+    @Override
+    public void exportContacts(UUID addressBookId, Consumer<Contact> consumer) {
+        long[] count = new long[1];
+        run("exportContacts", () -> delegate.exportContacts(addressBookId, contact -> {
+            count[0]++;
+            consumer.accept(contact);
+        }));
+        resultSize("exportContacts").record(count[0]);
+    }
+
+    @Override
+    public ContactChanges getContactChanges(UUID addressBookId, String since, int limit) {
+        ContactChanges changes = record("getContactChanges", () -> delegate.getContactChanges(addressBookId, since, limit));
+        resultSize("getContactChanges").record(changes.getContacts().size() + changes.getDeleted().size());
+        return changes;
+    }
+
+    @Override
+    public void update(UUID id, Contact contact) {
+        run("update", () -> delegate.update(id, contact));
+    }
+
+    @Override
+    public void patchContact(UUID id, Map<String, String> changes, Long expectedVersion) {
+        run("patchContact", () -> delegate.patchContact(id, changes, expectedVersion));
+    }
+
+    @Override
+    public void delete(UUID id) {
+        run("delete", () -> delegate.delete(id));
+    }
+
+    @Override
+    public void deleteContact(UUID id) {
+        run("deleteContact", () -> delegate.deleteContact(id));
+    }
+
+    private <T> T record(String method, Supplier<T> operation) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = OUTCOME_ERROR;
+        try {
+            T result = operation.get();
+            outcome = result instanceof Optional && !((Optional<?>) result).isPresent() ? OUTCOME_NOT_FOUND : OUTCOME_SUCCESS;
+            return result;
+        } catch (NotFoundException e) {
+            outcome = OUTCOME_NOT_FOUND;
+            throw e;
+        } catch (InvalidException e) {
+            outcome = OUTCOME_INVALID;
+            throw e;
+        } catch (ConflictException e) {
+            outcome = OUTCOME_CONFLICT;
+            throw e;
+        } finally {
+            sample.stop(timer(method, outcome));
+        }
+    }
+
+    private void run(String method, Runnable operation) {
+        record(method, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    private Timer timer(String method, String outcome) {
+        return timers.computeIfAbsent(method + ':' + outcome, key -> Timer.builder(TIMER_NAME)
+                .description("Time spent in AddressBookService")
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private DistributionSummary resultSize(String method) {
+        return resultSizes.computeIfAbsent(method, key -> DistributionSummary.builder(RESULT_SIZE_NAME)
+                .description("Number of items returned by AddressBookService")
+                .tag("method", method)
+                .register(meterRegistry));
+    }
+}
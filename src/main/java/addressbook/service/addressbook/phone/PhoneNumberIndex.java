@@ -0,0 +1,296 @@
+package addressbook.service.addressbook.phone;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+
+/**
+ * In memory index from phone number in E.164 format to the Ids of the Contacts using it.
+ *
+ * Numbers are kept as longs in an open addressing hash table with linear probing, one slot per Contact, so a lookup
+ * reads a few adjacent array cells and allocates nothing but its result. The table is at most half full and doubles
+ * when needed, removed slots are filled back by shifting the following ones, so no tombstone slows down lookups.
+ *
+ * Lookups first run without locking and are validated by a {@link StampedLock}, they only take the read lock when a
+ * write happened meanwhile. Writes take the write lock.
+ *
+ * The index is kept in sync by the service writing Contacts, it is not aware of changes made to DB by other means.
+ *
+ */
+@Component
+@Profile("!reactive")
+public class PhoneNumberIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // No E.164 number is 0
+    private static final long EMPTY = 0;
+
+    private final StampedLock lock = new StampedLock();
+
+    // Replaced as a whole when resized or loaded, guarded by lock
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+
+    // Contact Id to what it is indexed under, so a Contact can be removed knowing its Id only, guarded by lock
+    private Map<UUID, IndexedPhone> contacts = new HashMap<>();
+
+    // Writes made while loading, replayed on the loaded content, guarded by lock
+    private List<Consumer<PhoneNumberIndex>> pendingWrites;
+
+    /**
+     * Add a Contact to the index, or replace it if it is already indexed. A Contact without number is only removed
+     *
+     * @param id
+     * @param addressBookId
+     * @param e164 number in E.164 format, or null
+     */
+    public void put(UUID id, UUID addressBookId, String e164) {
+        write(index -> index.putLocked(id, addressBookId, e164));
+    }
+
+    public void remove(UUID id) {
+        write(index -> index.removeLocked(id));
+    }
+
+    public void removeAddressBook(UUID addressBookId) {
+        write(index -> index.removeAddressBookLocked(addressBookId));
+    }
+
+    /**
+     * Replace the content of the index by what the loader puts into an empty index. Lookups are served from the
+     * current content until then. Writes made meanwhile are applied to the current content and replayed on the loaded
+     * one before it replaces it, so a write committed after the loader read DB is not lost
+     *
+     * @param loader
+     */
+    public void load(Consumer<PhoneNumberIndex> loader) {
+        long stamp = lock.writeLock();
+        try {
+            if (pendingWrites != null) {
+                throw new IllegalStateException("Phone number index is already loading");
+            }
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        PhoneNumberIndex loaded = new PhoneNumberIndex();
+        boolean completed = false;
+        try {
+            loader.accept(loaded);
+            completed = true;
+        } finally {
+            stamp = lock.writeLock();
+            try {
+                if (completed) {
+                    pendingWrites.forEach(change -> change.accept(loaded));
+                    table = loaded.table;
+                    contacts = loaded.contacts;
+                }
+                pendingWrites = null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Return the Ids of the Contacts using a number
+     *
+     * @param e164 number in E.164 format
+     * @return
+     */
+    public List<UUID> lookup(String e164) {
+        long key = PhoneNumberNormalizer.toKey(e164);
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                List<UUID> ids = table.find(key);
+                if (lock.validate(stamp)) {
+                    return ids;
+                }
+            } catch (RuntimeException e) {
+                // The table was changed while being read, read it again under lock
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return table.find(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return table.size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void write(Consumer<PhoneNumberIndex> change) {
+        long stamp = lock.writeLock();
+        try {
+            change.accept(this);
+            if (pendingWrites != null) {
+                pendingWrites.add(change);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void putLocked(UUID id, UUID addressBookId, String e164) {
+        removeLocked(id);
+        if (e164 != null) {
+            long key = PhoneNumberNormalizer.toKey(e164);
+            if ((table.size + 1) * 2 > table.keys.length) {
+                table = table.resize(table.keys.length * 2);
+            }
+            table.insert(key, id);
+            contacts.put(id, new IndexedPhone(key, addressBookId));
+        }
+    }
+
+    private void removeLocked(UUID id) {
+        IndexedPhone indexed = contacts.remove(id);
+        if (indexed != null) {
+            table.delete(indexed.key, id);
+        }
+    }
+
+    private void removeAddressBookLocked(UUID addressBookId) {
+        List<UUID> removed = new ArrayList<>();
+        contacts.forEach((id, indexed) -> {
+            if (addressBookId.equals(indexed.addressBookId)) {
+                removed.add(id);
+            }
+        });
+        removed.forEach(this::removeLocked);
+    }
+
+
+    /**
+     * Slots of the hash table, a number and the two halves of a Contact Id in parallel arrays
+     */
+    private static class Table {
+
+        private final long[] keys;
+
+        private final long[] mostSignificantBits;
+
+        private final long[] leastSignificantBits;
+
+        private final int mask;
+
+        private int size;
+
+        private Table(int capacity) {
+            keys = new long[capacity];
+            mostSignificantBits = new long[capacity];
+            leastSignificantBits = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        private List<UUID> find(long key) {
+            List<UUID> ids = new ArrayList<>(1);
+            // Bounded by the capacity, so a read racing with a writer cannot loop forever
+            for (int i = slot(key), probes = 0; keys[i] != EMPTY && probes <= mask; i = (i + 1) & mask, probes++) {
+                if (keys[i] == key) {
+                    ids.add(new UUID(mostSignificantBits[i], leastSignificantBits[i]));
+                }
+            }
+            return ids;
+        }
+
+        private void insert(long key, UUID id) {
+            int i = slot(key);
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            mostSignificantBits[i] = id.getMostSignificantBits();
+            leastSignificantBits[i] = id.getLeastSignificantBits();
+            size++;
+        }
+
+        private void delete(long key, UUID id) {
+            int i = slot(key);
+            while (keys[i] != EMPTY) {
+                if (keys[i] == key && mostSignificantBits[i] == id.getMostSignificantBits()
+                        && leastSignificantBits[i] == id.getLeastSignificantBits()) {
+                    shiftBack(i);
+                    size--;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        /**
+         * Empty a slot, moving back the following slots of the cluster that would no longer be reachable
+         */
+        private void shiftBack(int hole) {
+            int i = hole;
+            while (true) {
+                i = (i + 1) & mask;
+                if (keys[i] == EMPTY) {
+                    break;
+                }
+                int home = slot(keys[i]);
+                // Move the slot into the hole unless its home lies cyclically within (hole, i]
+                boolean reachable = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+                if (!reachable) {
+                    keys[hole] = keys[i];
+                    mostSignificantBits[hole] = mostSignificantBits[i];
+                    leastSignificantBits[hole] = leastSignificantBits[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = EMPTY;
+            mostSignificantBits[hole] = 0;
+            leastSignificantBits[hole] = 0;
+        }
+
+        private Table resize(int capacity) {
+            Table resized = new Table(capacity);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) {
+                    resized.insert(keys[i], new UUID(mostSignificantBits[i], leastSignificantBits[i]));
+                }
+            }
+            return resized;
+        }
+
+        private int slot(long key) {
+            // Spread the bits of the number, consecutive numbers would otherwise fill adjacent slots
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+
+
+    private static class IndexedPhone {
+
+        private final long key;
+
+        private final UUID addressBookId;
+
+        private IndexedPhone(long key, UUID addressBookId) {
+            this.key = key;
+            this.addressBookId = addressBookId;
+        }
+    }
+}
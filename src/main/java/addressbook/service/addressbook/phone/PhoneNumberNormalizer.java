@@ -0,0 +1,75 @@
+package addressbook.service.addressbook.phone;
+
+import com.google.i18n.phonenumbers.NumberParseException;
+import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import com.google.i18n.phonenumbers.Phonenumber;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * Normalize phone numbers to E.164 with libphonenumber. A number without international prefix is read as a number of
+ * the Contact's country, given as ISO code or English name, or of {@code addressbook.phone.default-region} when the
+ * country is unknown.
+ *
+ */
+@Component
+public class PhoneNumberNormalizer {
+
+    private static final PhoneNumberUtil PHONE_NUMBER_UTIL = PhoneNumberUtil.getInstance();
+
+    private final String defaultRegion;
+
+    // Lower case ISO code and English name of each country to its region code
+    private final Map<String, String> regions = new HashMap<>();
+
+    public PhoneNumberNormalizer(@Value("${addressbook.phone.default-region:AU}") String defaultRegion) {
+        this.defaultRegion = defaultRegion.toUpperCase(Locale.ROOT);
+        for (String region : Locale.getISOCountries()) {
+            regions.put(region.toLowerCase(Locale.ROOT), region);
+            regions.put(new Locale("", region).getDisplayCountry(Locale.ENGLISH).toLowerCase(Locale.ROOT), region);
+        }
+    }
+
+    /**
+     * Return a phone number in E.164 format, such as '+61412345678', or null if it is missing or not a valid number
+     *
+     * @param phoneNumber
+     * @param country
+     * @return
+     */
+    public String toE164(String phoneNumber, String country) {
+        if (phoneNumber == null || phoneNumber.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            Phonenumber.PhoneNumber parsed = PHONE_NUMBER_UTIL.parse(phoneNumber, region(country));
+            return PHONE_NUMBER_UTIL.isValidNumber(parsed)
+                    ? PHONE_NUMBER_UTIL.format(parsed, PhoneNumberUtil.PhoneNumberFormat.E164)
+                    : null;
+        } catch (NumberParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Return a number in E.164 format as a long, the digits after '+' are unique for each number
+     *
+     * @param e164
+     * @return
+     */
+    public static long toKey(String e164) {
+        return Long.parseLong(e164.substring(1));
+    }
+
+    private String region(String country) {
+        if (country == null) {
+            return defaultRegion;
+        }
+        return regions.getOrDefault(country.trim().toLowerCase(Locale.ROOT), defaultRegion);
+    }
+}
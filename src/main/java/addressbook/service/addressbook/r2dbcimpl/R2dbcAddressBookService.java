@@ -0,0 +1,402 @@
+package addressbook.service.addressbook.r2dbcimpl;
+
+import addressbook.model.id.TimeOrderedUuidGenerator;
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.model.view.AddressBookSummary;
+import addressbook.model.view.AddressBookView;
+import addressbook.service.addressbook.ReactiveAddressBookService;
+import addressbook.service.addressbook.contactvalidator.ContactValidator;
+import addressbook.service.addressbook.contactvalidator.ContactValidatorResult;
+import addressbook.service.addressbook.duplicate.ContactNormalizer;
+import addressbook.service.addressbook.phone.PhoneNumberNormalizer;
+import addressbook.service.exception.ConflictException;
+import addressbook.service.exception.InvalidException;
+import addressbook.service.exception.NotFoundException;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+
+/**
+ * This class access AddressBook and Contact in DataBase with R2DBC, on the schema created by the JPA mapping. It keeps
+ * the same versions and last modified times as {@link addressbook.service.addressbook.jpaimpl.JpaAddressBookService},
+ * so both can serve the same data. Ids are stored as characters, binary id storage is not supported.
+ *
+ * The in memory name and phone number indexes and the email filter of the JPA service are not kept by this service,
+ * they are not started in the 'reactive' profile: the email uniqueness is checked by query, and autocomplete and phone
+ * lookup are not served. An instance of the default profile sharing the DB only indexes Contacts written here once
+ * restarted.
+ *
+ */
+@Service
+@Profile("reactive")
+public class R2dbcAddressBookService implements ReactiveAddressBookService {
+
+    private static final String SELECT_ADDRESS_BOOK = "SELECT id, name, lastModified, version, contentVersion FROM AddressBook";
+
+    private static final String SELECT_SUMMARY = "SELECT b.id, b.name, b.lastModified, COUNT(c.id) AS contactCount "
+            + "FROM AddressBook b LEFT JOIN Contact c ON c.addressBookId = b.id";
+
+    private static final String GROUP_SUMMARY = " GROUP BY b.id, b.name, b.lastModified";
+
+    private static final String SELECT_CONTACT = "SELECT id, firstName, middleName, surName, phoneNumber, email, "
+            + "state, country, addressBookId, version FROM Contact";
+
+    private static final String TOUCH_ADDRESS_BOOK = "UPDATE AddressBook SET lastModified = :lastModified, "
+            + "contentVersion = contentVersion + 1 WHERE id = :addressBookId";
+
+    // Content version the AddressBook was touched to, the sync version of a Contact written with it
+    private static final String SYNC_VERSION = "(SELECT contentVersion FROM AddressBook WHERE id = :addressBookId)";
+
+    // Leave a tombstone in the AddressBook a Contact is in, at its content version. Must run after touching it
+    private static final String BURY_CONTACT = "INSERT INTO ContactTombstone (id, version, contactId, addressBookId, "
+            + "syncVersion, deletedAt) SELECT :tombstoneId, 0, c.id, c.addressBookId, b.contentVersion, :deletedAt "
+            + "FROM Contact c JOIN AddressBook b ON b.id = c.addressBookId WHERE c.id = :id";
+
+    private final DatabaseClient databaseClient;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final ContactValidator contactValidator;
+
+    private final PhoneNumberNormalizer phoneNumberNormalizer;
+
+    public R2dbcAddressBookService(DatabaseClient databaseClient,
+                                   TransactionalOperator reactiveTransactionalOperator,
+                                   ContactValidator contactValidator,
+                                   PhoneNumberNormalizer phoneNumberNormalizer) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = reactiveTransactionalOperator;
+        this.contactValidator = contactValidator;
+        this.phoneNumberNormalizer = phoneNumberNormalizer;
+    }
+
+    @Override
+    public Mono<AddressBook> get(UUID id) {
+        return databaseClient.sql(SELECT_ADDRESS_BOOK + " WHERE id = :id")
+                .bind("id", id.toString())
+                .map((row, metadata) -> toAddressBook(row))
+                .one();
+    }
+
+    @Override
+    public Flux<AddressBookView> list() {
+        return databaseClient.sql(SELECT_ADDRESS_BOOK)
+                .map((row, metadata) -> new AddressBookView(uuid(row, "id"), row.get("name", String.class),
+                        instant(row, "lastModified")))
+                .all();
+    }
+
+    @Override
+    public Mono<AddressBookSummary> getSummary(UUID id) {
+        return databaseClient.sql(SELECT_SUMMARY + " WHERE b.id = :id" + GROUP_SUMMARY)
+                .bind("id", id.toString())
+                .map((row, metadata) -> toSummary(row))
+                .one();
+    }
+
+    @Override
+    public Flux<AddressBookSummary> listSummaries() {
+        return databaseClient.sql(SELECT_SUMMARY + GROUP_SUMMARY)
+                .map((row, metadata) -> toSummary(row))
+                .all();
+    }
+
+    @Override
+    public Mono<UUID> create(AddressBook addressBook) {
+        UUID id = TimeOrderedUuidGenerator.next();
+        return bind(databaseClient.sql("INSERT INTO AddressBook (id, name, lastModified, version, contentVersion, "
+                        + "minSyncVersion) VALUES (:id, :name, :lastModified, 0, 0, 0)")
+                        .bind("id", id.toString())
+                        .bind("lastModified", LocalDateTime.now()), "name", addressBook.getName())
+                .fetch().rowsUpdated()
+                .thenReturn(id);
+    }
+
+    /**
+     * Update an AddressBook with a single UPDATE statement, {@link NotFoundException} or {@link ConflictException} is
+     * signalled when no row is updated
+     *
+     * @param id
+     * @param addressBook
+     * @return
+     */
+    @Override
+    public Mono<Void> update(UUID id, AddressBook addressBook) {
+        DatabaseClient.GenericExecuteSpec update = databaseClient.sql("UPDATE AddressBook SET name = :name, "
+                + "lastModified = :lastModified, version = version + 1 "
+                + "WHERE id = :id AND (:version IS NULL OR version = :version)")
+                .bind("id", id.toString())
+                .bind("lastModified", LocalDateTime.now());
+        update = bind(update, "name", addressBook.getName());
+        update = addressBook.getVersion() == null
+                ? update.bindNull("version", Long.class)
+                : update.bind("version", addressBook.getVersion());
+
+        return update.fetch().rowsUpdated()
+                .flatMap(updated -> updated > 0 ? Mono.<Void>empty() : this.<Void>notUpdated("AddressBook", id, addressBook.getVersion()));
+    }
+
+    @Override
+    public Mono<Void> delete(UUID id) {
+        return databaseClient.sql("DELETE FROM Contact WHERE addressBookId = :id")
+                .bind("id", id.toString())
+                .fetch().rowsUpdated()
+                .then(databaseClient.sql("DELETE FROM ContactTombstone WHERE addressBookId = :id")
+                        .bind("id", id.toString())
+                        .fetch().rowsUpdated())
+                .then(databaseClient.sql("DELETE FROM AddressBook WHERE id = :id")
+                        .bind("id", id.toString())
+                        .fetch().rowsUpdated())
+                .as(transactionalOperator::transactional)
+                .then();
+    }
+
+    @Override
+    public Mono<Contact> getContact(UUID id) {
+        return databaseClient.sql(SELECT_CONTACT + " WHERE id = :id")
+                .bind("id", id.toString())
+                .map((row, metadata) -> toContact(row))
+                .one();
+    }
+
+    @Override
+    public Flux<Contact> getContacts(UUID addressBookId) {
+        return get(addressBookId)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException(
+                        String.format("Cannot find address book with id [%s]", addressBookId))))
+                .thenMany(databaseClient.sql(SELECT_CONTACT + " WHERE addressBookId = :addressBookId")
+                        .bind("addressBookId", addressBookId.toString())
+                        .map((row, metadata) -> toContact(row))
+                        .all());
+    }
+
+    /**
+     * Validate then insert a Contact. The AddressBook is touched first, which also tells whether it exists
+     *
+     * @param addressBookId
+     * @param contact
+     * @return
+     */
+    @Override
+    public Mono<UUID> create(UUID addressBookId, Contact contact) {
+        UUID id = TimeOrderedUuidGenerator.next();
+        return validate(addressBookId, contact)
+                .then(touch(addressBookId))
+                .flatMap(touched -> touched > 0
+                        ? Mono.<Void>empty()
+                        : Mono.error(new NotFoundException(String.format("Cannot find address book with id [%s]", addressBookId))))
+                .then(checkDuplicate(addressBookId, null, contact.getEmail()))
+                .then(bindContact(databaseClient.sql("INSERT INTO Contact (id, firstName, middleName, surName, "
+                        + "phoneNumber, email, state, country, normalizedEmail, surnameKey, phoneE164, addressBookId, version, "
+                        + "syncVersion) VALUES (:id, :firstName, :middleName, :surName, :phoneNumber, :email, :state, "
+                        + ":country, :normalizedEmail, :surnameKey, :phoneE164, :addressBookId, 0, " + SYNC_VERSION + ")"),
+                        id, addressBookId, contact)
+                        .fetch().rowsUpdated())
+                .onErrorMap(DataIntegrityViolationException.class,
+                        e -> new InvalidException("Contact is already exist in the AddressBook"))
+                .as(transactionalOperator::transactional)
+                .thenReturn(id);
+    }
+
+    /**
+     * Validate then update a Contact with a single UPDATE statement. The AddressBook it is moved to is touched first,
+     * which also tells whether it exists, then the one it is moved from, in the same transaction, and a tombstone is
+     * left in the latter
+     *
+     * @param addressBookId
+     * @param id
+     * @param contact
+     * @return
+     */
+    @Override
+    public Mono<Void> update(UUID addressBookId, UUID id, Contact contact) {
+        DatabaseClient.GenericExecuteSpec update = bindContact(databaseClient.sql("UPDATE Contact SET "
+                + "firstName = :firstName, middleName = :middleName, surName = :surName, phoneNumber = :phoneNumber, "
+                + "email = :email, state = :state, country = :country, normalizedEmail = :normalizedEmail, "
+                + "surnameKey = :surnameKey, phoneE164 = :phoneE164, addressBookId = :addressBookId, syncVersion = " + SYNC_VERSION + ", version = version + 1 "
+                + "WHERE id = :id AND (:version IS NULL OR version = :version)"), id, addressBookId, contact);
+        update = contact.getVersion() == null
+                ? update.bindNull("version", Long.class)
+                : update.bind("version", contact.getVersion());
+
+        return validate(addressBookId, contact)
+                .then(touch(addressBookId))
+                .flatMap(touched -> touched > 0
+                        ? Mono.<Void>empty()
+                        : Mono.error(new NotFoundException(String.format("Cannot find address book with id [%s]", addressBookId))))
+                .then(checkDuplicate(addressBookId, id, contact.getEmail()))
+                .then(databaseClient.sql("UPDATE AddressBook SET lastModified = :lastModified, contentVersion = contentVersion + 1 "
+                        + "WHERE id IN (SELECT addressBookId FROM Contact WHERE id = :id) AND id <> :addressBookId")
+                        .bind("lastModified", LocalDateTime.now())
+                        .bind("addressBookId", addressBookId.toString())
+                        .bind("id", id.toString())
+                        .fetch().rowsUpdated())
+                .then(bury(id, " AND c.addressBookId <> :addressBookId").bind("addressBookId", addressBookId.toString())
+                        .fetch().rowsUpdated())
+                .then(databaseClient.sql("DELETE FROM ContactTombstone WHERE contactId = :id AND addressBookId = :addressBookId")
+                        .bind("id", id.toString())
+                        .bind("addressBookId", addressBookId.toString())
+                        .fetch().rowsUpdated())
+                .then(update.fetch().rowsUpdated())
+                .flatMap(updated -> updated > 0 ? Mono.<Void>empty() : this.<Void>notUpdated("Contact", id, contact.getVersion()))
+                .onErrorMap(DataIntegrityViolationException.class,
+                        e -> new InvalidException("Contact is already exist in the AddressBook"))
+                .as(transactionalOperator::transactional);
+    }
+
+    @Override
+    public Mono<Void> deleteContact(UUID id) {
+        return databaseClient.sql("UPDATE AddressBook SET lastModified = :lastModified, contentVersion = contentVersion + 1 "
+                        + "WHERE id IN (SELECT addressBookId FROM Contact WHERE id = :id)")
+                .bind("lastModified", LocalDateTime.now())
+                .bind("id", id.toString())
+                .fetch().rowsUpdated()
+                .then(bury(id, "").fetch().rowsUpdated())
+                .then(databaseClient.sql("DELETE FROM Contact WHERE id = :id")
+                        .bind("id", id.toString())
+                        .fetch().rowsUpdated())
+                .as(transactionalOperator::transactional)
+                .then();
+    }
+
+    /**
+     * Validate the fields of a Contact, it is given a reference to the target AddressBook first
+     */
+    private Mono<Void> validate(UUID addressBookId, Contact contact) {
+        return Mono.defer(() -> {
+            AddressBook addressBook = new AddressBook();
+            addressBook.setId(addressBookId);
+            contact.setAddressBook(addressBook);
+
+            ContactValidatorResult validatorResult = contactValidator.validateFields(contact);
+            return validatorResult.getValid() ? Mono.<Void>empty() : Mono.error(validatorResult.getException());
+        });
+    }
+
+    /**
+     * Signal {@link InvalidException} when another Contact of the AddressBook uses the email
+     */
+    private Mono<Void> checkDuplicate(UUID addressBookId, UUID id, String email) {
+        // Deferred, the email is only known to be set once the Contact is validated
+        return Mono.defer(() -> {
+            DatabaseClient.GenericExecuteSpec count = databaseClient.sql(id == null
+                    ? "SELECT COUNT(*) AS duplicates FROM Contact WHERE addressBookId = :addressBookId AND email = :email"
+                    : "SELECT COUNT(*) AS duplicates FROM Contact WHERE addressBookId = :addressBookId AND email = :email AND id <> :id")
+                    .bind("addressBookId", addressBookId.toString())
+                    .bind("email", email);
+            if (id != null) {
+                count = count.bind("id", id.toString());
+            }
+
+            return count.map((row, metadata) -> row.get("duplicates", Long.class))
+                    .one()
+                    .flatMap(duplicates -> duplicates > 0
+                            ? Mono.error(new InvalidException("Contact is already exist in the AddressBook"))
+                            : Mono.<Void>empty());
+        });
+    }
+
+    private DatabaseClient.GenericExecuteSpec bury(UUID id, String condition) {
+        return databaseClient.sql(BURY_CONTACT + condition)
+                .bind("tombstoneId", TimeOrderedUuidGenerator.next().toString())
+                .bind("deletedAt", LocalDateTime.now())
+                .bind("id", id.toString());
+    }
+
+    private Mono<Integer> touch(UUID addressBookId) {
+        return databaseClient.sql(TOUCH_ADDRESS_BOOK)
+                .bind("lastModified", LocalDateTime.now())
+                .bind("addressBookId", addressBookId.toString())
+                .fetch().rowsUpdated();
+    }
+
+    /**
+     * Tell apart a missing row from a version conflict, after an update applied to no row
+     */
+    private <T> Mono<T> notUpdated(String table, UUID id, Long version) {
+        return databaseClient.sql("SELECT COUNT(*) AS found FROM " + table + " WHERE id = :id")
+                .bind("id", id.toString())
+                .map((row, metadata) -> row.get("found", Long.class))
+                .one()
+                .flatMap(found -> Mono.error(found > 0
+                        ? new ConflictException(String.format("%s [%s] has been changed since version [%d]", table, id, version))
+                        : new NotFoundException(String.format("%s cannot be found with given Id [%s]", table, id))));
+    }
+
+    private DatabaseClient.GenericExecuteSpec bindContact(DatabaseClient.GenericExecuteSpec spec, UUID id,
+                                                          UUID addressBookId, Contact contact) {
+        spec = spec.bind("id", id.toString()).bind("addressBookId", addressBookId.toString());
+        spec = bind(spec, "firstName", contact.getFirstName());
+        spec = bind(spec, "middleName", contact.getMiddleName());
+        spec = bind(spec, "surName", contact.getSurName());
+        spec = bind(spec, "phoneNumber", contact.getPhoneNumber());
+        spec = bind(spec, "email", contact.getEmail());
+        spec = bind(spec, "state", contact.getState());
+        spec = bind(spec, "normalizedEmail", ContactNormalizer.email(contact.getEmail()));
+        spec = bind(spec, "surnameKey", ContactNormalizer.soundex(contact.getSurName()));
+        spec = bind(spec, "phoneE164", phoneNumberNormalizer.toE164(contact.getPhoneNumber(), contact.getCountry()));
+        return bind(spec, "country", contact.getCountry());
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    private static AddressBook toAddressBook(Row row) {
+        AddressBook addressBook = new AddressBook();
+        addressBook.setId(uuid(row, "id"));
+        addressBook.setName(row.get("name", String.class));
+        addressBook.setLastModified(instant(row, "lastModified"));
+        addressBook.setVersion(row.get("version", Long.class));
+        Long contentVersion = row.get("contentVersion", Long.class);
+        addressBook.setContentVersion(contentVersion == null ? 0 : contentVersion);
+        return addressBook;
+    }
+
+    private static AddressBookSummary toSummary(Row row) {
+        Long contactCount = row.get("contactCount", Long.class);
+        return new AddressBookSummary(uuid(row, "id"), row.get("name", String.class), instant(row, "lastModified"),
+                contactCount == null ? 0 : contactCount);
+    }
+
+    private static Contact toContact(Row row) {
+        AddressBook addressBook = new AddressBook();
+        addressBook.setId(uuid(row, "addressBookId"));
+
+        Contact contact = new Contact();
+        contact.setId(uuid(row, "id"));
+        contact.setFirstName(row.get("firstName", String.class));
+        contact.setMiddleName(row.get("middleName", String.class));
+        contact.setSurName(row.get("surName", String.class));
+        contact.setPhoneNumber(row.get("phoneNumber", String.class));
+        contact.setEmail(row.get("email", String.class));
+        contact.setState(row.get("state", String.class));
+        contact.setCountry(row.get("country", String.class));
+        contact.setAddressBook(addressBook);
+        contact.setVersion(row.get("version", Long.class));
+        return contact;
+    }
+
+    private static UUID uuid(Row row, String name) {
+        String value = row.get(name, String.class);
+        return value == null ? null : UUID.fromString(value);
+    }
+
+    // Hibernate writes Instant as a timestamp in the JVM time zone, the same is done here
+    private static Instant instant(Row row, String name) {
+        LocalDateTime value = row.get(name, LocalDateTime.class);
+        return value == null ? null : value.atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
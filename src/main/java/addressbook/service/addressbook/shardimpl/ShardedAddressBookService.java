@@ -0,0 +1,401 @@
+package addressbook.service.addressbook.shardimpl;
+
+import addressbook.dao.replica.ReplicaContext;
+import addressbook.dao.shard.ShardContext;
+import addressbook.dao.shard.ShardResolver;
+import addressbook.model.id.TimeOrderedUuidGenerator;
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.model.view.AddressBookSummary;
+import addressbook.model.view.AddressBookVersion;
+import addressbook.model.view.AddressBookView;
+import addressbook.model.view.ContactView;
+import addressbook.service.addressbook.AddressBookService;
+import addressbook.service.addressbook.BulkImportResult;
+import addressbook.service.addressbook.ContactChanges;
+import addressbook.service.addressbook.ContactPage;
+import addressbook.service.addressbook.ContactSearchCriteria;
+import addressbook.service.addressbook.PageToken;
+import addressbook.service.addressbook.autocomplete.ContactNameIndex;
+import addressbook.service.addressbook.autocomplete.ContactSuggestion;
+import addressbook.service.exception.InvalidException;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+
+/**
+ * Run the operations of another {@link AddressBookService} on the shard holding the AddressBook they concern, as
+ * chosen by {@link ShardResolver}. The shard is set before the delegate starts its transaction, so each operation on
+ * an AddressBook hits exactly one DB.
+ *
+ * Operations across AddressBooks run on every shard in parallel and their results are merged. A shard only answers
+ * for the AddressBooks it owns, rows of other AddressBooks found there are ignored. A Contact looked up by its Id is
+ * read from the shard of the AddressBook {@link ContactNameIndex} has it under, and searched on every shard only when
+ * it is not there, as when written by another instance. It cannot be moved to an AddressBook of another shard.
+ *
+ */
+public class ShardedAddressBookService implements AddressBookService {
+
+    // Contacts read from each shard to serve a search across shards, so deep pages are not served
+    private static final int MAX_SCATTERED_SEARCH_RESULTS = 1000;
+
+    private final AddressBookService delegate;
+
+    private final ShardResolver shardResolver;
+
+    private final ContactNameIndex contactNameIndex;
+
+    private final ExecutorService executor;
+
+    public ShardedAddressBookService(AddressBookService delegate, ShardResolver shardResolver,
+                                     ContactNameIndex contactNameIndex, ExecutorService executor) {
+        this.delegate = delegate;
+        this.shardResolver = shardResolver;
+        this.contactNameIndex = contactNameIndex;
+        this.executor = executor;
+    }
+
+    @Override
+    public Optional<AddressBook> get(UUID id) {
+        return onShardOf(id, () -> delegate.get(id));
+    }
+
+    @Override
+    public List<AddressBookView> list() {
+        return gather(shard -> owned(shard, delegate.list(), AddressBookView::getId));
+    }
+
+    @Override
+    public Optional<AddressBookSummary> getSummary(UUID id) {
+        return onShardOf(id, () -> delegate.getSummary(id));
+    }
+
+    @Override
+    public List<AddressBookSummary> listSummaries() {
+        return gather(shard -> owned(shard, delegate.listSummaries(), AddressBookSummary::getId));
+    }
+
+    @Override
+    public Optional<AddressBookVersion> getVersion(UUID id) {
+        return onShardOf(id, () -> delegate.getVersion(id));
+    }
+
+    /**
+     * Read the version of a Contact from the shard it is indexed on, or from every shard by a single column query
+     * when it is not found there
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    public Optional<Long> getContactVersion(UUID id) {
+        Optional<Long> version = indexedShard(id).flatMap(shard -> ShardContext.call(shard,
+                () -> delegate.getContactVersion(id)));
+        if (version.isPresent()) {
+            return version;
+        }
+        return first(scatter(shard -> delegate.getContactVersion(id)));
+    }
+
+    /**
+     * Read the AddressBook Id of a Contact from the shard it is indexed on, or from every shard by a single column
+     * query when it is not found there
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    public Optional<UUID> getContactAddressBookId(UUID id) {
+        Optional<UUID> addressBookId = indexedShard(id).flatMap(shard -> ShardContext.call(shard,
+                () -> delegate.getContactAddressBookId(id)));
+        if (addressBookId.isPresent()) {
+            return addressBookId;
+        }
+        return first(scatter(shard -> delegate.getContactAddressBookId(id)
+                .filter(found -> shardResolver.owns(shard, found))));
+    }
+
+    /**
+     * Create an AddressBook on the shard of a new Id, the Id is set before insert so its shard is known
+     *
+     * @param addressBook
+     */
+    @Override
+    public void create(AddressBook addressBook) {
+        addressBook.setId(TimeOrderedUuidGenerator.next());
+        ShardContext.run(shardResolver.resolve(addressBook.getId()), () -> delegate.create(addressBook));
+    }
+
+    @Override
+    public void create(Contact contact) {
+        ShardContext.run(shardOf(contact), () -> delegate.create(contact));
+    }
+
+    @Override
+    public BulkImportResult importContacts(UUID addressBookId, Iterator<Contact> contacts) {
+        return onShardOf(addressBookId, () -> delegate.importContacts(addressBookId, contacts));
+    }
+
+    @Override
+    public void update(UUID id, AddressBook addressBook) {
+        ShardContext.run(shardResolver.resolve(id), () -> delegate.update(id, addressBook));
+    }
+
+    @Override
+    public void patch(UUID id, Map<String, String> changes, Long expectedVersion) {
+        ShardContext.run(shardResolver.resolve(id), () -> delegate.patch(id, changes, expectedVersion));
+    }
+
+    @Override
+    public Optional<Contact> getContact(UUID id) {
+        return findContact(id);
+    }
+
+    /**
+     * Merge the pages of unique Contacts of every shard. Each shard returns every email it has up to the last one of
+     * its page, or all its remaining emails when its page is not full, so the merged page stops at the smallest last
+     * email of the full pages, and a Contact of each email is kept
+     *
+     * @param next
+     * @param limit
+     * @return
+     */
+    @Override
+    public ContactPage getAllUniqueContact(String next, int limit) {
+        Map<String, ContactPage> pages = scatter(shard -> delegate.getAllUniqueContact(next, limit));
+
+        String bound = pages.values().stream()
+                .map(ContactPage::getNext)
+                .filter(Objects::nonNull)
+                .map(PageToken::decode)
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+
+        TreeMap<String, ContactView> uniqueContacts = new TreeMap<>();
+        for (ContactPage page : pages.values()) {
+            for (ContactView contact : page.getContacts()) {
+                if (bound == null || contact.getEmail().compareTo(bound) <= 0) {
+                    uniqueContacts.putIfAbsent(contact.getEmail(), contact);
+                }
+            }
+        }
+
+        List<ContactView> contacts = uniqueContacts.values().stream().limit(limit).collect(Collectors.toList());
+        boolean more = bound != null || uniqueContacts.size() > limit;
+        String nextToken = more && !contacts.isEmpty()
+                ? PageToken.encode(contacts.get(contacts.size() - 1).getEmail())
+                : null;
+        return new ContactPage(contacts, nextToken);
+    }
+
+    /**
+     * Search the shard of the AddressBook when one is given. Otherwise every shard returns its Contacts up to the
+     * end of the requested page, which are merged in the requested order
+     *
+     * @param criteria
+     * @param pageable
+     * @return
+     */
+    @Override
+    public Page<Contact> searchContacts(ContactSearchCriteria criteria, Pageable pageable) {
+        if (criteria.getAddressBookId() != null) {
+            return onShardOf(criteria.getAddressBookId(), () -> delegate.searchContacts(criteria, pageable));
+        }
+
+        long end = pageable.getOffset() + pageable.getPageSize();
+        if (end > MAX_SCATTERED_SEARCH_RESULTS) {
+            throw new InvalidException(String.format("Only the first %d Contacts can be paged through without "
+                    + "AddressBook filter", MAX_SCATTERED_SEARCH_RESULTS));
+        }
+        Pageable firstPages = PageRequest.of(0, (int) end, pageable.getSort());
+        Map<String, Page<Contact>> pages = scatter(shard -> delegate.searchContacts(criteria, firstPages));
+
+        long total = pages.values().stream().mapToLong(Page::getTotalElements).sum();
+        List<Contact> contacts = pages.entrySet().stream()
+                .flatMap(page -> owned(page.getKey(), page.getValue().getContent(),
+                        contact -> contact.getAddressBook().getId()).stream())
+                .sorted(comparator(pageable.getSort()))
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .collect(Collectors.toList());
+        return new PageImpl<>(contacts, pageable, total);
+    }
+
+    @Override
+    public List<ContactSuggestion> autocomplete(UUID addressBookId, String prefix, int limit) {
+        // Answered from memory
+        return delegate.autocomplete(addressBookId, prefix, limit);
+    }
+
+    @Override
+    public List<UUID> lookupPhoneNumber(String phoneNumber, String country) {
+        // Answered from memory
+        return delegate.lookupPhoneNumber(phoneNumber, country);
+    }
+
+    @Override
+    public void exportContacts(UUID addressBookId, Consumer<Contact> consumer) {
+        ShardContext.run(shardResolver.resolve(addressBookId), () -> delegate.exportContacts(addressBookId, consumer));
+    }
+
+    @Override
+    public ContactChanges getContactChanges(UUID addressBookId, String since, int limit) {
+        return onShardOf(addressBookId, () -> delegate.getContactChanges(addressBookId, since, limit));
+    }
+
+    /**
+     * Update a Contact on the shard of its AddressBook. {@link InvalidException} will be thrown if it is moved to an
+     * AddressBook of another shard
+     *
+     * @param id
+     * @param contact
+     */
+    @Override
+    public void update(UUID id, Contact contact) {
+        Optional<String> current = locateContact(id);
+        String target = contact.getAddressBook() == null
+                ? current.orElse(shardResolver.getDefaultShard())
+                : shardOf(contact);
+        if (current.isPresent() && !current.get().equals(target)) {
+            throw new InvalidException("Contact cannot be moved to an AddressBook stored on another shard");
+        }
+        ShardContext.run(target, () -> delegate.update(id, contact));
+    }
+
+    @Override
+    public void patchContact(UUID id, Map<String, String> changes, Long expectedVersion) {
+        ShardContext.run(locateContact(id).orElse(shardResolver.getDefaultShard()),
+                () -> delegate.patchContact(id, changes, expectedVersion));
+    }
+
+    @Override
+    public void delete(UUID id) {
+        ShardContext.run(shardResolver.resolve(id), () -> delegate.delete(id));
+    }
+
+    @Override
+    public void deleteContact(UUID id) {
+        ShardContext.run(locateContact(id).orElse(shardResolver.getDefaultShard()), () -> delegate.deleteContact(id));
+    }
+
+    private <T> T onShardOf(UUID addressBookId, Supplier<T> action) {
+        return ShardContext.call(shardResolver.resolve(addressBookId), action);
+    }
+
+    private String shardOf(Contact contact) {
+        return contact.getAddressBook() == null || contact.getAddressBook().getId() == null
+                ? shardResolver.getDefaultShard()
+                : shardResolver.resolve(contact.getAddressBook().getId());
+    }
+
+    private Optional<Contact> findContact(UUID id) {
+        Optional<Contact> indexed = indexedShard(id).flatMap(shard -> ShardContext.call(shard,
+                () -> findOwnedContact(shard, id)));
+        if (indexed.isPresent()) {
+            return indexed;
+        }
+        return first(scatter(shard -> findOwnedContact(shard, id)));
+    }
+
+    private Optional<Contact> findOwnedContact(String shard, UUID id) {
+        return delegate.getContact(id)
+                .filter(contact -> shardResolver.owns(shard, contact.getAddressBook().getId()));
+    }
+
+    /**
+     * Return the shard of the AddressBook the Contact is indexed under, read from memory
+     */
+    private Optional<String> indexedShard(UUID id) {
+        return contactNameIndex.getAddressBookId(id).map(shardResolver::resolve);
+    }
+
+    private static <T> Optional<T> first(Map<String, Optional<T>> results) {
+        return results.values().stream()
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .findFirst();
+    }
+
+    /**
+     * Return the shard of a Contact, from memory when it is indexed, otherwise from a single column query on every
+     * shard. The Contact itself is not loaded
+     */
+    private Optional<String> locateContact(UUID id) {
+        Optional<String> indexed = indexedShard(id);
+        if (indexed.isPresent()) {
+            return indexed;
+        }
+        return first(scatter(shard -> delegate.getContactAddressBookId(id)
+                .filter(addressBookId -> shardResolver.owns(shard, addressBookId))
+                .map(addressBookId -> shard)));
+    }
+
+    private <T> List<T> owned(String shard, List<T> rows, Function<T, UUID> addressBookId) {
+        return rows.stream()
+                .filter(row -> shardResolver.owns(shard, addressBookId.apply(row)))
+                .collect(Collectors.toList());
+    }
+
+    private <T> List<T> gather(Function<String, List<T>> action) {
+        List<T> rows = new ArrayList<>();
+        scatter(action).values().forEach(rows::addAll);
+        return rows;
+    }
+
+    /**
+     * Run an action on every shard in parallel, and return the result of each shard in shard order. The first
+     * failure is thrown once every shard is done
+     */
+    private <T> Map<String, T> scatter(Function<String, T> action) {
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (String shard : shardResolver.getShards()) {
+            futures.put(shard, CompletableFuture.supplyAsync(
+                    ReplicaContext.wrap(() -> ShardContext.call(shard, () -> action.apply(shard))), executor));
+        }
+
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+        Map<String, T> results = new LinkedHashMap<>();
+        futures.forEach((shard, future) -> {
+            try {
+                results.put(shard, future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        });
+        return results;
+    }
+
+    private static Comparator<Contact> comparator(Sort sort) {
+        Comparator<Contact> comparator = (first, second) -> 0;
+        for (Sort.Order order : sort) {
+            comparator = comparator.thenComparing(
+                    new PropertyComparator<>(order.getProperty(), order.isIgnoreCase(), order.isAscending()));
+        }
+        return comparator;
+    }
+}
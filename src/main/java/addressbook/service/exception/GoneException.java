@@ -0,0 +1,17 @@
+package addressbook.service.exception;
+
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.GONE)
+public class GoneException extends RuntimeException {
+
+    public GoneException() {
+        super();
+    }
+
+    public GoneException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+-- Convert ids stored as 36 character strings into 16 bytes binary, for H2.
+-- Stop the app, run this script once against the DB, then start the app with ID_STORAGE=binary.
+-- Hibernate writes a UUID as its most significant then least significant 64 bits, which is the UUID string without
+-- dashes read as hex. Existing ids keep their value, only new ids are time ordered.
+
+SET REFERENTIAL_INTEGRITY FALSE;
+
+UPDATE AddressBook SET id = REPLACE(id, '-', '');
+UPDATE Contact SET id = REPLACE(id, '-', ''), addressBookId = REPLACE(addressBookId, '-', '');
+UPDATE ContactTombstone SET id = REPLACE(id, '-', ''), contactId = REPLACE(contactId, '-', ''),
+    addressBookId = REPLACE(addressBookId, '-', '');
+
+ALTER TABLE AddressBook ALTER COLUMN id SET DATA TYPE BINARY(16);
+ALTER TABLE Contact ALTER COLUMN id SET DATA TYPE BINARY(16);
+ALTER TABLE Contact ALTER COLUMN addressBookId SET DATA TYPE BINARY(16);
+ALTER TABLE ContactTombstone ALTER COLUMN id SET DATA TYPE BINARY(16);
+ALTER TABLE ContactTombstone ALTER COLUMN contactId SET DATA TYPE BINARY(16);
+ALTER TABLE ContactTombstone ALTER COLUMN addressBookId SET DATA TYPE BINARY(16);
+
+SET REFERENTIAL_INTEGRITY TRUE;
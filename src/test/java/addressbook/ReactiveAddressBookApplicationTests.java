@@ -0,0 +1,159 @@
+package addressbook;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.UUID;
+
+
+/**
+ * Integration test for the 'reactive' profile, served by WebFlux and R2DBC. It is depending on H2 in memory db. The
+ * initial data is in `resources/import.sql`, loaded through JPA
+ *
+ *
+ */
+@SpringBootTest(
+		webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+		classes = SimpleAddressBookApplication.class,
+		properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+@ActiveProfiles("reactive")
+@TestPropertySource(
+		locations = "classpath:application-integrationtest.properties")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ReactiveAddressBookApplicationTests {
+
+
+	@Autowired
+	private WebTestClient client;
+
+	/**
+	 * Test 'api/addressbook' with no parameter. Expect 2  addressbook to be returned
+	 *
+	 */
+	@Test
+	void testGetAddressBook() {
+		client.get().uri("/api/addressbook").exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.length()").isEqualTo(2);
+	}
+
+	/**
+	 * Test 'api/addressbook/{id}' and 'api/addressbook/{id}?summary=true'
+	 *
+	 */
+	@Test
+	void testGetAddressBookById() {
+		client.get().uri("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03").exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.name").isEqualTo("Test1");
+
+		client.get().uri("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03?summary=true").exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.contactCount").isEqualTo(2);
+
+		client.get().uri("/api/addressbook/00000000-0000-0000-0000-000000000000").exchange()
+				.expectStatus().isNotFound();
+	}
+
+	/**
+	 * Test create a contact, then stream the contacts of its addressbook as newline delimited JSON. Creating it again
+	 * is rejected as duplicate
+	 *
+	 */
+	@Test
+	void testCreateContact() {
+		String content = "{\"firstName\": \"Reactive\", \"surName\": \"Doe\", \"email\": \"reactive@test.com\"}";
+
+		UUID newContactId = client.post().uri("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(content)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(UUID.class).returnResult().getResponseBody();
+
+		client.get().uri("/api/addressbook/contact/" + newContactId).exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.firstName").isEqualTo("Reactive");
+
+		String body = client.get().uri("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact")
+				.accept(MediaType.parseMediaType("application/x-ndjson"))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(String.class).returnResult().getResponseBody();
+		Assertions.assertEquals(3, body.trim().split("\n").length);
+		Assertions.assertTrue(body.contains("\"email\":\"reactive@test.com\""));
+
+		client.post().uri("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(content)
+				.exchange()
+				.expectStatus().isBadRequest();
+
+		client.post().uri("/api/addressbook/00000000-0000-0000-0000-000000000000/contact")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(content)
+				.exchange()
+				.expectStatus().isNotFound();
+	}
+
+	/**
+	 * Test update a contact with If-Match. A stale version is rejected with 409, and a missing target addressbook with
+	 * 404
+	 *
+	 */
+	@Test
+	void testUpdateContact() {
+		String content = "{\"firstName\": \"Johnny\", \"surName\": \"Doe\", \"email\": \"tst@test.com\"}";
+
+		client.put().uri("/api/addressbook/f18856f9-70c8-41e4-9cd7-2fe5bbf40e34/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.header("If-Match", "\"0\"")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(content)
+				.exchange()
+				.expectStatus().isOk();
+
+		client.get().uri("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88").exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.firstName").isEqualTo("Johnny");
+
+		client.put().uri("/api/addressbook/f18856f9-70c8-41e4-9cd7-2fe5bbf40e34/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.header("If-Match", "\"0\"")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(content)
+				.exchange()
+				.expectStatus().isEqualTo(409);
+
+		client.put().uri("/api/addressbook/00000000-0000-0000-0000-000000000000/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(content)
+				.exchange()
+				.expectStatus().isNotFound();
+	}
+
+	/**
+	 * Test delete a contact, then delete its addressbook
+	 *
+	 */
+	@Test
+	void testDelete() {
+		client.delete().uri("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88").exchange()
+				.expectStatus().isOk();
+		client.get().uri("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88").exchange()
+				.expectStatus().isNotFound();
+
+		client.delete().uri("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03").exchange()
+				.expectStatus().isOk();
+		client.get().uri("/api/addressbook").exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.length()").isEqualTo(1);
+	}
+}
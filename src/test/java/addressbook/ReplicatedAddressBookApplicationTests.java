@@ -0,0 +1,223 @@
+package addressbook;
+
+import addressbook.dao.replica.ReplicaContextFilter;
+import addressbook.dao.replica.ReplicaRoutingDataSource;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.Cookie;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+
+/**
+ * Integration test for SimpleAddressBookApplication with reads split to a replica. The primary and the replica are
+ * two H2 in memory dbs. The replica is a copy of the primary taken once its schema and the initial data in
+ * `resources/import.sql` are loaded, and again whenever a test replicates, so it lags behind the primary in between
+ *
+ *
+ */
+@SpringBootTest(
+		webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+		classes = SimpleAddressBookApplication.class)
+@AutoConfigureMockMvc
+@TestPropertySource(
+		locations = "classpath:application-replicationtest.properties")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Import(ReplicatedAddressBookApplicationTests.ReplicaSeeding.class)
+class ReplicatedAddressBookApplicationTests {
+
+	private static final String PRIMARY_URL = "jdbc:h2:mem:replicated";
+
+	private static final String REPLICA_URL = "jdbc:h2:mem:replica0;DB_CLOSE_DELAY=-1";
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	/**
+	 * Test reading AddressBooks and Contacts only takes connections from the replica, and returns what the replica
+	 * holds
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testReads_Go_To_Replica() throws Exception {
+		double reads = routes("replica0", "read");
+		double writes = routes("primary", "write");
+		execute(REPLICA_URL, "update AddressBook set name = 'Replica1' where id = '76f36362-92d9-4676-8384-abb62f54ce03'");
+
+		mvc.perform(get("/api/addressbook")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2)));
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name", is("Replica1")));
+		mvc.perform(get("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.firstName", is("John")));
+		mvc.perform(get("/api/addressbook/contact")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(3)));
+
+		// Email filters may also be built from the replica meanwhile
+		Assertions.assertTrue(routes("replica0", "read") >= reads + 4);
+		Assertions.assertEquals(writes, routes("primary", "write"));
+	}
+
+	/**
+	 * Test creating an AddressBook writes to the primary, and later requests read it from the replica once it is
+	 * replicated only
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testWrites_Go_To_Primary() throws Exception {
+		double writes = routes("primary", "write");
+
+		String newAddressBookId = JsonPath.read(mvc.perform(post("/api/addressbook")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"testReplicated\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(), "$");
+		Assertions.assertTrue(routes("primary", "write") > writes);
+		Assertions.assertEquals(1, count(PRIMARY_URL, newAddressBookId));
+		Assertions.assertEquals(0, count(REPLICA_URL, newAddressBookId));
+
+		double reads = routes("replica0", "read");
+		mvc.perform(get("/api/addressbook/" + newAddressBookId)).andDo(print())
+				.andExpect(status().isNotFound());
+
+		replicate();
+		mvc.perform(get("/api/addressbook/" + newAddressBookId)).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name", is("testReplicated")));
+		Assertions.assertTrue(routes("replica0", "read") >= reads + 2);
+	}
+
+	/**
+	 * Test a write sets the cookie sending the next requests of the client to the primary, so the client finds what
+	 * the replica does not have yet, while requests without it still read from the replica
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testRead_Your_Writes_Go_To_Primary() throws Exception {
+		double stickyReads = routes("primary", "read_your_writes");
+
+		MvcResult created = mvc.perform(post("/api/addressbook")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"testReadYourWrites\"}"))
+				.andExpect(status().isOk())
+				.andExpect(cookie().exists(ReplicaContextFilter.COOKIE_NAME))
+				.andReturn();
+		String newAddressBookId = JsonPath.read(created.getResponse().getContentAsString(), "$");
+		Cookie readPrimary = created.getResponse().getCookie(ReplicaContextFilter.COOKIE_NAME);
+		Assertions.assertEquals(0, count(REPLICA_URL, newAddressBookId));
+
+		mvc.perform(get("/api/addressbook/" + newAddressBookId).cookie(readPrimary)).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name", is("testReadYourWrites")))
+				.andExpect(cookie().doesNotExist(ReplicaContextFilter.COOKIE_NAME));
+		Assertions.assertTrue(routes("primary", "read_your_writes") >= stickyReads + 1);
+
+		mvc.perform(get("/api/addressbook/" + newAddressBookId)).andDo(print())
+				.andExpect(status().isNotFound());
+
+		readPrimary.setValue(String.valueOf(System.currentTimeMillis() - 1));
+		mvc.perform(get("/api/addressbook/" + newAddressBookId).cookie(readPrimary)).andDo(print())
+				.andExpect(status().isNotFound());
+	}
+
+	private double routes(String route, String reason) {
+		return meterRegistry.get(ReplicaRoutingDataSource.ROUTES_NAME)
+				.tag("route", route)
+				.tag("reason", reason)
+				.counter().count();
+	}
+
+	private static long count(String url, String addressBookId) throws SQLException {
+		try (Connection connection = connect(url);
+			 Statement statement = connection.createStatement();
+			 ResultSet rows = statement.executeQuery(
+					 "select count(*) from AddressBook where id = '" + addressBookId + "'")) {
+			rows.next();
+			return rows.getLong(1);
+		}
+	}
+
+	private static void execute(String url, String sql) throws SQLException {
+		try (Connection connection = connect(url); Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+	/**
+	 * Replace the content of the replica by a copy of the primary
+	 *
+	 * @throws SQLException
+	 */
+	private static void replicate() throws SQLException {
+		List<String> script = new ArrayList<>();
+		try (Connection primary = connect(PRIMARY_URL);
+			 Statement statement = primary.createStatement();
+			 ResultSet rows = statement.executeQuery("SCRIPT")) {
+			while (rows.next()) {
+				script.add(rows.getString(1));
+			}
+		}
+
+		try (Connection replica = connect(REPLICA_URL); Statement statement = replica.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+			for (String sql : script) {
+				statement.execute(sql);
+			}
+		}
+	}
+
+	private static Connection connect(String url) throws SQLException {
+		return DriverManager.getConnection(url, "sa", "password01");
+	}
+
+
+	/**
+	 * Seed the replica once the schema and the initial data are loaded into the primary, before the application
+	 * reads them to build its indexes
+	 */
+	@TestConfiguration
+	static class ReplicaSeeding {
+
+		@Bean
+		public InitializingBean replicaSeeder(EntityManagerFactory entityManagerFactory) {
+			return ReplicatedAddressBookApplicationTests::replicate;
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package addressbook;
+
+import addressbook.dao.shard.ShardResolver;
+import addressbook.dao.shard.ShardRoutingDataSource;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+
+/**
+ * Integration test for SimpleAddressBookApplication with AddressBooks partitioned across three H2 in memory dbs. The
+ * initial data in `resources/import.sql` is loaded on every shard, but only served by the shard owning it
+ *
+ *
+ */
+@SpringBootTest(
+		webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+		classes = SimpleAddressBookApplication.class)
+@AutoConfigureMockMvc
+@TestPropertySource(
+		locations = "classpath:application-shardingtest.properties")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ShardedAddressBookApplicationTests {
+
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ShardResolver shardResolver;
+
+	@Autowired
+	private ShardRoutingDataSource dataSource;
+
+	/**
+	 * Test 'api/addressbook' gathers the initial AddressBooks once, though every shard holds a copy
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testGetAddressBook() throws Exception {
+		mvc.perform(get("/api/addressbook")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2)));
+
+		mvc.perform(get("/api/addressbook/contact")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(3)));
+	}
+
+	/**
+	 * Test created AddressBooks are stored on their own shard only, spread across shards, and still found by Id and
+	 * listed
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testCreateAddressBook_Spread_Across_Shards() throws Exception {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			ids.add(JsonPath.read(mvc.perform(post("/api/addressbook")
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"name\":\"testSharded" + i + "\"}"))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString(), "$"));
+		}
+
+		Set<String> usedShards = new HashSet<>();
+		for (String id : ids) {
+			String owner = shardResolver.resolve(UUID.fromString(id));
+			usedShards.add(owner);
+			for (String shard : shardResolver.getShards()) {
+				Assertions.assertEquals(shard.equals(owner) ? 1 : 0, count(shard, "AddressBook", "id", id));
+			}
+
+			mvc.perform(get("/api/addressbook/" + id))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.name", is("testSharded" + ids.indexOf(id))));
+		}
+		Assertions.assertTrue(usedShards.size() > 1);
+
+		mvc.perform(get("/api/addressbook")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(14)));
+	}
+
+	/**
+	 * Test Contacts are stored with their AddressBook, found by Id from any shard, and merged into the unique Contacts
+	 * page by page
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testContacts_Across_Shards() throws Exception {
+		List<String> contactIds = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			String addressBookId = JsonPath.read(mvc.perform(post("/api/addressbook")
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"name\":\"testSharded" + i + "\"}"))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString(), "$");
+
+			String contactId = JsonPath.read(mvc.perform(post("/api/addressbook/" + addressBookId + "/contact")
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"firstName\": \"Shard" + i + "\", \"surName\": \"Test\", \"email\": \"shard" + i
+							+ "@test.com\", \"state\": \"VIC\", \"country\": \"Australia\"}"))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString(), "$");
+			contactIds.add(contactId);
+
+			String owner = shardResolver.resolve(UUID.fromString(addressBookId));
+			for (String shard : shardResolver.getShards()) {
+				Assertions.assertEquals(shard.equals(owner) ? 1 : 0, count(shard, "Contact", "id", contactId));
+			}
+		}
+
+		for (int i = 0; i < contactIds.size(); i++) {
+			mvc.perform(get("/api/addressbook/contact/" + contactIds.get(i)))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.firstName", is("Shard" + i)));
+		}
+
+		// 3 initial unique emails and 6 new ones, read 4 at a time
+		List<String> emails = new ArrayList<>();
+		String next = null;
+		do {
+			MockHttpServletRequestBuilder request = get("/api/addressbook/contact").param("limit", "4");
+			if (next != null) {
+				request.param("next", next);
+			}
+			MockHttpServletResponse response = mvc.perform(request).andDo(print())
+					.andExpect(status().isOk())
+					.andReturn().getResponse();
+			emails.addAll(JsonPath.<List<String>>read(response.getContentAsString(), "$[*].email"));
+			next = response.getHeader("X-Next-Token");
+		} while (next != null);
+
+		Assertions.assertEquals(9, emails.size());
+		Assertions.assertEquals(9, new HashSet<>(emails).size());
+		List<String> sorted = new ArrayList<>(emails);
+		sorted.sort(null);
+		Assertions.assertEquals(sorted, emails);
+
+		mvc.perform(delete("/api/addressbook/contact/" + contactIds.get(0)))
+				.andExpect(status().isOk());
+		mvc.perform(get("/api/addressbook/contact/" + contactIds.get(0)))
+				.andExpect(status().isNotFound());
+	}
+
+	private long count(String shard, String table, String column, String id) {
+		return new JdbcTemplate(dataSource.getShards().get(shard))
+				.queryForObject(String.format("select count(*) from %s where %s = ?", table, column), Long.class, id);
+	}
+}
@@ -1,6 +1,8 @@
 package addressbook;
 
+import addressbook.service.addressbook.jpaimpl.ContactTombstonePurger;
 import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -9,10 +11,16 @@ import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.time.Instant;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -37,6 +45,9 @@ class SimpleAddressBookApplicationTests {
 	@Autowired
 	private MockMvc mvc;
 
+	@Autowired
+	private ContactTombstonePurger tombstonePurger;
+
 	/**
 	 * Test 'api/addressbook' with no parameter. Expect 2  addressbook to be returned
 	 *
@@ -64,6 +75,79 @@ class SimpleAddressBookApplicationTests {
 	}
 
 
+	/**
+	 * Test 'api/addressbook?summary=true'. Expect the number of contacts of each addressbook
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testGetAddressBookSummaries() throws Exception {
+		mvc.perform(get("/api/addressbook").param("summary", "true")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2)))
+				.andExpect(jsonPath("$[?(@.name == 'Test1')].contactCount", contains(2)))
+				.andExpect(jsonPath("$[?(@.name == 'Test2')].contactCount", contains(2)));
+	}
+
+	/**
+	 * Test 'api/addressbook/{id}?summary=true'. Adding a contact should be counted in the summary
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testGetAddressBookSummaryById() throws Exception {
+		mvc.perform(post("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"firstName\": \"Summary\", \"email\": \"summary@test.com\"}"))
+				.andExpect(status().isOk());
+
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03").param("summary", "true")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name", is("Test1")))
+				.andExpect(jsonPath("$.contactCount", is(3)))
+				.andExpect(jsonPath("$.lastModified").exists());
+
+		mvc.perform(get("/api/addressbook/00000000-0000-0000-0000-000000000000").param("summary", "true"))
+				.andExpect(status().isNotFound());
+	}
+
+	/**
+	 * Test conditional get of 'api/addressbook/{id}' and 'api/addressbook/{id}/contact'. An unchanged addressbook is
+	 * answered with 304, adding a contact changes both ETags
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testGetAddressBookNotModified() throws Exception {
+		String bookETag = mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03"))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("ETag"))
+				.andReturn().getResponse().getHeader("ETag");
+		String contactsETag = mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact"))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("ETag"))
+				.andReturn().getResponse().getHeader("ETag");
+
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03").header("If-None-Match", bookETag))
+				.andDo(print())
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact").header("If-None-Match", contactsETag))
+				.andExpect(status().isNotModified());
+
+		mvc.perform(post("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"firstName\": \"ETag\", \"email\": \"etag@test.com\"}"))
+				.andExpect(status().isOk());
+
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03").header("If-None-Match", bookETag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name", is("Test1")));
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact").header("If-None-Match", contactsETag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(3)));
+	}
+
 	/**
 	 *
 	 * Test create a addressbook. The subsequent get Addressbook by Id request should return created Addressbook
@@ -138,6 +222,73 @@ class SimpleAddressBookApplicationTests {
 	}
 
 
+	/**
+	 * Test 'api/addressbook/contact' with a limit. The first page should return 2 contact and a next token, the page
+	 * read with that token should return the remaining 1 contact and no next token.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testGetAllContactUniquePaged() throws Exception {
+		String next = mvc.perform(get("/api/addressbook/contact").param("limit", "2")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2)))
+				.andExpect(jsonPath("$[0].email", is("tst2@test.com")))
+				.andExpect(header().exists("X-Next-Token"))
+				.andReturn().getResponse().getHeader("X-Next-Token");
+
+		mvc.perform(get("/api/addressbook/contact").param("limit", "2").param("next", next)).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(1)))
+				.andExpect(jsonPath("$[0].email", is("tst@test.com")))
+				.andExpect(header().doesNotExist("X-Next-Token"));
+	}
+
+
+	/**
+	 * Test 'api/addressbook/contact/search' by surname prefix within an addressbook, sorted by first name. Expect the
+	 * 2 contact of the addressbook
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testSearchContacts() throws Exception {
+		mvc.perform(get("/api/addressbook/contact/search")
+				.param("surName", "Do")
+				.param("addressBookId", "76f36362-92d9-4676-8384-abb62f54ce03")
+				.param("sort", "firstName")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content", hasSize(2)))
+				.andExpect(jsonPath("$.content[0].firstName", is("Jane")))
+				.andExpect(jsonPath("$.content[1].firstName", is("John")))
+				.andExpect(jsonPath("$.totalElements", is(2)));
+	}
+
+
+	/**
+	 * Test 'api/addressbook/contact/search' without filter, with blank filters only, or with a blank name prefix.
+	 * Expect bad request as the whole table would be read. Blank filters next to another one are ignored
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testSearchContactsWithoutFilter() throws Exception {
+		mvc.perform(get("/api/addressbook/contact/search")).andDo(print())
+				.andExpect(status().isBadRequest());
+		mvc.perform(get("/api/addressbook/contact/search").param("country", " ").param("state", ""))
+				.andExpect(status().isBadRequest());
+		mvc.perform(get("/api/addressbook/contact/search").param("surName", ""))
+				.andExpect(status().isBadRequest());
+		mvc.perform(get("/api/addressbook/contact/search").param("firstName", " ")
+				.param("addressBookId", "76f36362-92d9-4676-8384-abb62f54ce03"))
+				.andExpect(status().isBadRequest());
+		mvc.perform(get("/api/addressbook/contact/search").param("state", "")
+				.param("addressBookId", "76f36362-92d9-4676-8384-abb62f54ce03"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content", hasSize(2)));
+	}
+
+
 	/**
 	 * Test 'api/addressbook/{id}/contact' . Expect 2 contact returned
 	 *
@@ -151,6 +302,75 @@ class SimpleAddressBookApplicationTests {
 				.andExpect(jsonPath("$", hasSize(2)));
 	}
 
+	/**
+	 * Test 'api/addressbook/{id}/contact' accepting newline delimited JSON. Expect 2 contact, one per line
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testExportContactsNdjson() throws Exception {
+		MvcResult result = mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact")
+				.accept("application/x-ndjson"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		String body = mvc.perform(asyncDispatch(result)).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+				.andReturn().getResponse().getContentAsString();
+
+		String[] lines = body.split("\n");
+		Assertions.assertEquals(2, lines.length);
+		Assertions.assertTrue(body.contains("\"email\":\"tst@test.com\""));
+		Assertions.assertTrue(body.contains("\"email\":\"tst2@test.com\""));
+	}
+
+	/**
+	 * Test 'api/addressbook/{id}/contact/autocomplete'. A contact created after startup should be suggested along
+	 * with the loaded ones
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testAutocomplete() throws Exception {
+		mvc.perform(post("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"firstName\": \"Jörg\", \"surName\": \"Smith\", \"email\": \"jorg@test.com\"}"))
+				.andExpect(status().isOk());
+
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/autocomplete").param("q", "jo"))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2)))
+				.andExpect(jsonPath("$[0].firstName", is("John")))
+				.andExpect(jsonPath("$[1].surName", is("Smith")));
+	}
+
+	/**
+	 * Test 'api/addressbook/contact/lookup'. A contact created with a national number should be found by the same
+	 * number in international format
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testLookupPhoneNumber() throws Exception {
+		String id = mvc.perform(post("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"firstName\": \"Phone\", \"surName\": \"Lookup\", \"email\": \"phone@test.com\", "
+						+ "\"phoneNumber\": \"0412 345 678\", \"country\": \"Australia\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString().replace("\"", "");
+
+		mvc.perform(get("/api/addressbook/contact/lookup").param("phone", "+61 412 345 678"))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(1)))
+				.andExpect(jsonPath("$[0]", is(id)));
+
+		mvc.perform(get("/api/addressbook/contact/lookup").param("phone", "123"))
+				.andExpect(status().isBadRequest());
+	}
+
 	/**
 	 *
 	 * Test create a contact '/api/addressbook/{id}/contact`. The subsequent get Addressbook by Id request should return created Addressbook
@@ -180,6 +400,179 @@ class SimpleAddressBookApplicationTests {
 				.andExpect(jsonPath("$.firstName", is("TestMe")));
 	}
 
+	/**
+	 * Test conditional get of 'api/addressbook/contact/{id}'. Updating the contact changes its ETag
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testGetContactNotModified() throws Exception {
+		String eTag = mvc.perform(get("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+
+		mvc.perform(get("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88").header("If-None-Match", eTag))
+				.andExpect(status().isNotModified());
+
+		mvc.perform(put("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"firstName\": \"Johnny\", \"surName\": \"Doe\", \"email\": \"tst@test.com\"}"))
+				.andExpect(status().isOk());
+
+		mvc.perform(get("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88").header("If-None-Match", eTag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.firstName", is("Johnny")));
+	}
+
+	/**
+	 * Test JSON Merge Patch of a contact PATCH /api/addressbook/contact/{id}. Only the given field is changed, a
+	 * required field cannot be cleared
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testPatchContact() throws Exception {
+		mvc.perform(patch("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.contentType("application/merge-patch+json")
+				.content("{\"phoneNumber\": \"0400000000\", \"state\": null}"))
+				.andDo(print())
+				.andExpect(status().isOk());
+
+		mvc.perform(get("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.phoneNumber", is("0400000000")))
+				.andExpect(jsonPath("$.state").doesNotExist())
+				.andExpect(jsonPath("$.firstName", is("John")))
+				.andExpect(jsonPath("$.email", is("tst@test.com")));
+
+		mvc.perform(patch("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.contentType("application/merge-patch+json")
+				.content("{\"firstName\": null}"))
+				.andExpect(status().isBadRequest());
+
+		mvc.perform(patch("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.contentType("application/merge-patch+json")
+				.content("{\"email\": \"tst2@test.com\"}"))
+				.andExpect(status().isBadRequest());
+
+		mvc.perform(patch("/api/addressbook/f18856f9-70c8-41e4-9cd7-2fe5bbf40e34")
+				.contentType("application/merge-patch+json")
+				.content("{\"name\": \"Patched\"}"))
+				.andExpect(status().isOk());
+		mvc.perform(get("/api/addressbook/f18856f9-70c8-41e4-9cd7-2fe5bbf40e34"))
+				.andExpect(jsonPath("$.name", is("Patched")));
+	}
+
+	/**
+	 * Test update with If-Match. A stale ETag is rejected with 409, the current one is accepted. A Contact taking an
+	 * email used in its AddressBook is rejected with 400, a missing Contact or AddressBook with 404
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testUpdateWithStaleETag() throws Exception {
+		String eTag = mvc.perform(get("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+		String content = "{\"firstName\": \"Johnny\", \"surName\": \"Doe\", \"email\": \"tst@test.com\"}";
+
+		mvc.perform(put("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.header("If-Match", eTag)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(content))
+				.andExpect(status().isOk());
+
+		mvc.perform(put("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.header("If-Match", eTag)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(content))
+				.andDo(print())
+				.andExpect(status().isConflict());
+
+		mvc.perform(put("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"firstName\": \"Johnny\", \"email\": \"tst2@test.com\"}"))
+				.andExpect(status().isBadRequest());
+		mvc.perform(put("/api/addressbook/00000000-0000-0000-0000-000000000000/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(content))
+				.andExpect(status().isNotFound());
+		mvc.perform(put("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/00000000-0000-0000-0000-000000000000")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(content))
+				.andExpect(status().isNotFound());
+
+		String bookETag = mvc.perform(get("/api/addressbook/f18856f9-70c8-41e4-9cd7-2fe5bbf40e34"))
+				.andReturn().getResponse().getHeader("ETag");
+		mvc.perform(put("/api/addressbook/f18856f9-70c8-41e4-9cd7-2fe5bbf40e34")
+				.header("If-Match", bookETag)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Renamed\"}"))
+				.andExpect(status().isOk());
+		mvc.perform(put("/api/addressbook/f18856f9-70c8-41e4-9cd7-2fe5bbf40e34")
+				.header("If-Match", bookETag)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Renamed again\"}"))
+				.andExpect(status().isConflict());
+
+		mvc.perform(put("/api/addressbook/00000000-0000-0000-0000-000000000000")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Missing\"}"))
+				.andExpect(status().isNotFound());
+	}
+
+	/**
+	 * Test bulk import a JSON array '/api/addressbook/{id}/contact/import'. Only the first row is valid, the others
+	 * miss first name, duplicate an existing contact, and duplicate the first row in a later chunk.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testImportContacts () throws Exception {
+		MockHttpServletRequestBuilder mockRequest = post("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/import")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("[" +
+						"{\"firstName\": \"Bulk\", \"email\": \"bulk@test.com\"}," +
+						"{\"email\": \"bulk2@test.com\"}," +
+						"{\"firstName\": \"Bulk\", \"email\": \"tst@test.com\"}," +
+						"{\"firstName\": \"Bulk\", \"email\": \"bulk@test.com\"}" +
+						"]");
+
+		mvc.perform(mockRequest).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.imported", is(1)))
+				.andExpect(jsonPath("$.rejected", is(3)))
+				.andExpect(jsonPath("$.errors[*].row", contains(1, 2, 3)));
+
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(3)));
+	}
+
+
+	/**
+	 * Test bulk import newline delimited JSON '/api/addressbook/{id}/contact/import'. Expect both rows imported
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testImportContactsNdjson () throws Exception {
+		MockHttpServletRequestBuilder mockRequest = post("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/import")
+				.contentType("application/x-ndjson")
+				.content("{\"firstName\": \"Bulk\", \"email\": \"bulk@test.com\"}\n" +
+						"{\"firstName\": \"Bulk\", \"email\": \"bulk2@test.com\"}\n");
+
+		mvc.perform(mockRequest).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.imported", is(2)))
+				.andExpect(jsonPath("$.rejected", is(0)));
+
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(4)));
+	}
+
+
 	/**
 	 *
 	 * Test update a contact 'api/addressbook/{addressBookId}/contact/{id}`.
@@ -219,6 +612,46 @@ class SimpleAddressBookApplicationTests {
 	}
 
 
+	/**
+	 * Test a cached contact is invalidated by update. The contact is read once to be cached before it is updated, the
+	 * following read should return the updated contact.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testUpdateCachedContact () throws Exception {
+		mvc.perform(get("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88"))
+				.andExpect(jsonPath("$.firstName", is("John")));
+
+		mvc.perform(put("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"firstName\": \"Cached\", \"email\": \"tst@test.com\"}"))
+				.andDo(print()).andExpect(status().isOk());
+
+		mvc.perform(get("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")).andDo(print())
+				.andExpect(jsonPath("$.firstName", is("Cached")));
+	}
+
+
+	/**
+	 * Test AddressBookService calls are timed. After a contact is read, the timer should have counted one successful
+	 * getContact call
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testServiceMetrics () throws Exception {
+		mvc.perform(get("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")).andExpect(status().isOk());
+
+		mvc.perform(get("/actuator/metrics/addressbook.service").param("tag", "method:getContact")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.measurements[?(@.statistic == 'COUNT')].value", contains(1.0)));
+
+		mvc.perform(get("/actuator/metrics/addressbook.service").param("tag", "method:getContact").param("tag", "outcome:success"))
+				.andExpect(status().isOk());
+	}
+
+
 	/**
 	 * Test Delete a AddressBook DELETE /api/addressbook/{id}. The second get request should return empty result with given Id
 	 *
@@ -231,6 +664,12 @@ class SimpleAddressBookApplicationTests {
 
 		MockHttpServletRequestBuilder confirmRequest = get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03");
 		mvc.perform(confirmRequest).andExpect(content().string(""));
+
+		mvc.perform(get("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88"))
+				.andExpect(status().isNotFound());
+		mvc.perform(get("/api/addressbook/contact/search").param("addressBookId", "76f36362-92d9-4676-8384-abb62f54ce03"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content", hasSize(0)));
 	}
 
 
@@ -257,4 +696,297 @@ class SimpleAddressBookApplicationTests {
 				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
 				.andExpect(jsonPath("$", hasSize(1)));
 	}
+
+	/**
+	 * Test deleting a contact which is not cached invalidates its cached addressbook. The addressbook read after the
+	 * delete should carry the last modified time stored in DB, and a new ETag
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testDeleteUncachedContact () throws Exception {
+		String eTag = mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+
+		mvc.perform(delete("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88"))
+				.andExpect(status().isOk());
+
+		String lastModified = JsonPath.read(mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03")
+				.param("summary", "true"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(), "$.lastModified");
+
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03").header("If-None-Match", eTag))
+				.andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", not(eTag)))
+				.andExpect(jsonPath("$.lastModified", is(lastModified)));
+	}
+
+	/**
+	 * Test the async API '/api/async/addressbook'. A contact created through it is read back, and a missing
+	 * addressbook is answered with 404 once the call completes
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testAsyncAddressBook() throws Exception {
+		MvcResult created = mvc.perform(post("/api/async/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"firstName\": \"Async\", \"email\": \"async@test.com\"}"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String newContactId = JsonPath.read(mvc.perform(asyncDispatch(created)).andDo(print())
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(), "$");
+
+		MvcResult contact = mvc.perform(get("/api/async/addressbook/contact/" + newContactId))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mvc.perform(asyncDispatch(contact))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.firstName", is("Async")));
+
+		MvcResult contacts = mvc.perform(get("/api/async/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mvc.perform(asyncDispatch(contacts))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(3)));
+
+		MvcResult missing = mvc.perform(get("/api/async/addressbook/00000000-0000-0000-0000-000000000000/contact"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mvc.perform(asyncDispatch(missing))
+				.andExpect(status().isNotFound());
+	}
+
+	/**
+	 * Test conditional requests on the async API. A matching If-None-Match is answered with 304, a patch with a stale
+	 * If-Match with 409 and with the current one applied, and delta sync is served too
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testAsyncConditionalRequests() throws Exception {
+		MvcResult contact = mvc.perform(get("/api/async/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String eTag = mvc.perform(asyncDispatch(contact))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.firstName", is("John")))
+				.andReturn().getResponse().getHeader("ETag");
+
+		MvcResult notModified = mvc.perform(get("/api/async/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.header("If-None-Match", eTag))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mvc.perform(asyncDispatch(notModified))
+				.andExpect(status().isNotModified());
+
+		MvcResult patched = mvc.perform(patch("/api/async/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.header("If-Match", eTag)
+				.contentType("application/merge-patch+json")
+				.content("{\"firstName\": \"Patched\"}"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mvc.perform(asyncDispatch(patched))
+				.andExpect(status().isOk());
+
+		MvcResult stale = mvc.perform(patch("/api/async/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.header("If-Match", eTag)
+				.contentType("application/merge-patch+json")
+				.content("{\"firstName\": \"Stale\"}"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mvc.perform(asyncDispatch(stale))
+				.andExpect(status().isConflict());
+
+		MvcResult modified = mvc.perform(get("/api/async/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")
+				.header("If-None-Match", eTag))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mvc.perform(asyncDispatch(modified))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", not(eTag)))
+				.andExpect(jsonPath("$.firstName", is("Patched")));
+
+		MvcResult changes = mvc.perform(get("/api/async/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/changes"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mvc.perform(asyncDispatch(changes))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.contacts", hasSize(2)));
+	}
+
+	/**
+	 * Test delta sync 'api/addressbook/{id}/contact/changes'. Expect every contact without token, then only the
+	 * contact created and the one deleted since the token, then nothing
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testGetContactChanges() throws Exception {
+		String full = mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/changes"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.contacts", hasSize(2)))
+				.andExpect(jsonPath("$.deleted", hasSize(0)))
+				.andExpect(jsonPath("$.hasMore", is(false)))
+				.andReturn().getResponse().getContentAsString();
+		String token = JsonPath.read(full, "$.next");
+
+		mvc.perform(post("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"firstName\": \"Delta\", \"email\": \"delta@test.com\"}"))
+				.andExpect(status().isOk());
+		mvc.perform(delete("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88"))
+				.andExpect(status().isOk());
+
+		String delta = mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/changes")
+				.param("since", token)).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.contacts", hasSize(1)))
+				.andExpect(jsonPath("$.contacts[0].firstName", is("Delta")))
+				.andExpect(jsonPath("$.deleted", contains("cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")))
+				.andReturn().getResponse().getContentAsString();
+
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/changes")
+				.param("since", (String) JsonPath.read(delta, "$.next")))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.contacts", hasSize(0)))
+				.andExpect(jsonPath("$.deleted", hasSize(0)));
+
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/changes").param("since", "!"))
+				.andExpect(status().isBadRequest());
+	}
+
+	/**
+	 * Test paging through 'api/addressbook/{id}/contact/changes'. Both contacts were written with the same sync
+	 * version, pages of one resume within it, and a contact removed while paging is reported as deleted
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testGetContactChangesPaged() throws Exception {
+		String first = mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/changes")
+				.param("limit", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.contacts", hasSize(1)))
+				.andExpect(jsonPath("$.hasMore", is(true)))
+				.andReturn().getResponse().getContentAsString();
+		String firstId = JsonPath.read(first, "$.contacts[0].id");
+
+		mvc.perform(delete("/api/addressbook/contact/" + firstId))
+				.andExpect(status().isOk());
+
+		String second = mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/changes")
+				.param("since", (String) JsonPath.read(first, "$.next"))
+				.param("limit", "1")).andDo(print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.contacts", hasSize(1)))
+				.andExpect(jsonPath("$.contacts[0].id", not(firstId)))
+				.andExpect(jsonPath("$.deleted", contains(firstId)))
+				.andExpect(jsonPath("$.hasMore", is(true)))
+				.andReturn().getResponse().getContentAsString();
+
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/changes")
+				.param("since", (String) JsonPath.read(second, "$.next"))
+				.param("limit", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.contacts", hasSize(0)))
+				.andExpect(jsonPath("$.hasMore", is(false)));
+
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/changes")
+				.param("limit", "0"))
+				.andExpect(status().isBadRequest());
+	}
+
+	/**
+	 * Test 'api/addressbook/{id}/contact/changes' once removals are purged. A token older than the purged removal is
+	 * answered with 410, a token handed out after it is still served
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testGetContactChangesAfterPurge() throws Exception {
+		String before = JsonPath.read(mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/changes"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(), "$.next");
+
+		mvc.perform(delete("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88"))
+				.andExpect(status().isOk());
+		String after = JsonPath.read(mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/changes")
+				.param("since", before))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.deleted", contains("cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88")))
+				.andReturn().getResponse().getContentAsString(), "$.next");
+
+		Assertions.assertEquals(1, tombstonePurger.purge(Instant.now().plusSeconds(1)));
+
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/changes").param("since", before))
+				.andDo(print())
+				.andExpect(status().isGone());
+		mvc.perform(get("/api/addressbook/76f36362-92d9-4676-8384-abb62f54ce03/contact/changes").param("since", after))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.deleted", hasSize(0)));
+		mvc.perform(get("/api/addressbook/f18856f9-70c8-41e4-9cd7-2fe5bbf40e34/contact/changes").param("since", before))
+				.andExpect(status().isOk());
+	}
+
+	/**
+	 * Test duplicate detection '/api/addressbook/contact/duplicates'. Expect the two 'Jane Doe' of different
+	 * addressbooks to be found once the run is completed
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testFindDuplicates() throws Exception {
+		mvc.perform(get("/api/addressbook/contact/duplicates"))
+				.andExpect(status().isNotFound());
+		mvc.perform(post("/api/addressbook/contact/duplicates")).andDo(print())
+				.andExpect(status().isAccepted());
+
+		String report = "";
+		for (int i = 0; i < 100 && !report.contains("COMPLETED"); i++) {
+			Thread.sleep(50);
+			report = mvc.perform(get("/api/addressbook/contact/duplicates"))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString();
+		}
+		Assertions.assertEquals("COMPLETED", JsonPath.read(report, "$.status"), report);
+		Assertions.assertEquals(1, (int) JsonPath.read(report, "$.clusters.length()"), report);
+		mvc.perform(get("/api/addressbook/contact/duplicates"))
+				.andExpect(jsonPath("$.clusters[0]", hasSize(2)))
+				.andExpect(jsonPath("$.clusters[0]", containsInAnyOrder(
+						"e42f73ba-2874-4933-9276-ebfb45ae4f8a", "69462f07-4515-4c13-b72b-f5e4bb496197")));
+	}
+
+	/**
+	 * Test the change feed '/api/addressbook/changes'. A contact deleted before subscribing is sent again to a client
+	 * resuming from event 0, filtered by its addressbook
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void testChangeFeed() throws Exception {
+		mvc.perform(delete("/api/addressbook/contact/cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88"))
+				.andExpect(status().isOk());
+
+		MvcResult changes = mvc.perform(get("/api/addressbook/changes")
+				.param("addressBookId", "76f36362-92d9-4676-8384-abb62f54ce03")
+				.header("Last-Event-ID", "0"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		String events = "";
+		for (int i = 0; i < 100 && !events.contains("DELETED"); i++) {
+			Thread.sleep(50);
+			events = changes.getResponse().getContentAsString();
+		}
+		Assertions.assertTrue(events.contains("id:1"), events);
+		Assertions.assertTrue(events.contains("event:change"), events);
+		Assertions.assertTrue(events.contains("\"type\":\"DELETED\""), events);
+		Assertions.assertTrue(events.contains("\"id\":\"cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88\""), events);
+	}
 }
@@ -0,0 +1,90 @@
+package unit;
+
+import addressbook.controller.AddressBookController;
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.model.view.AddressBookVersion;
+import addressbook.service.addressbook.AddressBookService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+import java.util.UUID;
+
+
+@ExtendWith(MockitoExtension.class)
+class AddressBookControllerTest {
+
+    private AddressBookController controller;
+
+    @Mock
+    private AddressBookService addressBookService;
+
+    @BeforeEach
+    private void beforeTest () {
+        controller = new AddressBookController(addressBookService);
+    }
+
+    /**
+     * Test the ETag of a Contact comes from the Contact returned, when the version read before it is newer
+     *
+     */
+    @Test
+    void testGetContact_ETag_Of_Body () {
+        UUID id = UUID.randomUUID();
+        Contact contact = new Contact();
+        contact.setId(id);
+        contact.setVersion(2L);
+        Mockito.when(addressBookService.getContactVersion(id)).thenReturn(Optional.of(3L));
+        Mockito.when(addressBookService.getContact(id)).thenReturn(Optional.of(contact));
+
+        ResponseEntity<Contact> response = controller.get(id, null);
+
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertEquals("\"2\"", response.getHeaders().getETag());
+        Assertions.assertSame(contact, response.getBody());
+    }
+
+    /**
+     * Test a matching If-None-Match is answered from the version, without loading the Contact
+     *
+     */
+    @Test
+    void testGetContact_Not_Modified () {
+        UUID id = UUID.randomUUID();
+        Mockito.when(addressBookService.getContactVersion(id)).thenReturn(Optional.of(3L));
+
+        ResponseEntity<Contact> response = controller.get(id, "W/\"3\"");
+
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        Assertions.assertEquals("\"3\"", response.getHeaders().getETag());
+        Mockito.verify(addressBookService, Mockito.never()).getContact(id);
+    }
+
+    /**
+     * Test the ETag of an AddressBook comes from the AddressBook returned, when the versions read before it are older
+     *
+     */
+    @Test
+    void testGetAddressBook_ETag_Of_Body () {
+        UUID id = UUID.randomUUID();
+        AddressBook addressBook = new AddressBook();
+        addressBook.setId(id);
+        addressBook.setVersion(1L);
+        addressBook.setContentVersion(5L);
+        Mockito.when(addressBookService.getVersion(id)).thenReturn(Optional.of(new AddressBookVersion(id, 1L, 4L)));
+        Mockito.when(addressBookService.get(id)).thenReturn(Optional.of(addressBook));
+
+        ResponseEntity<AddressBook> response = controller.getAddressBook(id, "\"1.3\"");
+
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertEquals("\"1.5\"", response.getHeaders().getETag());
+    }
+}
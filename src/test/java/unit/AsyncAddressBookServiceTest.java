@@ -0,0 +1,85 @@
+package unit;
+
+import addressbook.model.view.AddressBookView;
+import addressbook.service.addressbook.AddressBookService;
+import addressbook.service.addressbook.asyncimpl.AsyncAddressBookService;
+import addressbook.service.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+@ExtendWith(MockitoExtension.class)
+class AsyncAddressBookServiceTest {
+
+    private AsyncAddressBookService service;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @Mock
+    private AddressBookService delegate;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    private void beforeTest () {
+        meterRegistry = new SimpleMeterRegistry();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+        service = new AsyncAddressBookService(delegate, executor, meterRegistry);
+    }
+
+    @AfterEach
+    private void afterTest () {
+        release.countDown();
+        service.shutdown();
+    }
+
+    /**
+     * Test the result of the delegate is returned through the future
+     *
+     */
+    @Test
+    void testList () throws Exception {
+        Mockito.when(delegate.list()).thenReturn(Collections.emptyList());
+
+        Assertions.assertTrue(service.list().get(5, TimeUnit.SECONDS).isEmpty());
+    }
+
+    /**
+     * Test when the only thread is busy and the queue is full. Expect {@link ServiceUnavailableException} to be
+     * thrown at once, and the rejection to be counted
+     *
+     */
+    @Test
+    void testSaturated () throws Exception {
+        Mockito.when(delegate.list()).thenAnswer(invocation -> {
+            release.await();
+            return Collections.emptyList();
+        });
+
+        CompletableFuture<List<AddressBookView>> running = service.list();
+        CompletableFuture<List<AddressBookView>> queued = service.list();
+
+        Assertions.assertThrows(ServiceUnavailableException.class, () -> service.list());
+        Assertions.assertEquals(1, meterRegistry.get(AsyncAddressBookService.REJECTED_NAME).counter().count());
+
+        release.countDown();
+        Assertions.assertTrue(running.get(5, TimeUnit.SECONDS).isEmpty());
+        Assertions.assertTrue(queued.get(5, TimeUnit.SECONDS).isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+package unit;
+
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.service.addressbook.AddressBookService;
+import addressbook.service.addressbook.cacheimpl.CachingAddressBookService;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+
+
+@ExtendWith(MockitoExtension.class)
+class CachingAddressBookServiceTest {
+
+    private CachingAddressBookService service;
+
+    private Cache<UUID, AddressBook> addressBookCache;
+
+    private Cache<UUID, Contact> contactCache;
+
+    @Mock
+    private AddressBookService delegate;
+
+    @BeforeEach
+    private void beforeTest () {
+        addressBookCache = CacheBuilder.newBuilder().build();
+        contactCache = CacheBuilder.newBuilder().build();
+        service = new CachingAddressBookService(delegate, addressBookCache, contactCache);
+    }
+
+    /**
+     * Test a Contact update reads only the AddressBook Id of the Contact, and invalidates that AddressBook
+     *
+     */
+    @Test
+    void testUpdateContact_Reads_AddressBook_Id () {
+        UUID id = UUID.randomUUID();
+        UUID addressBookId = UUID.randomUUID();
+        AddressBook addressBook = new AddressBook();
+        addressBook.setId(addressBookId);
+        addressBookCache.put(addressBookId, addressBook);
+        Mockito.when(delegate.getContactAddressBookId(id)).thenReturn(Optional.of(addressBookId));
+
+        service.patchContact(id, Collections.singletonMap("firstName", "Bob"), null);
+
+        Mockito.verify(delegate).patchContact(id, Collections.singletonMap("firstName", "Bob"), null);
+        Mockito.verify(delegate, Mockito.never()).getContact(id);
+        Assertions.assertNull(addressBookCache.getIfPresent(addressBookId));
+        Assertions.assertNull(contactCache.getIfPresent(id));
+    }
+
+    /**
+     * Test a Contact loaded while a write commits is not kept in the cache
+     *
+     */
+    @Test
+    void testGetContact_Not_Cached_When_Written_While_Loading () {
+        UUID id = UUID.randomUUID();
+        Contact stale = new Contact();
+        stale.setId(id);
+        Mockito.when(delegate.getContact(id)).thenAnswer(invocation -> {
+            service.deleteContact(id);
+            return Optional.of(stale);
+        });
+
+        Assertions.assertSame(stale, service.getContact(id).get());
+        Assertions.assertNull(contactCache.getIfPresent(id));
+
+        Mockito.reset(delegate);
+        Mockito.when(delegate.getContact(id)).thenReturn(Optional.of(stale));
+
+        service.getContact(id);
+        Assertions.assertSame(stale, contactCache.getIfPresent(id));
+    }
+}
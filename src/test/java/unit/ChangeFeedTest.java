@@ -0,0 +1,87 @@
+package unit;
+
+import addressbook.service.addressbook.changefeed.ChangeEvent;
+import addressbook.service.addressbook.changefeed.ChangeFeed;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+
+class ChangeFeedTest {
+
+    private final UUID addressBookId = UUID.randomUUID();
+
+    private final UUID otherAddressBookId = UUID.randomUUID();
+
+    private ChangeFeed feed;
+
+    @BeforeEach
+    void beforeTest () {
+        feed = new ChangeFeed(3, Duration.ofMinutes(1), 1, Duration.ofSeconds(10));
+        feed.onChange(ChangeEvent.contact(ChangeEvent.Type.CREATED, UUID.randomUUID(), addressBookId, null));
+        feed.onChange(ChangeEvent.contact(ChangeEvent.Type.CREATED, UUID.randomUUID(), otherAddressBookId, null));
+        feed.onChange(ChangeEvent.contact(ChangeEvent.Type.UPDATED, UUID.randomUUID(), otherAddressBookId, addressBookId));
+        feed.onChange(ChangeEvent.addressBook(ChangeEvent.Type.UPDATED, addressBookId));
+    }
+
+    @AfterEach
+    void afterTest () {
+        feed.shutdown();
+    }
+
+    /**
+     * Test events are numbered in order, and only the buffered events concerning the AddressBook are returned,
+     * including a Contact moved out of it
+     *
+     */
+    @Test
+    void testSince_Filter_By_AddressBook () {
+        Assertions.assertEquals(4, feed.getLastSequence());
+
+        List<ChangeEvent> events = feed.since(1, addressBookId).get();
+        Assertions.assertEquals(2, events.size());
+        Assertions.assertEquals(3, events.get(0).getSequence());
+        Assertions.assertEquals(addressBookId, events.get(0).getPreviousAddressBookId());
+        Assertions.assertEquals(4, events.get(1).getSequence());
+
+        Assertions.assertEquals(3, feed.since(1, null).get().size());
+        Assertions.assertTrue(feed.since(4, null).get().isEmpty());
+    }
+
+    /**
+     * Test nothing is returned when events after the given sequence are no longer buffered, or when the sequence is
+     * ahead of the feed
+     *
+     */
+    @Test
+    void testSince_Missed_Events () {
+        Optional<List<ChangeEvent>> missed = feed.since(0, null);
+        Assertions.assertFalse(missed.isPresent());
+
+        Assertions.assertFalse(feed.since(5, null).isPresent());
+    }
+
+    /**
+     * Test a subscriber missing more events than its queue holds is dropped, once sent a reset, while one missing
+     * fewer stays subscribed
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    void testSubscribe_Drop_Fallen_Behind () throws InterruptedException {
+        feed.subscribe(null, 2L);
+        feed.subscribe(otherAddressBookId, 2L);
+        Assertions.assertEquals(2, feed.getSubscriberCount());
+
+        for (int i = 0; i < 50 && feed.getSubscriberCount() > 1; i++) {
+            Thread.sleep(100);
+        }
+        Assertions.assertEquals(1, feed.getSubscriberCount());
+    }
+}
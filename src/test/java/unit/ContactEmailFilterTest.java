@@ -0,0 +1,93 @@
+package unit;
+
+import addressbook.dao.AddressBookRepository;
+import addressbook.dao.ContactRepository;
+import addressbook.dao.shard.ShardResolver;
+import addressbook.model.view.AddressBookSummary;
+import addressbook.service.addressbook.contactvalidator.ContactEmailFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+
+@ExtendWith(MockitoExtension.class)
+class ContactEmailFilterTest {
+
+    private final UUID addressBookId = UUID.randomUUID();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private ContactRepository contactRepository;
+
+    @Mock
+    private AddressBookRepository addressBookRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ContactEmailFilter filter;
+
+    @BeforeEach
+    void beforeTest () {
+        filter = new ContactEmailFilter(contactRepository, addressBookRepository, ShardResolver.single(),
+                transactionManager, meterRegistry, 0.01, Duration.ofMinutes(10));
+    }
+
+    /**
+     * Test a filter rebuilt from DB answers for its emails whatever their case, and only lets the query run for them
+     *
+     */
+    @Test
+    void testExists_After_Rebuild () {
+        Mockito.when(addressBookRepository.findSummaryById(addressBookId))
+                .thenReturn(Optional.of(new AddressBookSummary(addressBookId, "Book", Instant.now(), 2)));
+        Mockito.when(contactRepository.streamEmailsByAddressBookId(addressBookId))
+                .thenReturn(Stream.of("John@Test.com", "jane@test.com"));
+        filter.rebuild(addressBookId);
+
+        Assertions.assertTrue(filter.exists(addressBookId, " john@test.com", () -> true));
+        Assertions.assertFalse(filter.exists(addressBookId, "jane@test.com", () -> false));
+        Assertions.assertFalse(filter.exists(addressBookId, "other@test.com",
+                () -> Assertions.<Boolean>fail("DB must not be queried for an absent email")));
+
+        Assertions.assertEquals(1, checks("duplicate"));
+        Assertions.assertEquals(1, checks("false_positive"));
+        Assertions.assertEquals(1, checks("absent"));
+    }
+
+    /**
+     * Test the query always runs for an AddressBook without filter, including once its filter is dropped
+     *
+     */
+    @Test
+    void testExists_Unfiltered_AddressBook () {
+        Assertions.assertTrue(filter.exists(addressBookId, "john@test.com", () -> true));
+
+        filter.addAddressBook(addressBookId);
+        Assertions.assertFalse(filter.exists(addressBookId, "john@test.com",
+                () -> Assertions.<Boolean>fail("DB must not be queried for an absent email")));
+
+        filter.removeAddressBook(addressBookId);
+        Assertions.assertFalse(filter.exists(addressBookId, "john@test.com", () -> false));
+
+        Assertions.assertEquals(2, checks("unfiltered"));
+        Assertions.assertEquals(1, checks("absent"));
+    }
+
+    private double checks(String result) {
+        return meterRegistry.get(ContactEmailFilter.CHECKS_NAME).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,104 @@
+package unit;
+
+import addressbook.service.addressbook.autocomplete.ContactNameIndex;
+import addressbook.service.addressbook.autocomplete.ContactSuggestion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+
+class ContactNameIndexTest {
+
+    private final UUID addressBookId = UUID.randomUUID();
+
+    private final UUID john = UUID.randomUUID();
+
+    private final UUID jose = UUID.randomUUID();
+
+    private ContactNameIndex index;
+
+    @BeforeEach
+    void beforeTest () {
+        index = new ContactNameIndex();
+        index.put(john, addressBookId, "John", "Doe");
+        index.put(jose, addressBookId, "José", "Doering");
+        index.put(UUID.randomUUID(), UUID.randomUUID(), "Joan", "Other");
+    }
+
+    /**
+     * Test prefix matching ignores case and diacritics, and only return Contacts of the given AddressBook
+     *
+     */
+    @Test
+    void testSuggest_Fold_Case_And_Diacritics () {
+        List<ContactSuggestion> suggestions = index.suggest(addressBookId, "JOS", 10);
+
+        Assertions.assertEquals(1, suggestions.size());
+        Assertions.assertEquals(jose, suggestions.get(0).getId());
+        Assertions.assertEquals("José", suggestions.get(0).getFirstName());
+    }
+
+    /**
+     * Test a Contact matching on several of its names is suggested once, and the limit is applied
+     *
+     */
+    @Test
+    void testSuggest_Unique_And_Limited () {
+        Assertions.assertEquals(2, index.suggest(addressBookId, "jo", 10).size());
+        Assertions.assertEquals(1, index.suggest(addressBookId, "jo", 1).size());
+        Assertions.assertEquals(2, index.suggest(addressBookId, "doe", 10).size());
+        Assertions.assertEquals(1, index.suggest(addressBookId, "john d", 10).size());
+    }
+
+    /**
+     * Test a renamed Contact is no longer found by its old name, and a removed Contact is not found at all
+     *
+     */
+    @Test
+    void testPut_Replace_And_Remove () {
+        index.put(john, addressBookId, "Jack", "Doe");
+        Assertions.assertEquals(1, index.suggest(addressBookId, "jo", 10).size());
+        Assertions.assertEquals(1, index.suggest(addressBookId, "jack", 10).size());
+
+        index.remove(jose);
+        Assertions.assertTrue(index.suggest(addressBookId, "jo", 10).isEmpty());
+    }
+
+    /**
+     * Test a Contact moved to another AddressBook is only suggested in the new one
+     *
+     */
+    @Test
+    void testPut_Move_AddressBook () {
+        UUID otherAddressBookId = UUID.randomUUID();
+        index.put(john, otherAddressBookId, "John", "Doe");
+
+        Assertions.assertEquals(1, index.suggest(addressBookId, "jo", 10).size());
+        Assertions.assertEquals(john, index.suggest(otherAddressBookId, "jo", 10).get(0).getId());
+        Assertions.assertEquals(3, index.size());
+    }
+
+    /**
+     * Test a load replaces the content of the index, and keeps the writes made while it runs
+     *
+     */
+    @Test
+    void testLoad_Keep_Concurrent_Writes () {
+        UUID jane = UUID.randomUUID();
+        index.load(loaded -> {
+            loaded.put(john, addressBookId, "John", "Doe");
+            loaded.put(jose, addressBookId, "José", "Doering");
+            // Committed while loading, after DB was read
+            index.put(jane, addressBookId, "Jane", "Doe");
+            index.remove(jose);
+            Assertions.assertEquals(1, index.suggest(addressBookId, "jane", 10).size());
+        });
+
+        Assertions.assertEquals(2, index.size());
+        Assertions.assertEquals(2, index.suggest(addressBookId, "doe", 10).size());
+        Assertions.assertTrue(index.suggest(addressBookId, "jos", 10).isEmpty());
+    }
+}
@@ -1,18 +1,27 @@
 package unit;
 
+import addressbook.dao.AddressBookRepository;
+import addressbook.dao.ContactRepository;
+import addressbook.dao.shard.ShardResolver;
 import addressbook.model.impl.AddressBook;
 import addressbook.model.impl.Contact;
+import addressbook.service.addressbook.contactvalidator.ContactEmailFilter;
 import addressbook.service.addressbook.contactvalidator.ContactValidator;
 import addressbook.service.addressbook.contactvalidator.impl.DefaultContactValidator;
 import addressbook.service.exception.InvalidException;
 import addressbook.service.exception.NotFoundException;
-import org.assertj.core.util.Lists;
-import org.assertj.core.util.Sets;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.UUID;
 
 
 @ExtendWith(MockitoExtension.class)
@@ -21,9 +30,22 @@ class DefaultContactValidatorTest {
 
     private ContactValidator validator;
 
+    private ContactEmailFilter contactEmailFilter;
+
+    @Mock
+    private ContactRepository contactRepository;
+
+    @Mock
+    private AddressBookRepository addressBookRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @BeforeEach
     private void beforeTest () {
-        validator = new DefaultContactValidator();
+        contactEmailFilter = new ContactEmailFilter(contactRepository, addressBookRepository, ShardResolver.single(),
+                transactionManager, new SimpleMeterRegistry(), 0.01, Duration.ofMinutes(10));
+        validator = new DefaultContactValidator(contactRepository, contactEmailFilter);
     }
 
     /**
@@ -72,18 +94,64 @@ class DefaultContactValidatorTest {
      */
     @Test
     void testCreateContact_Duplicate_Email_Address () {
+        AddressBook addressBook = new AddressBook();
+        addressBook.setId(UUID.randomUUID());
+
+        Contact contactToAdd = new Contact();
+        contactToAdd.setFirstName("John");
+        contactToAdd.setEmail("tst@tst.com");
+        contactToAdd.setAddressBook(addressBook);
+
+        Mockito.when(contactRepository.existsByAddressBookIdAndEmail(addressBook.getId(), "tst@tst.com")).thenReturn(true);
+
+        Assertions.assertTrue(validator.validate(contactToAdd).getException() instanceof InvalidException);
+    }
+
 
-        Contact contactInAddressBook = new Contact();
-        contactInAddressBook.setEmail("tst@tst.com");
+    /**
+     * Test when an existing Contact is validated with its own email. The Contact itself must not be counted as
+     * duplicate
+     *
+     */
+    @Test
+    void testUpdateContact_Keep_Own_Email_Address () {
+        AddressBook addressBook = new AddressBook();
+        addressBook.setId(UUID.randomUUID());
+
+        Contact contactToUpdate = new Contact();
+        contactToUpdate.setId(UUID.randomUUID());
+        contactToUpdate.setFirstName("John");
+        contactToUpdate.setEmail("tst@tst.com");
+        contactToUpdate.setAddressBook(addressBook);
 
+        Mockito.when(contactRepository.existsByAddressBookIdAndEmailAndIdNot(addressBook.getId(), "tst@tst.com", contactToUpdate.getId()))
+                .thenReturn(false);
+
+        Assertions.assertTrue(validator.validate(contactToUpdate).getValid());
+    }
+
+    /**
+     * Test when the email filter of the AddressBook knows the email is not used. The DB must not be queried, until
+     * the email is added to the filter
+     *
+     */
+    @Test
+    void testCreateContact_Email_Absent_From_Filter () {
         AddressBook addressBook = new AddressBook();
-        addressBook.setContacts(Sets.newHashSet(Lists.newArrayList(contactInAddressBook)));
-        contactInAddressBook.setAddressBook(addressBook);
+        addressBook.setId(UUID.randomUUID());
+        contactEmailFilter.addAddressBook(addressBook.getId());
 
         Contact contactToAdd = new Contact();
+        contactToAdd.setFirstName("John");
         contactToAdd.setEmail("tst@tst.com");
         contactToAdd.setAddressBook(addressBook);
 
+        Assertions.assertTrue(validator.validate(contactToAdd).getValid());
+        Mockito.verify(contactRepository, Mockito.never()).existsByAddressBookIdAndEmail(addressBook.getId(), "tst@tst.com");
+
+        contactEmailFilter.put(addressBook.getId(), "TST@tst.com");
+        Mockito.when(contactRepository.existsByAddressBookIdAndEmail(addressBook.getId(), "tst@tst.com")).thenReturn(true);
+
         Assertions.assertTrue(validator.validate(contactToAdd).getException() instanceof InvalidException);
     }
 }
@@ -0,0 +1,138 @@
+package unit;
+
+import addressbook.dao.ContactRepository;
+import addressbook.dao.shard.ShardResolver;
+import addressbook.model.view.ContactMatchView;
+import addressbook.service.addressbook.duplicate.ContactNormalizer;
+import addressbook.service.addressbook.duplicate.DuplicateDetector;
+import addressbook.service.addressbook.duplicate.DuplicateReport;
+import addressbook.service.addressbook.duplicate.JaroWinkler;
+import addressbook.service.addressbook.phone.PhoneNumberNormalizer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+@ExtendWith(MockitoExtension.class)
+class DuplicateDetectorTest {
+
+    private static final PhoneNumberNormalizer PHONE_NUMBER_NORMALIZER = new PhoneNumberNormalizer("AU");
+
+    @Mock
+    private ContactRepository contactRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DuplicateDetector detector;
+
+    private final UUID john = UUID.randomUUID();
+
+    private final UUID johnUpperCaseEmail = UUID.randomUUID();
+
+    private final UUID jon = UUID.randomUUID();
+
+    private final UUID jane = UUID.randomUUID();
+
+    private final UUID johnSmith = UUID.randomUUID();
+
+    @BeforeEach
+    void beforeTest () {
+        detector = new DuplicateDetector(contactRepository, ShardResolver.single(), transactionManager, 20, 0.9);
+    }
+
+    @AfterEach
+    void afterTest () {
+        detector.shutdown();
+    }
+
+    /**
+     * Test the same email in another case, and a name typo with the same surname sound, end up in one cluster while a
+     * relative sharing the phone number and a namesake with another surname do not
+     *
+     */
+    @Test
+    void testDetect_Clusters () {
+        List<ContactMatchView> contacts = Arrays.asList(
+                contact(john, "John", "Doe", "john@test.com", "0404 123 456", "Australia"),
+                contact(johnUpperCaseEmail, "Johnny", "Dow", " JOHN@test.com", null, "Australia"),
+                contact(jon, "Jon", "Doe", "jon.doe@test.com", "+61 404 999 888", "Australia"),
+                contact(jane, "Jane", "Doe", "jane@test.com", "0404 123 456", "Australia"),
+                contact(johnSmith, "John", "Smith", "smith@test.com", null, "Australia"));
+
+        Mockito.when(contactRepository.streamMatchesByEmail()).thenReturn(contacts.stream()
+                .sorted(Comparator.comparing(ContactMatchView::getNormalizedEmail)));
+        Mockito.when(contactRepository.streamMatchesBySurname()).thenReturn(contacts.stream()
+                .sorted(Comparator.comparing(ContactMatchView::getSurnameKey)
+                        .thenComparing(ContactMatchView::getCountry)
+                        .thenComparing(ContactMatchView::getFirstName)));
+        DuplicateReport report = detector.detect(Instant.now());
+
+        Assertions.assertEquals(DuplicateReport.Status.COMPLETED, report.getStatus());
+        Assertions.assertEquals(10, report.getRowsScanned());
+        Assertions.assertEquals(1, report.getClusters().size());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(john, johnUpperCaseEmail, jon)),
+                new HashSet<>(report.getClusters().get(0)));
+    }
+
+    /**
+     * Test a phone number written in national format matches the same number in international format, adding the
+     * bonus that makes close first names a duplicate
+     *
+     */
+    @Test
+    void testDetect_Same_Phone_In_National_And_International_Format () {
+        UUID bob = UUID.randomUUID();
+        UUID rob = UUID.randomUUID();
+        List<ContactMatchView> contacts = Arrays.asList(
+                contact(bob, "Bob", "Doe", "bob@test.com", "0404 123 456", "Australia"),
+                contact(rob, "Rob", "Doe", "rob@test.com", "+61 (404) 123-456", "Australia"),
+                contact(john, "John", "Doe", "john@test.com", "0404 654 321", "Australia"));
+
+        Mockito.when(contactRepository.streamMatchesByEmail()).thenReturn(contacts.stream()
+                .sorted(Comparator.comparing(ContactMatchView::getNormalizedEmail)));
+        Mockito.when(contactRepository.streamMatchesBySurname()).thenReturn(contacts.stream()
+                .sorted(Comparator.comparing(ContactMatchView::getFirstName)));
+        DuplicateReport report = detector.detect(Instant.now());
+
+        Assertions.assertEquals(1, report.getClusters().size());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(bob, rob)), new HashSet<>(report.getClusters().get(0)));
+    }
+
+    /**
+     * Test the normalization used for blocking and scoring
+     *
+     */
+    @Test
+    void testNormalize () {
+        Assertions.assertEquals("john@test.com", ContactNormalizer.email(" John@Test.com "));
+        Assertions.assertNull(ContactNormalizer.email("  "));
+        Assertions.assertEquals("S530", ContactNormalizer.soundex("Smith"));
+        Assertions.assertEquals("S530", ContactNormalizer.soundex("Schmidt"));
+        Assertions.assertEquals("A261", ContactNormalizer.soundex("Ashcraft"));
+        Assertions.assertEquals("M460", ContactNormalizer.soundex("Müller"));
+        Assertions.assertTrue(JaroWinkler.similarity("martha", "marhta") > 0.96);
+        Assertions.assertTrue(JaroWinkler.similarity("john", "jane") < 0.8);
+    }
+
+    private static ContactMatchView contact(UUID id, String firstName, String surName, String email, String phoneNumber,
+                                            String country) {
+        return new ContactMatchView(id, firstName, surName, ContactNormalizer.email(email),
+                ContactNormalizer.soundex(surName), PHONE_NUMBER_NORMALIZER.toE164(phoneNumber, country), country);
+    }
+}
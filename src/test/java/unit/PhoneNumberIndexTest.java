@@ -0,0 +1,120 @@
+package unit;
+
+import addressbook.service.addressbook.phone.PhoneNumberIndex;
+import addressbook.service.addressbook.phone.PhoneNumberNormalizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+
+class PhoneNumberIndexTest {
+
+    private final PhoneNumberNormalizer normalizer = new PhoneNumberNormalizer("AU");
+
+    private final UUID addressBookId = UUID.randomUUID();
+
+    private PhoneNumberIndex index;
+
+    @BeforeEach
+    void beforeTest () {
+        index = new PhoneNumberIndex();
+    }
+
+    /**
+     * Test numbers are normalized to E.164 from any formatting, using the country of the Contact when the number has
+     * no international prefix, and invalid numbers are rejected
+     *
+     */
+    @Test
+    void testToE164 () {
+        Assertions.assertEquals("+61412345678", normalizer.toE164("0412 345 678", "Australia"));
+        Assertions.assertEquals("+61412345678", normalizer.toE164("+61 (412) 345-678", "United States"));
+        Assertions.assertEquals("+12015550123", normalizer.toE164("(201) 555-0123", "US"));
+        Assertions.assertEquals("+61412345678", normalizer.toE164("0412345678", null));
+        Assertions.assertNull(normalizer.toE164("12345667", "Australia"));
+        Assertions.assertNull(normalizer.toE164("not a number", "Australia"));
+    }
+
+    /**
+     * Test every Contact sharing a number is found, and a Contact put again is only indexed under its new number
+     *
+     */
+    @Test
+    void testLookup_Shared_And_Replaced_Numbers () {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        index.put(first, addressBookId, "+61412345678");
+        index.put(second, addressBookId, "+61412345678");
+
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(first, second)),
+                new HashSet<>(index.lookup("+61412345678")));
+        Assertions.assertTrue(index.lookup("+61412345679").isEmpty());
+
+        index.put(first, addressBookId, "+61412345679");
+        Assertions.assertEquals(Arrays.asList(second), index.lookup("+61412345678"));
+        Assertions.assertEquals(Arrays.asList(first), index.lookup("+61412345679"));
+
+        index.put(second, addressBookId, null);
+        Assertions.assertTrue(index.lookup("+61412345678").isEmpty());
+        Assertions.assertEquals(1, index.size());
+    }
+
+    /**
+     * Test numbers stay reachable as the table grows and as slots of the same clusters are removed
+     *
+     */
+    @Test
+    void testResize_And_Remove () {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            index.put(id, i % 2 == 0 ? addressBookId : UUID.randomUUID(), "+6141" + (2000000 + i));
+        }
+        Assertions.assertEquals(5000, index.size());
+
+        for (int i = 0; i < 5000; i += 3) {
+            index.remove(ids.get(i));
+        }
+        for (int i = 0; i < 5000; i++) {
+            List<UUID> found = index.lookup("+6141" + (2000000 + i));
+            Assertions.assertEquals(i % 3 == 0 ? Arrays.asList() : Arrays.asList(ids.get(i)), found);
+        }
+
+        index.removeAddressBook(addressBookId);
+        for (int i = 0; i < 5000; i++) {
+            boolean kept = i % 3 != 0 && i % 2 != 0;
+            Assertions.assertEquals(kept, !index.lookup("+6141" + (2000000 + i)).isEmpty());
+        }
+    }
+
+    /**
+     * Test a load replaces the content of the index, and keeps the writes made while it runs
+     *
+     */
+    @Test
+    void testLoad_Keep_Concurrent_Writes () {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        index.put(UUID.randomUUID(), addressBookId, "+61412345670");
+
+        index.load(loaded -> {
+            loaded.put(first, addressBookId, "+61412345678");
+            // Committed while loading, after DB was read
+            index.put(second, addressBookId, "+61412345679");
+            index.remove(first);
+            Assertions.assertEquals(1, index.lookup("+61412345670").size());
+        });
+
+        Assertions.assertTrue(index.lookup("+61412345670").isEmpty());
+        Assertions.assertTrue(index.lookup("+61412345678").isEmpty());
+        Assertions.assertEquals(Arrays.asList(second), index.lookup("+61412345679"));
+        Assertions.assertEquals(1, index.size());
+    }
+}
@@ -0,0 +1,186 @@
+package unit;
+
+import addressbook.dao.replica.ReplicaContext;
+import addressbook.dao.replica.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource first;
+
+    @Mock
+    private DataSource second;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection firstConnection;
+
+    @Mock
+    private Connection secondConnection;
+
+    private ReplicaRoutingDataSource dataSource;
+
+    @BeforeEach
+    void beforeTest () {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("first", first);
+        replicas.put("second", second);
+        dataSource = new ReplicaRoutingDataSource("default", primary, replicas, meterRegistry);
+    }
+
+    @AfterEach
+    void afterTest () {
+        transaction(false, false);
+        ReplicaContext.close();
+    }
+
+    /**
+     * Test read only transactions go to the replicas in turn, and other connections to the primary
+     *
+     * @throws SQLException
+     */
+    @Test
+    void testRoute_Reads_To_Replicas () throws SQLException {
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+        Mockito.when(first.getConnection()).thenReturn(firstConnection);
+        Mockito.when(second.getConnection()).thenReturn(secondConnection);
+
+        Assertions.assertSame(primaryConnection, dataSource.getConnection());
+
+        transaction(true, true);
+        Assertions.assertSame(firstConnection, dataSource.getConnection());
+        Assertions.assertSame(secondConnection, dataSource.getConnection());
+        Assertions.assertSame(firstConnection, dataSource.getConnection());
+
+        transaction(true, false);
+        Assertions.assertSame(primaryConnection, dataSource.getConnection());
+
+        Assertions.assertEquals(2, routes("primary", "write"));
+        Assertions.assertEquals(2, routes("first", "read"));
+        Assertions.assertEquals(1, routes("second", "read"));
+    }
+
+    /**
+     * Test reads of a request go to the primary once it wrote, and to the replicas again in the next request
+     *
+     * @throws SQLException
+     */
+    @Test
+    void testRoute_Read_Your_Writes () throws SQLException {
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+        Mockito.when(first.getConnection()).thenReturn(firstConnection);
+        Mockito.when(second.getConnection()).thenReturn(secondConnection);
+
+        ReplicaContext.open();
+        transaction(true, true);
+        Assertions.assertSame(firstConnection, dataSource.getConnection());
+        transaction(true, false);
+        Assertions.assertSame(primaryConnection, dataSource.getConnection());
+        transaction(true, true);
+        Assertions.assertSame(primaryConnection, dataSource.getConnection());
+        ReplicaContext.close();
+
+        ReplicaContext.open();
+        Assertions.assertSame(secondConnection, dataSource.getConnection());
+        Assertions.assertEquals(1, routes("primary", "read_your_writes"));
+    }
+
+    /**
+     * Test a write made by a task the request handed to another thread is a write of the request, reported once, and
+     * that a request following a recent write reads from the primary from the start
+     *
+     * @throws Exception
+     */
+    @Test
+    void testRoute_Read_Your_Writes_Of_Tasks () throws Exception {
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+        AtomicInteger reported = new AtomicInteger();
+
+        ReplicaContext.open(false, reported::incrementAndGet);
+        Supplier<Connection> write = ReplicaContext.wrap(() -> {
+            transaction(true, false);
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                transaction(false, false);
+            }
+        });
+        Assertions.assertSame(primaryConnection, CompletableFuture.supplyAsync(write).get(5, TimeUnit.SECONDS));
+        Assertions.assertSame(primaryConnection, CompletableFuture.supplyAsync(write).get(5, TimeUnit.SECONDS));
+        transaction(true, true);
+        Assertions.assertSame(primaryConnection, dataSource.getConnection());
+        Assertions.assertEquals(1, reported.get());
+        ReplicaContext.close();
+
+        ReplicaContext.open(true, reported::incrementAndGet);
+        Assertions.assertSame(primaryConnection, dataSource.getConnection());
+        Assertions.assertEquals(2, routes("primary", "read_your_writes"));
+        Assertions.assertEquals(1, reported.get());
+    }
+
+    /**
+     * Test replicas failing their health check are skipped, and reads fall back to the primary when none is healthy
+     *
+     * @throws SQLException
+     */
+    @Test
+    void testRoute_Unhealthy_Replicas () throws SQLException {
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+        Mockito.when(first.getConnection()).thenThrow(new SQLException("Connection refused"));
+        Mockito.when(second.getConnection()).thenReturn(secondConnection);
+        Mockito.when(secondConnection.isValid(1)).thenReturn(true, false);
+
+        dataSource.checkHealth(1);
+        Assertions.assertEquals(1, meterRegistry.get(ReplicaRoutingDataSource.HEALTHY_REPLICAS_NAME).gauge().value());
+        transaction(true, true);
+        Assertions.assertSame(secondConnection, dataSource.getConnection());
+        Assertions.assertSame(secondConnection, dataSource.getConnection());
+
+        dataSource.checkHealth(1);
+        Assertions.assertSame(primaryConnection, dataSource.getConnection());
+        Assertions.assertEquals(1, routes("primary", "no_healthy_replica"));
+    }
+
+    private double routes(String route, String reason) {
+        return meterRegistry.get(ReplicaRoutingDataSource.ROUTES_NAME)
+                .tag("route", route)
+                .tag("reason", reason)
+                .counter().count();
+    }
+
+    private static void transaction(boolean active, boolean readOnly) {
+        TransactionSynchronizationManager.setActualTransactionActive(active);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+}
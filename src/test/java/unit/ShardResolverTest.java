@@ -0,0 +1,76 @@
+package unit;
+
+import addressbook.dao.shard.ShardResolver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+
+class ShardResolverTest {
+
+    private final List<UUID> ids = IntStream.range(0, 30000)
+            .mapToObj(i -> UUID.randomUUID())
+            .collect(Collectors.toList());
+
+    /**
+     * Test AddressBooks are spread evenly across shards, and each one is owned by the shard it resolves to only
+     *
+     */
+    @Test
+    void testResolve_Distribution () {
+        ShardResolver resolver = new ShardResolver(Arrays.asList("shard0", "shard1", "shard2"), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (UUID id : ids) {
+            String shard = resolver.resolve(id);
+            counts.merge(shard, 1, Integer::sum);
+            Assertions.assertEquals(shard, resolver.resolve(id));
+            for (String other : resolver.getShards()) {
+                Assertions.assertEquals(other.equals(shard), resolver.owns(other, id));
+            }
+        }
+
+        Assertions.assertEquals(3, counts.size());
+        counts.values().forEach(count -> Assertions.assertTrue(count > 8000 && count < 12000, "Uneven: " + counts));
+    }
+
+    /**
+     * Test adding a shard only moves AddressBooks to the new shard, about a quarter of them from three shards
+     *
+     */
+    @Test
+    void testResolve_Add_Shard () {
+        ShardResolver before = new ShardResolver(Arrays.asList("shard0", "shard1", "shard2"), 128);
+        ShardResolver after = new ShardResolver(Arrays.asList("shard0", "shard1", "shard2", "shard3"), 128);
+
+        long moved = 0;
+        for (UUID id : ids) {
+            String previous = before.resolve(id);
+            String current = after.resolve(id);
+            if (!previous.equals(current)) {
+                Assertions.assertEquals("shard3", current);
+                moved++;
+            }
+        }
+        Assertions.assertTrue(moved > 5000 && moved < 10000, "Moved: " + moved);
+    }
+
+    /**
+     * Test a single shard resolver maps everything to the default shard
+     *
+     */
+    @Test
+    void testSingle () {
+        ShardResolver resolver = ShardResolver.single();
+
+        Assertions.assertEquals(ShardResolver.DEFAULT_SHARD, resolver.getDefaultShard());
+        ids.stream().limit(100).forEach(id -> Assertions.assertEquals(ShardResolver.DEFAULT_SHARD, resolver.resolve(id)));
+    }
+}
@@ -0,0 +1,125 @@
+package unit;
+
+import addressbook.dao.shard.ShardContext;
+import addressbook.dao.shard.ShardResolver;
+import addressbook.model.impl.AddressBook;
+import addressbook.model.impl.Contact;
+import addressbook.service.addressbook.AddressBookService;
+import addressbook.service.addressbook.autocomplete.ContactNameIndex;
+import addressbook.service.addressbook.shardimpl.ShardedAddressBookService;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+
+
+@ExtendWith(MockitoExtension.class)
+class ShardedAddressBookServiceTest {
+
+    private final ShardResolver shardResolver = new ShardResolver(Arrays.asList("shard0", "shard1", "shard2"), 16);
+
+    private final ContactNameIndex contactNameIndex = new ContactNameIndex();
+
+    private final UUID addressBookId = UUID.randomUUID();
+
+    private final UUID contactId = UUID.randomUUID();
+
+    @Mock
+    private AddressBookService delegate;
+
+    private ShardedAddressBookService service;
+
+    @BeforeEach
+    void beforeTest () {
+        service = new ShardedAddressBookService(delegate, shardResolver, contactNameIndex,
+                MoreExecutors.newDirectExecutorService());
+    }
+
+    /**
+     * Test a Contact indexed in memory is read from the shard of its AddressBook only
+     *
+     */
+    @Test
+    void testGetContact_Indexed_Shard () {
+        contactNameIndex.put(contactId, addressBookId, "John", "Doe");
+        Mockito.when(delegate.getContact(contactId)).thenReturn(Optional.of(contact()));
+        Mockito.when(delegate.getContactVersion(contactId)).thenReturn(Optional.of(2L));
+
+        Assertions.assertEquals(contactId, service.getContact(contactId).get().getId());
+        Assertions.assertEquals(Optional.of(2L), service.getContactVersion(contactId));
+
+        Mockito.verify(delegate).getContact(contactId);
+        Mockito.verify(delegate).getContactVersion(contactId);
+    }
+
+    /**
+     * Test a Contact not indexed is looked up on every shard, its version by the version query
+     *
+     */
+    @Test
+    void testGetContactVersion_Not_Indexed () {
+        Mockito.when(delegate.getContactVersion(contactId))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(2L))
+                .thenReturn(Optional.empty());
+
+        Assertions.assertEquals(Optional.of(2L), service.getContactVersion(contactId));
+
+        Mockito.verify(delegate, Mockito.times(3)).getContactVersion(contactId);
+        Mockito.verify(delegate, Mockito.never()).getContact(contactId);
+    }
+
+    /**
+     * Test a Contact write is routed from the index, without reading the Contact
+     *
+     */
+    @Test
+    void testPatchContact_Indexed_Shard () {
+        contactNameIndex.put(contactId, addressBookId, "John", "Doe");
+        String[] shard = new String[1];
+        Mockito.doAnswer(invocation -> shard[0] = ShardContext.current())
+                .when(delegate).patchContact(contactId, Collections.emptyMap(), null);
+
+        service.patchContact(contactId, Collections.emptyMap(), null);
+
+        Assertions.assertEquals(shardResolver.resolve(addressBookId), shard[0]);
+        Mockito.verify(delegate, Mockito.never()).getContact(contactId);
+        Mockito.verify(delegate, Mockito.never()).getContactAddressBookId(contactId);
+    }
+
+    /**
+     * Test a Contact write not indexed is routed by the AddressBook Id read from every shard, without reading the
+     * Contact
+     *
+     */
+    @Test
+    void testDeleteContact_Not_Indexed () {
+        Mockito.when(delegate.getContactAddressBookId(contactId)).thenReturn(Optional.of(addressBookId));
+        String[] shard = new String[1];
+        Mockito.doAnswer(invocation -> shard[0] = ShardContext.current()).when(delegate).deleteContact(contactId);
+
+        service.deleteContact(contactId);
+
+        Assertions.assertEquals(shardResolver.resolve(addressBookId), shard[0]);
+        Mockito.verify(delegate, Mockito.times(3)).getContactAddressBookId(contactId);
+        Mockito.verify(delegate, Mockito.never()).getContact(contactId);
+    }
+
+    private Contact contact() {
+        AddressBook addressBook = new AddressBook();
+        addressBook.setId(addressBookId);
+        Contact contact = new Contact();
+        contact.setId(contactId);
+        contact.setAddressBook(addressBook);
+        return contact;
+    }
+}
@@ -0,0 +1,54 @@
+package unit;
+
+import addressbook.model.id.TimeOrderedUuidGenerator;
+import addressbook.model.impl.AddressBook;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+
+class TimeOrderedUuidGeneratorTest {
+
+    /**
+     * Test generated UUID is a version 7, IETF variant UUID
+     *
+     */
+    @Test
+    void testVersionAndVariant () {
+        UUID uuid = TimeOrderedUuidGenerator.next();
+
+        Assertions.assertEquals(7, uuid.version());
+        Assertions.assertEquals(2, uuid.variant());
+    }
+
+    /**
+     * Test UUID generated in a later millisecond sort after the earlier one, both as value and as string
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    void testTimeOrdered () throws InterruptedException {
+        UUID first = TimeOrderedUuidGenerator.next();
+        Thread.sleep(2);
+        UUID second = TimeOrderedUuidGenerator.next();
+
+        Assertions.assertTrue(Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits()) < 0);
+        Assertions.assertTrue(first.toString().compareTo(second.toString()) < 0);
+    }
+
+    /**
+     * Test an Id assigned before insert is kept, and one is generated otherwise
+     *
+     */
+    @Test
+    void testGenerate_Keeps_Assigned_Id () {
+        TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator();
+        AddressBook addressBook = new AddressBook();
+        Assertions.assertEquals(7, ((UUID) generator.generate(null, addressBook)).version());
+
+        UUID assigned = TimeOrderedUuidGenerator.next();
+        addressBook.setId(assigned);
+        Assertions.assertEquals(assigned, generator.generate(null, addressBook));
+    }
+}
@@ -1,8 +1,8 @@
-INSERT INTO AddressBook VALUES ('76f36362-92d9-4676-8384-abb62f54ce03', 'Test1');
-INSERT INTO AddressBook VALUES ('f18856f9-70c8-41e4-9cd7-2fe5bbf40e34', 'Test2');
+INSERT INTO AddressBook (id, name, lastModified, version, contentVersion, minSyncVersion) VALUES ('76f36362-92d9-4676-8384-abb62f54ce03', 'Test1', CURRENT_TIMESTAMP, 0, 0, 0);
+INSERT INTO AddressBook (id, name, lastModified, version, contentVersion, minSyncVersion) VALUES ('f18856f9-70c8-41e4-9cd7-2fe5bbf40e34', 'Test2', CURRENT_TIMESTAMP, 0, 0, 0);
 
 
-INSERT INTO Contact (id, firstName, middleName, surName, phoneNumber,email, state, country, addressbookid) VALUES ('cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88', 'John', null, 'Doe', '04041234', 'tst@test.com', 'VIC', 'Australia', '76f36362-92d9-4676-8384-abb62f54ce03');
-INSERT INTO Contact (id, firstName, middleName, surName, phoneNumber,email, state, country, addressbookid) VALUES ('e42f73ba-2874-4933-9276-ebfb45ae4f8a', 'Jane', null, 'Doe', '04044321', 'tst2@test.com', 'VIC', 'Australia', '76f36362-92d9-4676-8384-abb62f54ce03');
-INSERT INTO Contact (id, firstName, middleName, surName, phoneNumber,email, state, country, addressbookid) VALUES ('3b3b3667-2c2e-4eec-8051-f12518567208', 'Andrew', null, 'Doe', '04044321222', 'tst3@test.com', 'VIC', 'Australia', 'f18856f9-70c8-41e4-9cd7-2fe5bbf40e34');
-INSERT INTO Contact (id, firstName, middleName, surName, phoneNumber,email, state, country, addressbookid) VALUES ('69462f07-4515-4c13-b72b-f5e4bb496197', 'Jane', null, 'Doe', '04044321', 'tst2@test.com', 'VIC', 'Australia', 'f18856f9-70c8-41e4-9cd7-2fe5bbf40e34');
+INSERT INTO Contact (id, firstName, middleName, surName, phoneNumber,email, state, country, addressbookid, version, syncVersion, normalizedEmail, surnameKey) VALUES ('cbdd5f68-b59a-40de-bcb9-3c7e96bcbb88', 'John', null, 'Doe', '04041234', 'tst@test.com', 'VIC', 'Australia', '76f36362-92d9-4676-8384-abb62f54ce03', 0, 0, 'tst@test.com', 'D000');
+INSERT INTO Contact (id, firstName, middleName, surName, phoneNumber,email, state, country, addressbookid, version, syncVersion, normalizedEmail, surnameKey) VALUES ('e42f73ba-2874-4933-9276-ebfb45ae4f8a', 'Jane', null, 'Doe', '04044321', 'tst2@test.com', 'VIC', 'Australia', '76f36362-92d9-4676-8384-abb62f54ce03', 0, 0, 'tst2@test.com', 'D000');
+INSERT INTO Contact (id, firstName, middleName, surName, phoneNumber,email, state, country, addressbookid, version, syncVersion, normalizedEmail, surnameKey) VALUES ('3b3b3667-2c2e-4eec-8051-f12518567208', 'Andrew', null, 'Doe', '04044321222', 'tst3@test.com', 'VIC', 'Australia', 'f18856f9-70c8-41e4-9cd7-2fe5bbf40e34', 0, 0, 'tst3@test.com', 'D000');
+INSERT INTO Contact (id, firstName, middleName, surName, phoneNumber,email, state, country, addressbookid, version, syncVersion, normalizedEmail, surnameKey) VALUES ('69462f07-4515-4c13-b72b-f5e4bb496197', 'Jane', null, 'Doe', '04044321', 'tst2@test.com', 'VIC', 'Australia', 'f18856f9-70c8-41e4-9cd7-2fe5bbf40e34', 0, 0, 'tst2@test.com', 'D000');